@@ -0,0 +1,100 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package qrcode;
+
+/**
+ * A fixed capacity sequence of bits, written from left to right into 8-bit codewords,
+ * most significant bit first. Codewords that have not been written to are 0.
+ */
+final class BitBuffer
+{
+	private final int[] codewords;
+	private int length;	// Number of bits written so far
+
+	/**
+	 * Create an empty buffer
+	 * @param capacity
+	 * 			the number of codewords the buffer holds
+	 */
+	BitBuffer(int capacity)
+	{
+		this.codewords = new int[capacity];
+	}
+
+	/**
+	 * @return the number of bits written so far
+	 */
+	int length()
+	{
+		return length;
+	}
+
+	/**
+	 * Append the lowest bits of a value, most significant bit first
+	 * @param value
+	 * 			the value whose bits are appended
+	 * @param bits
+	 * 			the number of bits to append, between 0 and 31
+	 */
+	void append(int value, int bits)
+	{
+		if (bits < 0 || bits >= Integer.SIZE)
+		{
+			throw new IllegalArgumentException("Between 0 and 31 bits can be appended at once");
+		}
+		checkCapacity(bits);
+
+		// Fill the current codeword, then the next ones, with as many bits as they have room for
+		while (bits > 0)
+		{
+			int free = Byte.SIZE - (length & 0b111);
+			int taken = Math.min(free, bits);
+			int chunk = (value >>> (bits - taken)) & ((1 << taken) - 1);
+
+			codewords[length >>> 3] |= chunk << (free - taken);
+
+			length += taken;
+			bits -= taken;
+		}
+	}
+
+	/**
+	 * Append zeros
+	 * @param bits
+	 * 			the number of zeros to append
+	 */
+	void appendZeros(int bits)
+	{
+		checkCapacity(bits);
+
+		// Codewords start at 0, so there is nothing to write
+		length += bits;
+	}
+
+	/**
+	 * Append zeros until the end of the current codeword
+	 */
+	void alignToCodeword()
+	{
+		appendZeros(-length & 0b111);
+	}
+
+	/**
+	 * @return the codewords of the buffer. The array is not copied : writing to it changes the buffer.
+	 */
+	int[] codewords()
+	{
+		return codewords;
+	}
+
+	private void checkCapacity(int bits)
+	{
+		if (length + bits > codewords.length * Byte.SIZE)
+		{
+			throw new IllegalArgumentException("The buffer can only hold " + codewords.length + " codewords");
+		}
+	}
+}
@@ -7,11 +7,20 @@ package qrcode;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.List;
 
-import reedsolomon.ErrorCorrectionEncoding;
+import qrcode.QRCodeInfos.CorrectionLvl;
+import qrcode.QRCodeInfos.Mode;
+import reedsolomon.ReedSolomonEncoder;
 
 public final class DataEncoding {
 
+	/*
+	 * Building blocks of the bit stream
+	 */
+	private static final int TERMINATOR_LENGTH = 4;
+	private static final int[] PADDING_CODEWORDS = {236, 17};
+
 	/**
 	 * @param input
 	 * @param version
@@ -19,25 +28,155 @@ public final class DataEncoding {
 	 */
 	public static boolean[] byteModeEncoding(String input, int version) 
 	{
-		// Step 0 : Let version determine maximum length of the input as well as final length of the message.
-		final int MAX_LENGTH = QRCodeInfos.getMaxInputLength(version);	
-		final int FINAL_LENGTH = QRCodeInfos.getCodeWordsLength(version);
-		final int ECC_LENGTH = QRCodeInfos.getECCLength(version);		
+		return byteModeEncoding(input, version, CorrectionLvl.L);
+	}
+
+	/**
+	 * Encode the input in byte mode, with the error correction of the given level
+	 * 
+	 * @param input
+	 *            the message to encode, truncated to the capacity of the version
+	 * @param version
+	 *            the version of the QR code
+	 * @param level
+	 *            the error correction level
+	 * @return the bits to place in the data modules, most significant bit of every codeword first
+	 */
+	public static boolean[] byteModeEncoding(String input, int version, CorrectionLvl level) 
+	{
+		// Step 0 : Let version and level determine maximum length of the input as well as final length of the message.
+		final int MAX_LENGTH = QRCodeInfos.getMaxInputLength(version, level);	
+		
+		// Step 1 : Encode String input to ISO-8859-1, truncated to the capacity of the version
+		byte[] inputBytes = input.getBytes(StandardCharsets.ISO_8859_1);
+		int inputLength = Math.min(inputBytes.length, MAX_LENGTH);
+		
+		// Step 2 : Write the byte mode, the length and the message in one pass.
+		// The buffer already has room for the error correction.
+		BitBuffer buffer = newBuffer(version, level);
+		
+		buffer.append(QRCodeInfos.getModeIndicator(Mode.BYTE), 4);
+		buffer.append(inputLength, QRCodeInfos.getCharacterCountBits(version));
+		for (int i = 0; i < inputLength; i++)
+		{
+			buffer.append(Byte.toUnsignedInt(inputBytes[i]), Byte.SIZE);
+		}
+		
+		// Steps 3 to 5 : terminator, padding and error correction
+		return finishEncoding(buffer, version, level);
+	}
+	
+	/**
+	 * Return the smallest version in which the input fits at the given error correction level, 
+	 * when it is split into numeric, alphanumeric and byte segments by optimalEncoding.
+	 * 
+	 * @param input
+	 *            the message to encode
+	 * @param level
+	 *            the error correction level
+	 * @return the smallest version holding the whole message
+	 * @throws IllegalArgumentException
+	 *             if the message does not fit in version 40
+	 */
+	public static int smallestVersion(String input, CorrectionLvl level)
+	{
+		byte[] inputBytes = input.getBytes(StandardCharsets.ISO_8859_1);
+		
+		List<Segment> segments = null;
+		for (int version = 1; version <= 40; version++)
+		{
+			// The segments only depend on the length of the character counts, which change at versions 10 and 27
+			if (version == 1 || version == 10 || version == 27)
+			{
+				segments = Segment.plan(inputBytes, version);
+			}
+			
+			if (Segment.bitLength(segments, version) <= QRCodeInfos.getCodeWordsLength(version, level) * Byte.SIZE)
+			{
+				return version;
+			}
+		}
+		
+		throw new IllegalArgumentException("The message does not fit in a QR code of level " + level);
+	}
+	
+	/**
+	 * Encode the input in the mix of numeric, alphanumeric and byte segments with the fewest bits.
+	 * Unlike byteModeEncoding, the message is never truncated.
+	 * 
+	 * @param input
+	 *            the message to encode
+	 * @param version
+	 *            the version of the QR code, usually given by smallestVersion
+	 * @param level
+	 *            the error correction level
+	 * @return the bits to place in the data modules, most significant bit of every codeword first
+	 * @throws IllegalArgumentException
+	 *             if the message does not fit in the version
+	 */
+	public static boolean[] optimalEncoding(String input, int version, CorrectionLvl level)
+	{
+		byte[] inputBytes = input.getBytes(StandardCharsets.ISO_8859_1);
+		List<Segment> segments = Segment.plan(inputBytes, version);
+		
+		if (Segment.bitLength(segments, version) > QRCodeInfos.getCodeWordsLength(version, level) * Byte.SIZE)
+		{
+			throw new IllegalArgumentException("The message does not fit in a QR code of version " + version + " and level " + level);
+		}
+		
+		BitBuffer buffer = newBuffer(version, level);
+		for (Segment segment : segments)
+		{
+			segment.appendTo(buffer, version);
+		}
+		
+		return finishEncoding(buffer, version, level);
+	}
+	
+	/**
+	 * @return an empty buffer holding the data and error correction codewords of the version and level
+	 */
+	private static BitBuffer newBuffer(int version, CorrectionLvl level)
+	{
+		return new BitBuffer(QRCodeInfos.getCodeWordsLength(version, level) 
+				+ QRCodeInfos.getBlockCount(version, level) * QRCodeInfos.getECCLength(version, level));
+	}
+	
+	/**
+	 * Complete the segments written to the buffer with the terminator and the padding, 
+	 * add the error correction and interleave the blocks
+	 * 
+	 * @param buffer
+	 *            a buffer from newBuffer, holding the segments
+	 * @param version
+	 *            the version of the QR code
+	 * @param level
+	 *            the error correction level
+	 * @return the bits to place in the data modules
+	 */
+	private static boolean[] finishEncoding(BitBuffer buffer, int version, CorrectionLvl level)
+	{
+		final int FINAL_LENGTH = QRCodeInfos.getCodeWordsLength(version, level);
+		final int BLOCKS = QRCodeInfos.getBlockCount(version, level);
+		final int ECC_LENGTH = QRCodeInfos.getECCLength(version, level);
 		
-		// Step 1 : Encode String input to ISO-8859-1
-		int[] inputBytes = encodeString(input, MAX_LENGTH);
+		// Step 3 : Terminator and padding. The terminator is cut short when the message fills the whole capacity
+		buffer.appendZeros(Math.min(TERMINATOR_LENGTH, FINAL_LENGTH * Byte.SIZE - buffer.length()));
+		buffer.alignToCodeword();
 		
-		// Step 2 : Add encoding and length information.
-		int[] addedBytes = addInformations(inputBytes);
+		for (int k = 0; buffer.length() < FINAL_LENGTH * Byte.SIZE; k++)
+		{
+			buffer.append(PADDING_CODEWORDS[k % 2], Byte.SIZE);
+		}
 		
-		// Step 3 : Fill sequence with alternating values 236 and 17 until we hit specified length.
-		int[] filledBytes = fillSequence(addedBytes, FINAL_LENGTH);
+		// Step 4 : Write the error correction of every block after the data
+		int[] codewords = buffer.codewords();
+		addBlockErrorCorrection(codewords, FINAL_LENGTH, BLOCKS, ECC_LENGTH);
 		
-		// Step 4 : Add error correction to the message
-		int[] errorCorrectedBytes = addErrorCorrection(filledBytes, ECC_LENGTH);
+		// Step 5 : Interleave the blocks, straight into the binary output
+		boolean[] outputBits = new boolean[codewords.length * Byte.SIZE];
 		
-		// Step 5. Conversion from bytes to binary
-		boolean[] outputBits = bytesToBinaryArray(errorCorrectedBytes);
+		interleave(codewords, FINAL_LENGTH, BLOCKS, ECC_LENGTH, (k, codeword) -> writeBits(codeword, outputBits, k * Byte.SIZE));
 		
 		return outputBits;
 	}
@@ -214,18 +353,90 @@ public final class DataEncoding {
 		else // Otherwise, use Reed-Solomon and append the error correction data to the end of encodedData.
 		{
 			int[] correctedData = Arrays.copyOf(encodedData, encodedData.length + eccLength);
-			
-			int[] errorCorrectionData = ErrorCorrectionEncoding.encode(encodedData, eccLength);
-			
-			for (int k = 0; k < errorCorrectionData.length; k++) // Fill the next eccLength slots with error correction data
-			{
-				correctedData[k + encodedData.length] = errorCorrectionData[k];
-			}
-			
+
+			// The error correction data is written straight into the next eccLength slots
+			ReedSolomonEncoder.encode(correctedData, 0, encodedData.length, eccLength, correctedData, encodedData.length);
+
 			return correctedData;
 		}
 	}
 
+	/**
+	 * Compute the error correction of every block and write it after the data codewords, block after block.
+	 * 
+	 * @param codewords
+	 *            the data codewords, followed by room for blocks * eccLength error correction codewords
+	 * @param dataLength
+	 *            the number of data codewords
+	 * @param blocks
+	 *            the number of blocks
+	 * @param eccLength
+	 *            the number of error correction codewords of each block
+	 */
+	private static void addBlockErrorCorrection(int[] codewords, int dataLength, int blocks, int eccLength)
+	{
+		int shortBlockLength = dataLength / blocks;
+		int shortBlocks = blocks - dataLength % blocks;
+		
+		for (int b = 0; b < blocks; b++)
+		{
+			int blockLength = (b < shortBlocks) ? shortBlockLength : shortBlockLength + 1;
+			ReedSolomonEncoder.encode(codewords, blockStart(b, shortBlockLength, shortBlocks), blockLength, eccLength, 
+					codewords, dataLength + b * eccLength);
+		}
+	}
+	
+	/**
+	 * Receives the codewords in interleaved order
+	 */
+	private interface CodewordSink
+	{
+		/**
+		 * @param index
+		 *            the position of the codeword once interleaved
+		 * @param codeword
+		 *            the codeword
+		 */
+		void put(int index, int codeword);
+	}
+	
+	/**
+	 * Hand the codewords laid out by addBlockErrorCorrection to the sink in interleaved order : 
+	 * the first data codeword of every block, then the second, and so on, then the error correction codewords the same way.
+	 * The blocks that hold one more data codeword come after the shorter ones.
+	 */
+	private static void interleave(int[] codewords, int dataLength, int blocks, int eccLength, CodewordSink sink)
+	{
+		int k = 0;
+		int shortBlockLength = dataLength / blocks;
+		int shortBlocks = blocks - dataLength % blocks;
+		
+		// Interleave the data codewords. The last round only visits the longer blocks.
+		for (int i = 0; i <= shortBlockLength; i++)
+		{
+			for (int b = (i < shortBlockLength) ? 0 : shortBlocks; b < blocks; b++)
+			{
+				sink.put(k++, codewords[blockStart(b, shortBlockLength, shortBlocks) + i]);
+			}
+		}
+		
+		// Interleave the error correction codewords
+		for (int i = 0; i < eccLength; i++)
+		{
+			for (int b = 0; b < blocks; b++)
+			{
+				sink.put(k++, codewords[dataLength + b * eccLength + i]);
+			}
+		}
+	}
+	
+	/**
+	 * @return the index of the first data codeword of block b
+	 */
+	private static int blockStart(int b, int shortBlockLength, int shortBlocks)
+	{
+		return b * shortBlockLength + Math.max(0, b - shortBlocks);
+	}
 	
 	/**
 	 * Encode the byte array into a binary array represented with boolean using the
@@ -263,4 +474,22 @@ public final class DataEncoding {
 		
 		return binaryArray;
 	}
+	
+	/**
+	 * Write the 8 bits of a codeword to the array, most significant bit first
+	 * 
+	 * @param codeword
+	 *            the codeword to write
+	 * @param bits
+	 *            the array receiving the bits
+	 * @param position
+	 *            the index of the most significant bit
+	 */
+	private static void writeBits(int codeword, boolean[] bits, int position)
+	{
+		for (int k = Byte.SIZE - 1; k >= 0; k--)
+		{
+			bits[position++] = ((codeword >> k) & 1) != 0;
+		}
+	}
 }
@@ -9,8 +9,11 @@ package qrcode;
 import java.awt.BorderLayout;
 import java.awt.Font;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
@@ -147,6 +150,31 @@ public final class Helpers {
 		});
 	}
 
+	/**
+	 * Shows a bit-packed matrix in a new window. The matrix is scaled for visualization
+	 * 
+	 * @param matrix
+	 * @param scale 
+	 */
+	public static void show(QRMatrix matrix, int scale) {
+		BufferedImage image = new QRRaster(scale, QRRaster.DEFAULT_QUIET_ZONE).toImage(matrix);
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				JFrame editorFrame = new JFrame("QR Code");
+				editorFrame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+	
+				ImageIcon imageIcon = new ImageIcon(image);
+				JLabel jLabel = new JLabel();
+				jLabel.setIcon(imageIcon);
+				editorFrame.getContentPane().add(jLabel, BorderLayout.CENTER);
+	
+				editorFrame.pack();
+				editorFrame.setLocationRelativeTo(null);
+				editorFrame.setVisible(true);
+			}
+		});
+	}
+
 	/**
 	 * Read an image from a file in the images directory and return the matrix
 	 * associated to it
@@ -170,6 +198,26 @@ public final class Helpers {
 		write(name, matrixToImage(matrix));
 	}
 	
+	/**
+	 * Write the bit-packed matrix into an image file
+	 * @param name
+	 *            the name of the file
+	 * @param matrix
+	 *            the matrix to write
+	 */
+	public static void writeMatrix(String name, QRMatrix matrix) {
+		String path = System.getProperty("user.dir") + SEP + PATH_HEADER + name;
+		if (!name.contains(".png")) {
+			path = path + ".png";
+		}
+		// One pixel per module and no quiet zone, like the int[][] version
+		try (OutputStream output = new BufferedOutputStream(new FileOutputStream(path))) {
+			new QRRaster(1, 0).writePNG(matrix, output);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
 	/*
 	 * ================================================ 
 	 * 				PRIVATE METHODS
@@ -5,6 +5,8 @@
 
 package qrcode;
 
+import qrcode.QRCodeInfos.CorrectionLvl;
+
 public class Main 
 {
 
@@ -13,7 +15,7 @@ public class Main
 	/*
 	 * Parameters
 	 */
-	public static final int VERSION = 4;
+	public static final CorrectionLvl LEVEL = CorrectionLvl.L;
 	public static final int MASK = 4;
 	public static final int SCALING = 20;
 
@@ -23,12 +25,13 @@ public class Main
 		/*
 		 * Encoding
 		 */
-		boolean[] encodedData = DataEncoding.byteModeEncoding(INPUT, VERSION);
+		int version = DataEncoding.smallestVersion(INPUT, LEVEL);
+		boolean[] encodedData = DataEncoding.optimalEncoding(INPUT, version, LEVEL);
 
 		/*
 		 * image
 		 */
-		int[][] qrCode = MatrixConstruction.renderQRCodeMatrix(VERSION, encodedData);
+		QRMatrix qrCode = MatrixConstruction.renderQRMatrix(version, LEVEL, encodedData);
 		
 		/*
 		 * Visualisation
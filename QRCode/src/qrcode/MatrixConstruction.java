@@ -5,6 +5,11 @@
 
 package qrcode;
 
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import qrcode.QRCodeInfos.CorrectionLvl;
+
 public class MatrixConstruction 
 {
 	/*
@@ -30,6 +35,14 @@ public class MatrixConstruction
 	 */
 	enum direction {HORIZONTALLY, VERTICALLY};
 	
+	/*
+	 * Mask selection
+	 * 
+	 * From this version on, the 8 masked matrices are scored in parallel
+	 */
+	static final int NUMBER_OF_MASKS = 8;
+	private static final int PARALLEL_MASKING_MIN_VERSION = 7;
+	
 	/**
 	 * Create the matrix of a QR code with the given data.
 	 * 
@@ -38,23 +51,53 @@ public class MatrixConstruction
 	 * @param data
 	 *            The data to be written on the QR code
 	 * @param mask
-	 *            The mask used on the data. If not valid (e.g: -1), then no mask is
-	 *            used.
+	 *            The mask used on the data, between 0 and 7 included
 	 * @return The matrix of the QR code
+	 * @throws IllegalArgumentException
+	 *             if the mask is not between 0 and 7
 	 */
 	public static int[][] renderQRCodeMatrix(int version, boolean[] data, int mask) 
 	{
-		/*
-		 * PART 2
-		 */
-		int[][] matrix = constructMatrix(version, mask);
-		
-		/*
-		 * PART 3
-		 */
-		addDataInformation(matrix, data, mask);
-
-		return matrix;
+		return renderQRMatrix(version, data, mask).toARGB();
+	}
+	
+	/**
+	 * Create the bit-packed matrix of a QR code with the given data.
+	 * 
+	 * @param version
+	 *            The version of the QR code
+	 * @param data
+	 *            The data to be written on the QR code
+	 * @param mask
+	 *            The mask used on the data, between 0 and 7 included
+	 * @return The matrix of the QR code
+	 * @throws IllegalArgumentException
+	 *             if the mask is not between 0 and 7
+	 */
+	public static QRMatrix renderQRMatrix(int version, boolean[] data, int mask) 
+	{
+		return renderQRMatrix(version, CorrectionLvl.L, data, mask);
+	}
+	
+	/**
+	 * Create the bit-packed matrix of a QR code with the given data and error correction level.
+	 * 
+	 * @param version
+	 *            The version of the QR code
+	 * @param level
+	 *            The error correction level the data was encoded with
+	 * @param data
+	 *            The data to be written on the QR code
+	 * @param mask
+	 *            The mask used on the data, between 0 and 7 included
+	 * @return The matrix of the QR code
+	 * @throws IllegalArgumentException
+	 *             if the mask is not between 0 and 7
+	 */
+	public static QRMatrix renderQRMatrix(int version, CorrectionLvl level, boolean[] data, int mask) 
+	{
+		// PART 2 and PART 3 : the cached template of the version places the patterns and the data
+		return QRTemplate.of(version, level).render(data, mask);
 	}
 
 	/*
@@ -113,7 +156,7 @@ public class MatrixConstruction
 	 * Create a matrix (2D array) ready to accept data for a given version and mask
 	 * 
 	 * @param version
-	 *            the version number of QR code (has to be between 1 and 4 included)
+	 *            the version number of QR code (has to be between 1 and 40 included)
 	 * @param mask
 	 *            the mask id to use to mask the data modules. Has to be between 0
 	 *            and 7 included to have a valid matrix. If the mask id is not
@@ -123,6 +166,23 @@ public class MatrixConstruction
 	 *         initialized. The modules where the data should be remain empty.
 	 */
 	public static int[][] constructMatrix(int version, int mask) 
+	{
+		return constructMatrix(version, CorrectionLvl.L, mask);
+	}
+	
+	/**
+	 * Create a matrix (2D array) ready to accept data for a given version, error correction level and mask
+	 * 
+	 * @param version
+	 *            the version number of QR code, between 1 and 40
+	 * @param level
+	 *            the error correction level, written in the format information
+	 * @param mask
+	 *            the mask id to use to mask the data modules, between 0 and 7
+	 * @return the qrcode with the patterns, format and version information modules
+	 *         initialized. The modules where the data should be remain empty.
+	 */
+	public static int[][] constructMatrix(int version, CorrectionLvl level, int mask) 
 	{
 		// Step 1 : Create a matrix of correct size
 		int[][] matrix = initializeMatrix(version);
@@ -130,7 +190,7 @@ public class MatrixConstruction
 		// Step 2 : Add finder patterns and separators to all but the bottom-right corner of the matrix 
 		addFinderPatterns(matrix);
 
-		// Step 3 : Add an alignement pattern to the bottom-right corner of the matrix
+		// Step 3 : Add the alignement patterns, from version 2 on
 		addAlignmentPatterns(matrix, version);
 		
 		// Step 4 : Add two timing patterns to the matrix
@@ -140,17 +200,58 @@ public class MatrixConstruction
 		addDarkModule(matrix);
 
 		// Step 6 : Add format information around the finder patterns
-		addFormatInformation(matrix, mask);
+		addFormatInformation(matrix, level, mask);
+		
+		// Step 7 : Add version information next to the top-right and bottom-left finder patterns, from version 7 on
+		addVersionInformation(matrix, version);
 		
 		return matrix;
 	}
 
+	/**
+	 * Create a bit-packed matrix ready to accept data for a given version and mask.
+	 * The modules set by constructMatrix are the reserved modules of the returned matrix.
+	 * The matrix is copied from a template computed once per version.
+	 * 
+	 * @param version
+	 *            the version number of QR code
+	 * @param mask
+	 *            the mask id to use to mask the data modules, between 0 and 7
+	 * @return the qrcode with the patterns and format information modules
+	 *         initialized and reserved.
+	 * @throws IllegalArgumentException
+	 *             if the mask is not between 0 and 7
+	 */
+	public static QRMatrix constructQRMatrix(int version, int mask) 
+	{
+		return constructQRMatrix(version, CorrectionLvl.L, mask);
+	}
+	
+	/**
+	 * Create a bit-packed matrix ready to accept data for a given version, error correction level and mask.
+	 * 
+	 * @param version
+	 *            the version number of QR code
+	 * @param level
+	 *            the error correction level
+	 * @param mask
+	 *            the mask id to use to mask the data modules, between 0 and 7
+	 * @return the qrcode with the patterns, format and version information modules
+	 *         initialized and reserved.
+	 * @throws IllegalArgumentException
+	 *             if the mask is not between 0 and 7
+	 */
+	public static QRMatrix constructQRMatrix(int version, CorrectionLvl level, int mask) 
+	{
+		return QRTemplate.of(version, level).base(mask);
+	}
+
 	/**
 	 * Create an empty 2d array of integers of the size needed for a QR code of the
 	 * given version
 	 * 
 	 * @param version
-	 *            the version number of the qr code (has to be between 1 and 4
+	 *            the version number of the qr code (has to be between 1 and 40
 	 *            included
 	 * @return an empty matrix
 	 */
@@ -225,22 +326,33 @@ public class MatrixConstruction
 	}
 
 	/**
-	 * Add the alignment pattern if needed, does nothing for version 1
+	 * Add the alignment patterns if needed, does nothing for version 1
 	 * 
 	 * @param matrix
 	 *            The 2D array to modify
 	 * @param version
-	 *            the version number of the QR code needs to be between 1 and 4
-	 *            included
+	 *            the version number of the QR code, between 1 and 40
 	 */
 	public static void addAlignmentPatterns(int[][] matrix, int version) 
 	{
-		// As long as the version number is strictly larger than 1
-		if (version > 1) 
+		// Every pair of coordinates of the table is the centre of an alignment pattern
+		int[] positions = QRCodeInfos.getAlignmentPatternPositions(version);
+		int last = positions.length - 1;
+		
+		for (int i = 0; i < positions.length; i++)
 		{
-			int distanceFromCorner = 9; // The top-left corner of the alignement pattern is always placed 9 squares from the bottom-right corner
-			
-			placePattern(alignementPattern, matrix, matrix.length - distanceFromCorner, matrix.length - distanceFromCorner); 
+			for (int j = 0; j < positions.length; j++)
+			{
+				// Skip the three corners taken by the finder patterns
+				if ((i == 0 && j == 0) || (i == 0 && j == last) || (i == last && j == 0))
+				{
+					continue;
+				}
+				
+				int halfSize = alignementPattern.length / 2; // The pattern is placed by its top-left corner
+				
+				placePattern(alignementPattern, matrix, positions[i] - halfSize, positions[j] - halfSize);
+			}
 		}
 	}
 
@@ -305,9 +417,24 @@ public class MatrixConstruction
 	 *            the mask id
 	 */
 	public static void addFormatInformation(int[][] matrix, int mask) 
+	{
+		addFormatInformation(matrix, CorrectionLvl.L, mask);
+	}
+	
+	/**
+	 * Add the format information of the given error correction level to the matrix
+	 * 
+	 * @param matrix
+	 *            the 2-dimensional array representing the QR code to modify
+	 * @param level
+	 *            the error correction level
+	 * @param mask
+	 *            the mask id
+	 */
+	public static void addFormatInformation(int[][] matrix, CorrectionLvl level, int mask) 
 	{
 		// Conversion from booleans to a sequence of ints (black and white squares)
-		boolean[] formatSequence = QRCodeInfos.getFormatSequence(mask);
+		boolean[] formatSequence = QRCodeInfos.getFormatSequence(level, mask);
 		
 		int [] bitSequence = new int[formatSequence.length];
 		
@@ -373,6 +500,40 @@ public class MatrixConstruction
 		
 	}
 
+	/**
+	 * Add the version information to the matrix, does nothing below version 7.
+	 * 
+	 * The 18 bits are written twice, in a 6x3 block above the bottom-left finder pattern
+	 * and in a 3x6 block left of the top-right finder pattern, least significant bit first.
+	 * 
+	 * @param matrix
+	 *            the 2-dimensional array representing the QR code to modify
+	 * @param version
+	 *            the version number of the QR code
+	 */
+	public static void addVersionInformation(int[][] matrix, int version) 
+	{
+		if (version < 7)
+		{
+			return;
+		}
+		
+		boolean[] versionSequence = QRCodeInfos.getVersionSequence(version);
+		
+		int blockStart = matrix.length - (finderPattern.length + 4); // The blocks start 3 modules before the separators
+		
+		for (int i = 0; i < versionSequence.length; i++)
+		{
+			// Least significant bit first, three bits per line of the block
+			int module = versionSequence[versionSequence.length - 1 - i] ? B : W;
+			int a = blockStart + i % 3;
+			int b = i / 3;
+			
+			matrix[a][b] = module; // Top-right block
+			matrix[b][a] = module; // Bottom-left block
+		}
+	}
+
 	/*
 	 * =======================================================================
 	 * ****************************** PART 3 *********************************
@@ -397,6 +558,34 @@ public class MatrixConstruction
 		
 		int module = dataBit ? B : W; // If dataBit is true, module is black, otherwise it's white.
 		
+		// Applying the mask
+		if (isMasked(x, y, masking))
+		{
+			if (module == B) 
+			{
+				module = W;
+			}
+			else 
+			{
+				module = B;
+			}
+		}
+ 		return module; 
+	}
+	
+	/**
+	 * Tells whether the given mask inverts the module at the given coordinates
+	 * 
+	 * @param x
+	 *            x-coordinate
+	 * @param y
+	 *            y-coordinate
+	 * @param masking
+	 *            the mask id. Any other value than 0 to 7 masks nothing
+	 * @return true if the module is inverted by the mask
+	 */
+	static boolean isMasked(int x, int y, int masking)
+	{
 		// Setting up the the masks
 		boolean maskedModule = false;
 		switch(masking)
@@ -410,20 +599,7 @@ public class MatrixConstruction
 		case 6: { maskedModule = ((((x * y) % 2) + ((x * y) % 3)) % 2 == 0); break;}
 		case 7: { maskedModule = ((((x + y) % 2) + ((x * y) % 3)) % 2 == 0); break;}
 		}
-
-		// Applying the mask
-		if (maskedModule)
-		{
-			if (module == B) 
-			{
-				module = W;
-			}
-			else 
-			{
-				module = B;
-			}
-		}
- 		return module; 
+		return maskedModule;
 	}
 
 	/** Checks to see if the entry at position posX, posY is coloured in.
@@ -531,6 +707,75 @@ public class MatrixConstruction
 		}
 	}
 
+	/**
+	 * Add the data bits into the bit-packed QR code matrix, skipping its reserved modules.
+	 * The modules are visited in the same zig-zag order as addDataInformation(int[][], boolean[], int).
+	 * 
+	 * @param matrix
+	 *            the bit-packed matrix where the bits needs to be added
+	 * @param data
+	 *            the data to add
+	 * @param mask
+	 *            the mask id
+	 */
+	public static void addDataInformation(QRMatrix matrix, boolean[] data, int mask) 
+	{
+		int size = matrix.size();
+		int[] dataModules = dataModuleOrder(matrix);
+		
+		for (int dataIndex = 0; dataIndex < dataModules.length; dataIndex++)
+		{
+			int x = dataModules[dataIndex] / size;
+			int y = dataModules[dataIndex] % size;
+			
+			// Once the message is placed, the remaining modules get false
+			boolean dataBit = dataIndex < data.length && data[dataIndex];
+			
+			matrix.set(x, y, dataBit ^ isMasked(x, y, mask));
+		}
+	}
+	
+	/**
+	 * List the modules that are not reserved, in the "zig-zag" order in which the data is placed.
+	 * 
+	 * @param matrix
+	 *            a matrix whose function patterns are reserved
+	 * @return the coordinates of the data modules, encoded as x * size + y
+	 */
+	static int[] dataModuleOrder(QRMatrix matrix)
+	{
+		int size = matrix.size();
+		int[] dataModules = new int[size * size];
+		int count = 0;
+		
+		boolean rising = true; // A flag that communicates whether we should be writing upwards or downwards through the matrix
+		
+		for (int x = size - 1; x >= 0; x -= 2) // Go from right to left
+		{
+			if (x == 6) // Skip the vertical timing pattern
+			{
+				x--;
+			}
+			
+			for (int i = 0; i < size; i++)
+			{
+				int y = rising ? size - 1 - i : i;
+				
+				for (int z = 0; z <= 1; z++) // The zigzag shifts the x coordinate one to the left
+				{
+					if (!matrix.isReserved(x - z, y))
+					{
+						dataModules[count++] = (x - z) * size + y;
+					}
+				}
+			}
+			
+			rising = !rising; // Once we reach the top / bottom of the matrix, now go the other way.
+		}
+		
+		return Arrays.copyOf(dataModules, count);
+	}
+
 	/*
 	 * =======================================================================
 	 * 
@@ -557,6 +802,42 @@ public class MatrixConstruction
 		return renderQRCodeMatrix(version, data, mask);
 	}
 
+	/**
+	 * Create the bit-packed matrix of a QR code with the given data.
+	 * 
+	 * The mask is computed automatically so that it provides the least penalty
+	 * 
+	 * @param version
+	 *            The version of the QR code
+	 * @param data
+	 *            The data to be written on the QR code
+	 * @return The matrix of the QR code
+	 */
+	public static QRMatrix renderQRMatrix(int version, boolean[] data) {
+
+		return renderQRMatrix(version, CorrectionLvl.L, data);
+	}
+
+	/**
+	 * Create the bit-packed matrix of a QR code with the given data and error correction level.
+	 * 
+	 * The mask is computed automatically so that it provides the least penalty
+	 * 
+	 * @param version
+	 *            The version of the QR code
+	 * @param level
+	 *            The error correction level the data was encoded with
+	 * @param data
+	 *            The data to be written on the QR code
+	 * @return The matrix of the QR code
+	 */
+	public static QRMatrix renderQRMatrix(int version, CorrectionLvl level, boolean[] data) {
+
+		int mask = findBestMasking(version, level, data);
+
+		return renderQRMatrix(version, level, data, mask);
+	}
+
 	/**
 	 * Find the best mask to apply to a QRcode so that the penalty score is
 	 * minimized. Compute the penalty score with evaluate
@@ -565,21 +846,49 @@ public class MatrixConstruction
 	 * @return the mask number that minimize the penalty
 	 */
 	public static int findBestMasking(int version, boolean[] data) 
+	{
+		return findBestMasking(version, CorrectionLvl.L, data);
+	}
+	
+	/**
+	 * Find the best mask for a QR code of the given error correction level.
+	 * The level changes the format information, hence the penalty score.
+	 * 
+	 * @param version
+	 * @param level
+	 * @param data
+	 * @return the mask number that minimize the penalty
+	 */
+	public static int findBestMasking(int version, CorrectionLvl level, boolean[] data) 
+	{
+		// Large matrices are worth scoring on several cores
+		if (version >= PARALLEL_MASKING_MIN_VERSION)
+		{
+			return findBestMaskingInParallel(version, level, data);
+		}
+		
+		return findBestMaskingSequentially(version, level, data);
+	}
+	
+	/**
+	 * Same as findBestMasking, but the 8 candidate matrices are always built and scored one after the other.
+	 * 
+	 * @param version
+	 * @param level
+	 * @param data
+	 * @return the mask number that minimize the penalty
+	 */
+	static int findBestMaskingSequentially(int version, CorrectionLvl level, boolean[] data)
 	{
 		int bestMask = 0;
 		int penaltyScore = 0;
 		int lowestPenaltyScore = 9999999; // Set a high number by default so subsequent score must be lower than the first
 		
 		// Try all 8 masks out (0 to 7)
-		for (int mask = 0; mask < 8; mask++)
+		for (int mask = 0; mask < NUMBER_OF_MASKS; mask++)
 		{
-			// Construct and add information to the matrix
-			int[][] matrix = constructMatrix(version, mask);
-			
-			addDataInformation(matrix, data, mask);
-			
 			// Calculate the penalty score of the matrix
-			penaltyScore = evaluate(matrix);
+			penaltyScore = maskPenaltyScore(version, level, data, mask);
 			
 			// Determine if this mask is better than the previous ones
 			if (penaltyScore < lowestPenaltyScore)
@@ -593,221 +902,176 @@ public class MatrixConstruction
 	}
 	
 	/**
-	 * Count the number of consecutive modules along a certain direction in a matrix, where the minimum number of consecutive modules 
-	 * that are counted is specified.
+	 * Same as findBestMasking, but the 8 candidate matrices are always built and scored in parallel.
+	 * Ties are resolved in favour of the lowest mask number, exactly like the sequential search.
 	 * 
-	 * @param matrix
-	 * 			the matrix whose consecutive modules are to be counted
-	 * @param dir
-	 * 			the modules are to be counted horizontally or vertically
-	 * @param minConsecutiveModules
-	 * 			there must be this many consecutive modules for those to be added up in the total 
-	 * @return
-	 * 			the number of consecutive modules
+	 * @param version
+	 * @param level
+	 * @param data
+	 * @return the mask number that minimize the penalty
 	 */
-	private static int countConsecutiveModules(int[][] matrix, direction dir, int minConsecutiveModules)
+	static int findBestMaskingInParallel(int version, CorrectionLvl level, boolean[] data)
 	{
-		int penaltyScore = 0; 	// Type 1 penalty score to be returned
+		int[] penaltyScores = new int[NUMBER_OF_MASKS];
 		
-		int prevColour = T;		// Stores the previous colour that was looked at
-		int currColour = T;		// Stores the current colour that is being looked at
+		// Every task writes to its own slot, so no synchronisation is needed
+		IntStream.range(0, NUMBER_OF_MASKS).parallel().forEach(mask -> penaltyScores[mask] = maskPenaltyScore(version, level, data, mask));
 		
-		int nbConsecutiveModules = 1;	// Counts how many consecutive same-colour modules have been counted before swapping to another colour
-		
-		// Loop through the matrix
-		for (int y = 0; y < matrix.length; y++) 
+		int bestMask = 0;
+		for (int mask = 1; mask < NUMBER_OF_MASKS; mask++)
 		{
-			for (int x = 0; x < matrix.length; x++)
-			{	
-				// The meaning of x and y is swapped depending on whether we want to count horizontal or vertical cons. modules
-				if (dir == direction.HORIZONTALLY)
-				{
-					currColour = matrix[y][x];
-				}
-				else if (dir == direction.VERTICALLY)
-				{
-					currColour = matrix[x][y];
-				}
-				
-				// Check if the current and previous colours are the same
-				if (prevColour == currColour)
-				{
-					++nbConsecutiveModules;
-				}
-				else // If they're not, reset the count to 1
-				{
-					nbConsecutiveModules = 1;
-				}
-				prevColour = currColour; // Next loop we want prevColour to refer to the colour we're currently considering
-				
-				// If there are exactly minConsecutiveModules consecutive modules, add that number to our count
-				if (nbConsecutiveModules == minConsecutiveModules)
-				{
-					penaltyScore += minConsecutiveModules;
-				}
-				else if (nbConsecutiveModules > minConsecutiveModules) // Any than that more simply adds 1
-				{
-					penaltyScore++;
-				}
+			if (penaltyScores[mask] < penaltyScores[bestMask])
+			{
+				bestMask = mask;
 			}
-			prevColour = T; 			// We don't want same-colour count to carry over to the next row or column
-			nbConsecutiveModules = 1;	// Reset our count
 		}
-			
-		return penaltyScore;
+		
+		return bestMask;
 	}
-
+	
 	/**
-	 * Counts the number of same-colour 2x2 squares of modules. The squares may superimpose each other.
-	 * Then adds three penalty score per square counted.
+	 * Construct the matrix for the given mask, add the data to it and compute its penalty score
 	 * 
-	 * @param matrix
-	 * 			the matrix whose 2x2 squares of modules are to be counted;
-	 * @return
-	 * 			the penalty score determined by the number of squares
+	 * @param version
+	 * @param level
+	 * @param data
+	 * @param mask
+	 * @return the penalty score of the masked matrix
 	 */
-	private static int count2x2Squares(int[][] matrix)
+	private static int maskPenaltyScore(int version, CorrectionLvl level, boolean[] data, int mask)
 	{
-		int penaltyScore = 0; // Type 2 penalty score to be returned
-		
-		// Loop through the matrix, stopping 1 before the bottom and right sides
-		for (int x = 0; x < matrix.length - 1; x++)
-		{
-			for (int y = 0; y < matrix.length - 1; y++)
-			{
-				// x and y are the top-left corner of the 2x2 square
-				if ((matrix[x][y] == matrix[x][y + 1]) 
-						&& (matrix[x][y + 1] == matrix[x + 1][y]) 
-						&& (matrix[x + 1][y] == matrix[x + 1][y + 1])) // Only three comparisons needed because equality is a transitive relation
-				{
-					penaltyScore += 3; // Add three penalty score per same-colour 2x2 square
-				}
-			}
-		}
-	
-		return penaltyScore; 
+		return evaluate(renderQRMatrix(version, level, data, mask));
 	}
 	
+	/*
+	 * Penalty type 3 sequences, as 11-bit windows read from left to right (most significant bit first).
+	 * Each sequence has a window for its black modules and one for its white modules.
+	 * 
+	 * Sequence 1 : W W W W B W B B B W B
+	 * Sequence 2 : B W B B B W B W W W W
+	 */
+	private static final int SEQUENCE_LENGTH = 11;
+	private static final int SEQUENCE_WINDOW = (1 << SEQUENCE_LENGTH) - 1;
+	private static final int SEQUENCE_1_BLACK = 0b000_0101_1101;
+	private static final int SEQUENCE_1_WHITE = SEQUENCE_1_BLACK ^ SEQUENCE_WINDOW;
+	private static final int SEQUENCE_2_BLACK = 0b101_1101_0000;
+	private static final int SEQUENCE_2_WHITE = SEQUENCE_2_BLACK ^ SEQUENCE_WINDOW;
+	
 	/**
-	 * Searches for a specified illegal sequence along a certain direction. Returns 40 times the number of such sequences found
-	 * in the matrix as a penalty score.
+	 * Scores penalty types 1 and 3 along every line of the matrix in the given direction, in a single pass.
+	 * When going horizontally, penalty type 2 and the number of black modules (for penalty type 4) are gathered too.
+	 * 
+	 * Type 1 : every run of at least 3 same-colour modules scores its length.
+	 * Type 3 : every occurrence of one of the two illegal sequences scores 40. The matrix is considered to be 
+	 * surrounded by a white border, which is shifted into the windows instead of being copied.
+	 * 
 	 * @param matrix
-	 * @param sequence
-	 * 			The illegal sequence
+	 * 			the matrix to score
 	 * @param dir
-	 * 			Search horizontally or vertically
+	 * 			score the lines horizontally (matrix[i]) or vertically (matrix[..][i])
+	 * @param blackModules
+	 * 			when going horizontally, receives the number of black modules in its first slot
 	 * @return
-	 * 		the penalty score determined by the number of illegal sequences found in the matrix
+	 * 			the penalty score of the lines
 	 */
-	private static int countIllegalSequence(int[][] matrix, int[] sequence, direction dir)
+	private static int scoreLines(int[][] matrix, direction dir, int[] blackModules)
 	{
-		int penaltyScore = 0; // Penalty score type 3
-		
-		int[][] whiteBorderMatrix = new int[matrix.length + 2][matrix.length + 2]; // Add space for a white border (+1 on each side)
-		
-		// If the sequence cannot fit in the white border matrix, return 0
-		if (sequence.length > whiteBorderMatrix.length) 
-		{
-			return 0;
-		}
+		boolean horizontally = (dir == direction.HORIZONTALLY);
 		
-		// Fill the white border matrix with the contents of matrix, with white around the borders
-		for (int y = 0; y < whiteBorderMatrix.length; y++) 
-		{
-			for (int x = 0; x < whiteBorderMatrix.length; x++)
-			{
-				// If a border position, add white
-				if ((x == 0) || (y == 0) || (x == whiteBorderMatrix.length - 1) || (y == whiteBorderMatrix.length - 1))
-				{
-					whiteBorderMatrix[y][x] = W;
-				}
-				else // Otherwise, add the contents of matrix
-				{
-					whiteBorderMatrix[y][x] = matrix[y - 1][x - 1]; // Position (1, 1) of wBMatrix takes contents of position (0, 0) of matrix
-				}		
-			}
-		}
+		int penaltyScore = 0;
 		
-		// Search for the sequence in the matrix, horizontally or vertically
-		boolean containsSequence = true; // By default we assume that the row / column contains the sequence.
-		switch(dir)
+		for (int line = 0; line < matrix.length; line++)
 		{
-			case HORIZONTALLY : 
+			int prevColour = T;				// The previous colour, which does not carry over from the previous line
+			int nbConsecutiveModules = 1;	// Length of the current run of same-colour modules
+			
+			// Sliding windows over the last 11 modules, starting with the white border
+			int blackWindow = 0;
+			int whiteWindow = 1;
+			int windowLength = 1;
+			
+			for (int k = 0; k <= matrix.length; k++)
 			{
-				for (int y = 0; y < whiteBorderMatrix.length; y++)
+				int currColour = W; // Past the last module, only the white border is left
+				
+				if (k < matrix.length)
 				{
-					for (int x = 0; x < whiteBorderMatrix.length - sequence.length + 1; x++) // The horizontal sequence must be able to fit between x and the edge of the matrix.
+					currColour = horizontally ? matrix[line][k] : matrix[k][line];
+					
+					// PENALTY TYPE 1 : consecutive modules
+					if (prevColour == currColour)
+					{
+						++nbConsecutiveModules;
+					}
+					else
+					{
+						nbConsecutiveModules = 1;
+					}
+					prevColour = currColour;
+					
+					if (nbConsecutiveModules == 3)
+					{
+						penaltyScore += 3;
+					}
+					else if (nbConsecutiveModules > 3)
+					{
+						penaltyScore++;
+					}
+					
+					if (horizontally)
 					{
-						for (int j = x, k = 0; j < x + sequence.length; j++, k++) // Start at x, look at the sequence.length next positions
+						// PENALTY TYPE 2 : 2x2 squares, whose top-left corner is (line, k)
+						if (line < matrix.length - 1 && k < matrix.length - 1
+								&& currColour == matrix[line][k + 1]
+								&& currColour == matrix[line + 1][k]
+								&& currColour == matrix[line + 1][k + 1])
 						{
-							if (whiteBorderMatrix[y][j] != sequence[k])
-							{
-								containsSequence = false;
-							}
+							penaltyScore += 3;
 						}
 						
-						if (containsSequence)
+						// PENALTY TYPE 4 : count the black modules
+						if (currColour == B)
 						{
-							penaltyScore += 40;
+							blackModules[0]++;
 						}
-						containsSequence = true; // By default we assume true
 					}
 				}
-				break;
-			}
-			case VERTICALLY : 
-			{
-				for (int y = 0; y < whiteBorderMatrix.length - sequence.length + 1; y++) // The vertical sequence must be able to fit between y and the edge of the matrix
+				
+				// PENALTY TYPE 3 : shift the module into the windows, then compare them with the sequences
+				blackWindow = ((blackWindow << 1) | (currColour == B ? 1 : 0)) & SEQUENCE_WINDOW;
+				whiteWindow = ((whiteWindow << 1) | (currColour == W ? 1 : 0)) & SEQUENCE_WINDOW;
+				windowLength++;
+				
+				if (windowLength >= SEQUENCE_LENGTH)
 				{
-					for (int x = 0; x < whiteBorderMatrix.length; x++)
+					if (blackWindow == SEQUENCE_1_BLACK && whiteWindow == SEQUENCE_1_WHITE)
 					{
-						for (int j = y, k = 0; j < y + sequence.length; j++, k++) // Start at y, look at the sequence.length next positions
-						{
-							if (whiteBorderMatrix[j][x] != sequence[k])
-							{
-								containsSequence = false;
-							}
-						}
-						
-						if (containsSequence)
-						{
-							penaltyScore += 40;
-						}
-						containsSequence = true; // By default we assume true
+						penaltyScore += 40;
+					}
+					if (blackWindow == SEQUENCE_2_BLACK && whiteWindow == SEQUENCE_2_WHITE)
+					{
+						penaltyScore += 40;
 					}
 				}
-				break;
 			}
 		}
+		
 		return penaltyScore;
 	}
 	
 	/**
 	 * Computes penalty score according to a formula. 
-	 * @param matrix
+	 * @param nModules
+	 * 		the total number of modules
+	 * @param bModules
+	 * 		the number of black modules
 	 * @return
 	 * 		the penalty score determined by the formula
 	 */
-	private static int penaltyFormula(int[][] matrix)
+	private static int penaltyFormula(int nModules, int bModules)
 	{
 		int penaltyScore = 0;
 		
-		// Total number of modules
-		int nModules = matrix.length * matrix.length; // Square formula
-		
-		// Total number of black modules
-		int bModules = 0;
-		for (int y = 0; y < matrix.length; y++)
-		{
-			for (int x = 0; x < matrix.length; x++)
-			{
-				if (matrix[y][x] == B)
-				{
-					bModules++;
-				}
-			}
-		}
-		
 		// Percentage of black modules
 		double blackModulesPercent = ((double) bModules / nModules) * 100;
 		
@@ -841,27 +1105,150 @@ public class MatrixConstruction
 	 */
 	public static int evaluate(int[][] matrix) 
 	{
+		int[] blackModules = new int[1]; // Filled by the horizontal pass
+		
 		int penaltyScore = 0;
 		
-		// PENALTY TYPE 1 : If there are at least 3 modules of the same colour in a row/col : +1 penalty score for each consecutive module
-		penaltyScore += countConsecutiveModules(matrix, direction.HORIZONTALLY, 3);
-		penaltyScore += countConsecutiveModules(matrix, direction.VERTICALLY, 3);
+		// PENALTY TYPES 1 to 3 : one pass along the rows, one pass along the columns
+		penaltyScore += scoreLines(matrix, direction.HORIZONTALLY, blackModules);
+		penaltyScore += scoreLines(matrix, direction.VERTICALLY, null);
+		
+		// PENALTY TYPE 4 : Formula
+		penaltyScore += penaltyFormula(matrix.length * matrix.length, blackModules[0]);
+		
+		return penaltyScore;
+	}
+	
+	/**
+	 * Compute the penalty score of a bit-packed matrix. The score is the same as the one of the matrix in int[][] form,
+	 * but the rules are applied to 64 modules at a time.
+	 * 
+	 * @param matrix:
+	 *            the QR code in bit-packed form
+	 * @return the penalty score obtained by the QR code, lower the better
+	 */
+	public static int evaluate(QRMatrix matrix) 
+	{
+		int size = matrix.size();
 		
-		// PENALTY TYPE 2 : For every 2x2 square of same-colour modules : +3 penalty score
-		penaltyScore += count2x2Squares(matrix);
+		// The columns of the matrix are the lines of its transpose
+		QRMatrix transposed = matrix.transposed();
 		
-		// PENALTY TYPE 3 : Search for sequences : +40 penalty score
-		int[] sequence1 = {W, W, W, W, B, W, B, B, B, W, B};
-		int[] sequence2 = {B, W, B, B, B, W, B, W, W, W, W};
+		int penaltyScore = 0;
 		
-		penaltyScore += countIllegalSequence(matrix, sequence1, direction.HORIZONTALLY);
-		penaltyScore += countIllegalSequence(matrix, sequence1, direction.VERTICALLY);
-		penaltyScore += countIllegalSequence(matrix, sequence2, direction.HORIZONTALLY);
-		penaltyScore += countIllegalSequence(matrix, sequence2, direction.VERTICALLY);
+		for (int line = 0; line < size; line++)
+		{
+			// PENALTY TYPES 1 and 3 : horizontally and vertically
+			penaltyScore += scorePackedLine(matrix, line);
+			penaltyScore += scorePackedLine(transposed, line);
+			
+			// PENALTY TYPE 2 : 2x2 squares whose top-left corner is on this line
+			if (line < size - 1)
+			{
+				penaltyScore += 3 * count2x2Squares(matrix, line);
+			}
+		}
 		
 		// PENALTY TYPE 4 : Formula
-		penaltyScore += penaltyFormula(matrix);
+		penaltyScore += penaltyFormula(size * size, matrix.darkModules());
 		
 		return penaltyScore;
 	}
+	
+	/**
+	 * Scores penalty types 1 and 3 along line x of a bit-packed matrix, 64 modules at a time.
+	 * 
+	 * @param matrix
+	 * @param x
+	 * 			the line to score
+	 * @return the penalty score of the line
+	 */
+	private static int scorePackedLine(QRMatrix matrix, int x)
+	{
+		int size = matrix.size();
+		int penaltyScore = 0;
+		
+		for (int y = 0; y < size; y += Long.SIZE)
+		{
+			// PENALTY TYPE 1 : a module is part of a run of at least 3 modules if one of the three triples containing it is uniform.
+			// Each such module scores 1, hence a run of length n scores n.
+			long inRun = uniformTriples(matrix, x, y) | uniformTriples(matrix, x, y - 1) | uniformTriples(matrix, x, y - 2);
+			penaltyScore += Long.bitCount(inRun & validBits(y, 0, size - 1));
+			
+			// PENALTY TYPE 3 : bit j stands for the sequence starting at module y + j - 1, where module -1 is the white border.
+			// The sequence must end at the latest on the white border past the last module.
+			long sequence1 = validBits(y - 1, -1, size - SEQUENCE_LENGTH + 1);
+			long sequence2 = sequence1;
+			
+			for (int k = 0; k < SEQUENCE_LENGTH; k++)
+			{
+				long modules = matrix.lineBits(x, y - 1 + k);
+				
+				sequence1 &= isBlackInSequence(SEQUENCE_1_BLACK, k) ? modules : ~modules;
+				sequence2 &= isBlackInSequence(SEQUENCE_2_BLACK, k) ? modules : ~modules;
+			}
+			
+			penaltyScore += 40 * (Long.bitCount(sequence1) + Long.bitCount(sequence2));
+		}
+		
+		return penaltyScore;
+	}
+	
+	/**
+	 * Bit j of the result is set if modules y + j, y + j + 1 and y + j + 2 of line x exist and have the same colour
+	 */
+	private static long uniformTriples(QRMatrix matrix, int x, int y)
+	{
+		long first = matrix.lineBits(x, y);
+		long second = matrix.lineBits(x, y + 1);
+		long third = matrix.lineBits(x, y + 2);
+		
+		return ~(first ^ second) & ~(second ^ third) & validBits(y, 0, matrix.size() - 3);
+	}
+	
+	/**
+	 * Counts the same-colour 2x2 squares whose top-left corner is on line x of a bit-packed matrix
+	 */
+	private static int count2x2Squares(QRMatrix matrix, int x)
+	{
+		int size = matrix.size();
+		int squares = 0;
+		
+		for (int y = 0; y < size; y += Long.SIZE)
+		{
+			long topLeft = matrix.lineBits(x, y);
+			long topRight = matrix.lineBits(x, y + 1);
+			long bottomLeft = matrix.lineBits(x + 1, y);
+			long bottomRight = matrix.lineBits(x + 1, y + 1);
+			
+			long differences = (topLeft ^ topRight) | (topLeft ^ bottomLeft) | (topLeft ^ bottomRight);
+			
+			squares += Long.bitCount(~differences & validBits(y, 0, size - 2));
+		}
+		
+		return squares;
+	}
+	
+	/**
+	 * @return true if module k (from the left) of the 11-module sequence given by its black window is black
+	 */
+	private static boolean isBlackInSequence(int blackWindow, int k)
+	{
+		return ((blackWindow >>> (SEQUENCE_LENGTH - 1 - k)) & 1) != 0;
+	}
+	
+	/**
+	 * Bit j of the result is set if from <= position + j <= to
+	 */
+	private static long validBits(int position, int from, int to)
+	{
+		int first = Math.max(from - position, 0);
+		int last = Math.min(to - position, Long.SIZE - 1);
+		
+		if (first > last)
+		{
+			return 0L;
+		}
+		return (-1L >>> (Long.SIZE - 1 - last)) & (-1L << first);
+	}
 }
@@ -0,0 +1,278 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package qrcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import qrcode.QRCodeInfos.CorrectionLvl;
+
+public final class QRCodeBatch
+{
+	/*
+	 * Below this many inputs, a task renders its QR codes itself instead of splitting further
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 16;
+
+	/*
+	 * Version of a render task whose QR codes each get the smallest version holding their message
+	 */
+	private static final int SMALLEST_VERSION = 0;
+
+	private QRCodeBatch() {}
+
+	/**
+	 * Encode and render many QR codes of the same version on the common fork-join pool.
+	 * Each QR code gets the mask with the lowest penalty score.
+	 *
+	 * @param inputs
+	 *            the messages to encode
+	 * @param version
+	 *            the version of every QR code
+	 * @return the bit-packed matrices of the QR codes, in the same order as the inputs
+	 */
+	public static List<QRMatrix> render(List<String> inputs, int version)
+	{
+		return render(inputs, version, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Encode and render many QR codes of the same version on the given fork-join pool.
+	 * Each QR code gets the mask with the lowest penalty score.
+	 *
+	 * @param inputs
+	 *            the messages to encode
+	 * @param version
+	 *            the version of every QR code
+	 * @param pool
+	 *            the pool on which the QR codes are rendered
+	 * @return the bit-packed matrices of the QR codes, in the same order as the inputs
+	 */
+	public static List<QRMatrix> render(List<String> inputs, int version, ForkJoinPool pool)
+	{
+		return render(inputs, version, CorrectionLvl.L, pool);
+	}
+
+	/**
+	 * Encode and render many QR codes of the same version and error correction level on the given fork-join pool.
+	 * Each QR code gets the mask with the lowest penalty score.
+	 *
+	 * @param inputs
+	 *            the messages to encode
+	 * @param version
+	 *            the version of every QR code
+	 * @param level
+	 *            the error correction level of every QR code
+	 * @param pool
+	 *            the pool on which the QR codes are rendered
+	 * @return the bit-packed matrices of the QR codes, in the same order as the inputs
+	 */
+	public static List<QRMatrix> render(List<String> inputs, int version, CorrectionLvl level, ForkJoinPool pool)
+	{
+		// Fail fast on an unsupported version rather than in every worker
+		QRCodeInfos.getCodeWordsLength(version, level);
+
+		QRMatrix[] matrices = new QRMatrix[inputs.size()];
+
+		pool.invoke(new RenderTask(inputs, version, level, matrices, 0, inputs.size()));
+
+		return Arrays.asList(matrices);
+	}
+
+	/**
+	 * Encode and render many QR codes of the same error correction level on the common fork-join pool.
+	 * Each message is split into numeric, alphanumeric and byte segments and gets the smallest version holding it whole,
+	 * so that digits and uppercase text make smaller QR codes, cheaper to mask and score.
+	 * Each QR code gets the mask with the lowest penalty score.
+	 *
+	 * @param inputs
+	 *            the messages to encode
+	 * @param level
+	 *            the error correction level of every QR code
+	 * @return the bit-packed matrices of the QR codes, in the same order as the inputs
+	 * @throws IllegalArgumentException
+	 *             if a message does not fit in version 40
+	 */
+	public static List<QRMatrix> render(List<String> inputs, CorrectionLvl level)
+	{
+		return render(inputs, level, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Encode and render many QR codes of the same error correction level on the given fork-join pool.
+	 * Each message is split into numeric, alphanumeric and byte segments and gets the smallest version holding it whole.
+	 * Each QR code gets the mask with the lowest penalty score.
+	 *
+	 * @param inputs
+	 *            the messages to encode
+	 * @param level
+	 *            the error correction level of every QR code
+	 * @param pool
+	 *            the pool on which the QR codes are rendered
+	 * @return the bit-packed matrices of the QR codes, in the same order as the inputs
+	 * @throws IllegalArgumentException
+	 *             if a message does not fit in version 40
+	 */
+	public static List<QRMatrix> render(List<String> inputs, CorrectionLvl level, ForkJoinPool pool)
+	{
+		QRMatrix[] matrices = new QRMatrix[inputs.size()];
+
+		pool.invoke(new RenderTask(inputs, SMALLEST_VERSION, level, matrices, 0, inputs.size()));
+
+		return Arrays.asList(matrices);
+	}
+
+	/**
+	 * Decode many QR codes on the common fork-join pool and check that each holds its message without any correction.
+	 *
+	 * @param matrices
+	 *            the QR codes
+	 * @param expected
+	 *            the message of each QR code, in the same order
+	 * @return the indices of the QR codes that do not read back to their message, in increasing order
+	 */
+	public static List<Integer> verify(List<QRMatrix> matrices, List<String> expected)
+	{
+		return verify(matrices, expected, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Decode many QR codes on the given fork-join pool and check that each holds its message without any correction.
+	 *
+	 * @param matrices
+	 *            the QR codes
+	 * @param expected
+	 *            the message of each QR code, in the same order
+	 * @param pool
+	 *            the pool on which the QR codes are decoded
+	 * @return the indices of the QR codes that do not read back to their message, in increasing order
+	 */
+	public static List<Integer> verify(List<QRMatrix> matrices, List<String> expected, ForkJoinPool pool)
+	{
+		if (matrices.size() != expected.size())
+		{
+			throw new IllegalArgumentException("There has to be one message per QR code");
+		}
+
+		boolean[] valid = new boolean[matrices.size()];
+
+		pool.invoke(new VerifyTask(matrices, expected, valid, 0, matrices.size()));
+
+		List<Integer> failures = new ArrayList<>();
+		for (int i = 0; i < valid.length; i++)
+		{
+			if (!valid[i])
+			{
+				failures.add(i);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Renders the inputs between from (included) and to (excluded), splitting the range in two while it is large.
+	 */
+	private static final class RenderTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> inputs;
+		private final int version;
+		private final CorrectionLvl level;
+		private final QRMatrix[] matrices;
+		private final int from;
+		private final int to;
+
+		RenderTask(List<String> inputs, int version, CorrectionLvl level, QRMatrix[] matrices, int from, int to)
+		{
+			this.inputs = inputs;
+			this.version = version;
+			this.level = level;
+			this.matrices = matrices;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= SEQUENTIAL_THRESHOLD)
+			{
+				for (int i = from; i < to; i++)
+				{
+					matrices[i] = render(inputs.get(i));
+				}
+			}
+			else // Otherwise, split the range in two halves rendered in parallel
+			{
+				int middle = (from + to) >>> 1;
+
+				invokeAll(new RenderTask(inputs, version, level, matrices, from, middle),
+						new RenderTask(inputs, version, level, matrices, middle, to));
+			}
+		}
+
+		private QRMatrix render(String input)
+		{
+			if (version == SMALLEST_VERSION)
+			{
+				int smallestVersion = DataEncoding.smallestVersion(input, level);
+				boolean[] encodedData = DataEncoding.optimalEncoding(input, smallestVersion, level);
+
+				return MatrixConstruction.renderQRMatrix(smallestVersion, level, encodedData);
+			}
+
+			boolean[] encodedData = DataEncoding.byteModeEncoding(input, version, level);
+
+			return MatrixConstruction.renderQRMatrix(version, level, encodedData);
+		}
+	}
+
+	/**
+	 * Verifies the QR codes between from (included) and to (excluded), splitting the range in two while it is large.
+	 */
+	private static final class VerifyTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final List<QRMatrix> matrices;
+		private final List<String> expected;
+		private final boolean[] valid;
+		private final int from;
+		private final int to;
+
+		VerifyTask(List<QRMatrix> matrices, List<String> expected, boolean[] valid, int from, int to)
+		{
+			this.matrices = matrices;
+			this.expected = expected;
+			this.valid = valid;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= SEQUENTIAL_THRESHOLD)
+			{
+				for (int i = from; i < to; i++)
+				{
+					valid[i] = QRDecoder.verify(matrices.get(i), expected.get(i));
+				}
+			}
+			else // Otherwise, split the range in two halves verified in parallel
+			{
+				int middle = (from + to) >>> 1;
+
+				invokeAll(new VerifyTask(matrices, expected, valid, from, middle),
+						new VerifyTask(matrices, expected, valid, middle, to));
+			}
+		}
+	}
+}
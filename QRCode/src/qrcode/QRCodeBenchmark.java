@@ -0,0 +1,247 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package qrcode;
+
+import java.util.Random;
+
+import qrcode.QRCodeInfos.CorrectionLvl;
+
+/**
+ * Measures how many QR codes per second are encoded and rendered (best mask included),
+ * for every version from 1 to 40 and every error correction level.
+ * The messages fill the whole capacity of the version, so the largest versions show the worst case.
+ * <p>
+ * A second table compares byte mode, at the smallest version holding the message, with the automatic encoding of
+ * QRCodeBatch.render(List, CorrectionLvl) : numeric, alphanumeric and byte segments at the smallest version.
+ * <p>
+ * Before measuring, it checks that the parallel and sequential mask searches choose the same masks.
+ */
+public final class QRCodeBenchmark
+{
+	/*
+	 * Parameters
+	 */
+	private static final int SEED = 42;
+	private static final int MESSAGES = 16;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final long MIN_MEASURE_NANOS = 100_000_000L;	// Every measure lasts at least 0.1 s
+
+	/*
+	 * Comparison of byte mode with the automatic encoding
+	 */
+	private static final CorrectionLvl COMPARISON_LEVEL = CorrectionLvl.M;
+	private static final int AUTOMATIC_VERSION = 0;		// Measured with the smallest version of each message
+	private static final int COMPARISON_WARMUP_MEASURES = 5;
+	private static final int TICKET_DIGITS = 40;
+	private static final String URL_PREFIX = "HTTPS://EXAMPLE.COM/T/";
+	private static final int URL_PATH_LENGTH = 24;
+
+	public static void main(String[] args)
+	{
+		Random random = new Random(SEED);
+
+		checkMaskSelection(random);
+
+		System.out.printf("version  size  %12s %12s %12s %12s  (codes/s)%n", "L", "M", "Q", "H");
+
+		for (int version = 1; version <= 40; version++)
+		{
+			StringBuilder line = new StringBuilder(String.format("%7d  %4d  ", version, QRCodeInfos.getMatrixSize(version)));
+
+			for (CorrectionLvl level : CorrectionLvl.values())
+			{
+				String[] messages = randomMessages(random, QRCodeInfos.getMaxInputLength(version, level));
+
+				line.append(String.format(" %12.0f", measure(messages, version, level)));
+			}
+
+			System.out.println(line);
+		}
+
+		System.out.println();
+		System.out.printf("%-20s %6s %12s %6s %12s  (level %s, codes/s)%n", "messages", "byte v", "byte", "auto v", "auto", COMPARISON_LEVEL);
+
+		compare("numeric tickets", numericTickets(random));
+		compare("uppercase URLs", uppercaseUrls(random));
+		compare("printable ASCII", randomMessages(random, URL_PATH_LENGTH + URL_PREFIX.length()));
+	}
+
+	/**
+	 * Check that the parallel mask search chooses the same mask as the sequential one, at every version and level,
+	 * before anything is measured : findBestMasking only takes the parallel path from version 7 on.
+	 * @throws IllegalStateException if a choice differs
+	 */
+	private static void checkMaskSelection(Random random)
+	{
+		int codes = 0;
+		for (int version = 1; version <= 40; version++)
+		{
+			for (CorrectionLvl level : CorrectionLvl.values())
+			{
+				for (String message : randomMessages(random, QRCodeInfos.getMaxInputLength(version, level)))
+				{
+					boolean[] encodedData = DataEncoding.byteModeEncoding(message, version, level);
+					int sequentialMask = MatrixConstruction.findBestMaskingSequentially(version, level, encodedData);
+					int parallelMask = MatrixConstruction.findBestMaskingInParallel(version, level, encodedData);
+					if (sequentialMask != parallelMask)
+					{
+						throw new IllegalStateException(String.format("Version %d, level %s : mask %d in sequence but %d in parallel", 
+								version, level, sequentialMask, parallelMask));
+					}
+					codes++;
+				}
+			}
+		}
+		System.out.printf("mask selection : sequential and parallel searches agree on %d codes%n%n", codes);
+	}
+
+	/**
+	 * Print one row comparing byte mode with the automatic encoding on the messages
+	 */
+	private static void compare(String name, String[] messages)
+	{
+		int byteVersion = 1;
+		int autoVersion = 1;
+		for (String message : messages)
+		{
+			byteVersion = Math.max(byteVersion, smallestByteVersion(message.length(), COMPARISON_LEVEL));
+			autoVersion = Math.max(autoVersion, DataEncoding.smallestVersion(message, COMPARISON_LEVEL));
+		}
+
+		// The sweep above only compiled byte mode : both paths get a full untimed measure first
+		for (int round = 0; round < COMPARISON_WARMUP_MEASURES; round++)
+		{
+			measure(messages, byteVersion, COMPARISON_LEVEL);
+			measure(messages, AUTOMATIC_VERSION, COMPARISON_LEVEL);
+		}
+
+		System.out.printf("%-20s %6d %12.0f %6d %12.0f%n", name, 
+				byteVersion, measure(messages, byteVersion, COMPARISON_LEVEL), 
+				autoVersion, measure(messages, AUTOMATIC_VERSION, COMPARISON_LEVEL));
+	}
+
+	/**
+	 * @return the smallest version holding length bytes in byte mode
+	 */
+	private static int smallestByteVersion(int length, CorrectionLvl level)
+	{
+		int version = 1;
+		while (QRCodeInfos.getMaxInputLength(version, level) < length)
+		{
+			version++;
+		}
+		return version;
+	}
+
+	/**
+	 * @return MESSAGES ticket numbers of TICKET_DIGITS digits
+	 */
+	private static String[] numericTickets(Random random)
+	{
+		String[] messages = new String[MESSAGES];
+		for (int m = 0; m < MESSAGES; m++)
+		{
+			StringBuilder message = new StringBuilder(TICKET_DIGITS);
+			for (int i = 0; i < TICKET_DIGITS; i++)
+			{
+				message.append((char) ('0' + random.nextInt(10)));
+			}
+			messages[m] = message.toString();
+		}
+		return messages;
+	}
+
+	/**
+	 * @return MESSAGES uppercase URLs, with a random path of URL_PATH_LENGTH letters and digits
+	 */
+	private static String[] uppercaseUrls(Random random)
+	{
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+		String[] messages = new String[MESSAGES];
+		for (int m = 0; m < MESSAGES; m++)
+		{
+			StringBuilder message = new StringBuilder(URL_PREFIX);
+			for (int i = 0; i < URL_PATH_LENGTH; i++)
+			{
+				message.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			messages[m] = message.toString();
+		}
+		return messages;
+	}
+
+	/**
+	 * @return MESSAGES printable ASCII messages of the given length
+	 */
+	private static String[] randomMessages(Random random, int length)
+	{
+		String[] messages = new String[MESSAGES];
+		for (int m = 0; m < MESSAGES; m++)
+		{
+			StringBuilder message = new StringBuilder(length);
+			for (int i = 0; i < length; i++)
+			{
+				message.append((char) (' ' + random.nextInt('~' - ' ' + 1)));
+			}
+			messages[m] = message.toString();
+		}
+		return messages;
+	}
+
+	/**
+	 * Encode and render every message for at least MIN_MEASURE_NANOS, after WARMUP_ROUNDS untimed rounds.
+	 * At AUTOMATIC_VERSION, every message is encoded in segments at its smallest version.
+	 * @return the number of QR codes rendered per second
+	 */
+	private static double measure(String[] messages, int version, CorrectionLvl level)
+	{
+		int checksum = 0;
+
+		for (int round = 0; round < WARMUP_ROUNDS; round++)
+		{
+			checksum ^= renderAll(messages, version, level);
+		}
+
+		long codes = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do
+		{
+			checksum ^= renderAll(messages, version, level);
+			codes += messages.length;
+			elapsed = System.nanoTime() - start;
+		}
+		while (elapsed < MIN_MEASURE_NANOS);
+
+		// Keeps the JIT from discarding the work
+		if (checksum == Integer.MIN_VALUE)
+		{
+			System.out.println(checksum);
+		}
+
+		return codes / (elapsed / 1e9);
+	}
+
+	private static int renderAll(String[] messages, int version, CorrectionLvl level)
+	{
+		int checksum = 0;
+		for (String message : messages)
+		{
+			if (version == AUTOMATIC_VERSION)
+			{
+				int smallestVersion = DataEncoding.smallestVersion(message, level);
+				boolean[] encodedData = DataEncoding.optimalEncoding(message, smallestVersion, level);
+				checksum ^= MatrixConstruction.renderQRMatrix(smallestVersion, level, encodedData).hashCode();
+			}
+			else
+			{
+				boolean[] encodedData = DataEncoding.byteModeEncoding(message, version, level);
+				checksum ^= MatrixConstruction.renderQRMatrix(version, level, encodedData).hashCode();
+			}
+		}
+		return checksum;
+	}
+}
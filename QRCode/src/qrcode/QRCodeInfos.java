@@ -11,7 +11,7 @@ public final class QRCodeInfos {
 	private static final int MATRIX_SIZE_VERSION_1 =21;
 	private static final int MATRIX_SIZE_STEP =4;
 	
-	private final static int[] VERSION_CODE_WORDS = { 19, 34, 55, 80 };
+	private static final int MAX_VERSION = 40;
 	
 	private static final int[] LVL_CODE = {1,0,3,2};
 	
@@ -19,8 +19,56 @@ public final class QRCodeInfos {
 		L,M,Q,H
 	}
 	
-	private static final int[] ERROR_CORRECTION_CODEWORDS = {7,10,15,20};
+	public enum Mode{
+		NUMERIC,ALPHANUMERIC,BYTE
+	}
+	
+	private static final int[] MODE_INDICATORS = {0b0001, 0b0010, 0b0100};
 	
+	/*
+	 * Bits encoding the number of characters of a segment, by mode (numeric, alphanumeric, byte) 
+	 * and by range of versions (1 to 9, 10 to 26, 27 to 40)
+	 */
+	private static final int[][] CHARACTER_COUNT_BITS = {
+		{10, 12, 14},
+		{9, 11, 13},
+		{8, 16, 16},
+	};
+	
+	/*
+	 * Error correction codewords in each block, by level (L, M, Q, H) and version (index 0 is unused)
+	 */
+	private static final int[][] ERROR_CORRECTION_CODEWORDS = {
+		{-1, 7, 10, 15, 20, 26, 18, 20, 24, 30, 18, 20, 24, 26, 30, 22, 24, 28, 30, 28, 28, 28, 28, 30, 30, 26, 28, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30},
+		{-1, 10, 16, 26, 18, 24, 16, 18, 22, 22, 26, 30, 22, 22, 24, 24, 28, 28, 26, 26, 26, 26, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28, 28},
+		{-1, 13, 22, 18, 26, 18, 24, 18, 22, 20, 24, 28, 26, 24, 20, 30, 24, 28, 28, 26, 30, 28, 30, 30, 30, 30, 28, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30},
+		{-1, 17, 28, 22, 16, 22, 28, 26, 26, 24, 28, 24, 28, 22, 24, 24, 30, 28, 28, 26, 28, 30, 24, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30, 30},
+	};
+	
+	/*
+	 * Number of error correction blocks, by level (L, M, Q, H) and version (index 0 is unused)
+	 */
+	private static final int[][] ERROR_CORRECTION_BLOCKS = {
+		{-1, 1, 1, 1, 1, 1, 2, 2, 2, 2, 4, 4, 4, 4, 4, 6, 6, 6, 6, 7, 8, 8, 9, 9, 10, 12, 12, 12, 13, 14, 15, 16, 17, 18, 19, 19, 20, 21, 22, 24, 25},
+		{-1, 1, 1, 1, 2, 2, 4, 4, 4, 5, 5, 5, 8, 9, 9, 10, 10, 11, 13, 14, 16, 17, 17, 18, 20, 21, 23, 25, 26, 28, 29, 31, 33, 35, 37, 38, 40, 43, 45, 47, 49},
+		{-1, 1, 1, 2, 2, 4, 4, 6, 6, 8, 8, 8, 10, 12, 16, 12, 17, 16, 18, 21, 20, 23, 23, 25, 27, 29, 34, 34, 35, 38, 40, 43, 45, 48, 51, 53, 56, 59, 62, 65, 68},
+		{-1, 1, 1, 2, 4, 4, 4, 5, 6, 8, 8, 11, 11, 16, 16, 18, 16, 19, 21, 25, 25, 25, 34, 30, 32, 35, 37, 40, 42, 45, 48, 51, 54, 57, 60, 63, 66, 70, 74, 77, 81},
+	};
+	
+	/*
+	 * Row and column coordinates of the centres of the alignment patterns, by version (index 0 is unused)
+	 */
+	private static final int[][] ALIGNMENT_PATTERN_POSITIONS = {
+		{}, {},
+		{6, 18}, {6, 22}, {6, 26}, {6, 30}, {6, 34},
+		{6, 22, 38}, {6, 24, 42}, {6, 26, 46}, {6, 28, 50}, {6, 30, 54}, {6, 32, 58}, {6, 34, 62},
+		{6, 26, 46, 66}, {6, 26, 48, 70}, {6, 26, 50, 74}, {6, 30, 54, 78}, {6, 30, 56, 82}, {6, 30, 58, 86}, {6, 34, 62, 90},
+		{6, 28, 50, 72, 94}, {6, 26, 50, 74, 98}, {6, 30, 54, 78, 102}, {6, 28, 54, 80, 106}, {6, 32, 58, 84, 110}, {6, 30, 58, 86, 114}, {6, 34, 62, 90, 118},
+		{6, 26, 50, 74, 98, 122}, {6, 30, 54, 78, 102, 126}, {6, 26, 52, 78, 104, 130}, {6, 30, 56, 82, 108, 134}, {6, 34, 60, 86, 112, 138}, {6, 30, 58, 86, 114, 142}, {6, 34, 62, 90, 118, 146},
+		{6, 30, 54, 78, 102, 126, 150}, {6, 24, 50, 76, 102, 128, 154}, {6, 28, 54, 80, 106, 132, 158}, {6, 32, 58, 84, 110, 136, 162}, {6, 26, 54, 82, 110, 138, 166}, {6, 30, 58, 86, 114, 142, 170},
+	};
+	
+	private static final int VERSION_INFORMATION_MIN_VERSION = 7;
 	
 	
 	/**
@@ -31,7 +79,7 @@ public final class QRCodeInfos {
 	 * @return an integer : the size of the matrix for a given QR code version
 	 */
 	public static int getMatrixSize(int version) {
-		if(version>40) {
+		if(version>MAX_VERSION) {
 			throw new IllegalArgumentException("The maximum QR code Version is 40");
 		}
 		return MATRIX_SIZE_VERSION_1 + MATRIX_SIZE_STEP*(version-1);
@@ -39,81 +87,215 @@ public final class QRCodeInfos {
 	
 	
 	/**
-	 * Get the maximum input length for a given QR code version
+	 * Get the maximum input length for a given QR code version at error correction level L
 	 * @param version
 	 *        version of the QRcode
 	 * @return the maximum number of bytes of data that can be encoded for the given version
 	 */
 	public static int getMaxInputLength(int version) {
-		if(version>4) {
-			throw new UnsupportedOperationException("The version has to be between 1 and 5");
-		}
-		return VERSION_CODE_WORDS[version-1] -2 ;
+		return getMaxInputLength(version, CorrectionLvl.L);
+	}
+	
+	/**
+	 * Get the maximum input length for a given QR code version and error correction level
+	 * @param version
+	 *        version of the QRcode
+	 * @param level
+	 *        the error correction level
+	 * @return the maximum number of bytes that fit after the byte mode header
+	 */
+	public static int getMaxInputLength(int version, CorrectionLvl level) {
+		int headerBits = 4 + getCharacterCountBits(version);
+		return (getCodeWordsLength(version, level) * 8 - headerBits) / 8;
+	}
+	
+	/**
+	 * Get the number of bits encoding the length of the input in byte mode
+	 * @param version
+	 *        version of the QRcode
+	 * @return 8 up to version 9, 16 from version 10
+	 */
+	public static int getCharacterCountBits(int version) {
+		return getCharacterCountBits(version, Mode.BYTE);
+	}
+	
+	/**
+	 * Get the number of bits encoding the number of characters of a segment
+	 * @param version
+	 *        version of the QRcode
+	 * @param mode
+	 *        the mode of the segment
+	 * @return the length of the character count field
+	 */
+	public static int getCharacterCountBits(int version, Mode mode) {
+		checkVersion(version);
+		int range = version < 10 ? 0 : version < 27 ? 1 : 2;
+		return CHARACTER_COUNT_BITS[mode.ordinal()][range];
 	}
 	
-	/** Get the number of error correction codewords needed for a given version
+	/**
+	 * Get the 4 bits announcing the mode of a segment
+	 * @param mode
+	 *        the mode of the segment
+	 * @return the mode indicator
+	 */
+	public static int getModeIndicator(Mode mode) {
+		return MODE_INDICATORS[mode.ordinal()];
+	}
+	
+	/** Get the number of error correction codewords needed for a given version at error correction level L.
 	 * @param version
 	 * 			 version of the QRcode	
-	 * @return
+	 * @return the number of error correction codewords of each block
 	 */
 	public static int getECCLength(int version) {
-		if(version>4) {
-			throw new UnsupportedOperationException("The version has to be between 1 and 5");
-		}
-		return ERROR_CORRECTION_CODEWORDS[version-1] ;
+		return getECCLength(version, CorrectionLvl.L);
+	}
+	
+	/** Get the number of error correction codewords of each block, for a given version and error correction level
+	 * @param version
+	 * 			 version of the QRcode	
+	 * @param level
+	 *        the error correction level
+	 * @return the number of error correction codewords of each block
+	 */
+	public static int getECCLength(int version, CorrectionLvl level) {
+		checkVersion(version);
+		return ERROR_CORRECTION_CODEWORDS[level.ordinal()][version];
+	}
+	
+	/**
+	 * Get the number of blocks the data codewords are split into, each one getting its own error correction
+	 * @param version
+	 *          version of the QRcode
+	 * @param level
+	 *        the error correction level
+	 * @return the number of error correction blocks
+	 */
+	public static int getBlockCount(int version, CorrectionLvl level) {
+		checkVersion(version);
+		return ERROR_CORRECTION_BLOCKS[level.ordinal()][version];
 	}
 	
 	/**
-	 * Get the number of codewords encoding the data for a given version
+	 * Get the number of codewords encoding the data for a given version at error correction level L
 	 * @param version
 	 *          version of the QRcode
 	 * @return the number of codewords in the version
 	 */
 	public static int getCodeWordsLength(int version) {
-		if(version>4) {
-			throw new UnsupportedOperationException("The version has to be between 1 and 5");
+		return getCodeWordsLength(version, CorrectionLvl.L);
+	}
+	
+	/**
+	 * Get the number of codewords encoding the data for a given version and error correction level
+	 * @param version
+	 *          version of the QRcode
+	 * @param level
+	 *        the error correction level
+	 * @return the number of data codewords, error correction excluded
+	 */
+	public static int getCodeWordsLength(int version, CorrectionLvl level) {
+		return getTotalCodeWordsLength(version) - getECCLength(version, level) * getBlockCount(version, level);
+	}
+	
+	/**
+	 * Get the number of codewords that fit in the data modules of a given version, error correction included.
+	 * The data modules left over once the last full codeword is placed are the remainder bits.
+	 * @param version
+	 *          version of the QRcode
+	 * @return the number of codewords in the matrix
+	 */
+	public static int getTotalCodeWordsLength(int version) {
+		int size = getMatrixSize(version);
+		
+		// All modules, minus the finder patterns with their separators and the format information, minus the timing patterns
+		int modules = size * size - 3 * 64 - 31 - 2 * (size - 16);
+		
+		int alignments = ALIGNMENT_PATTERN_POSITIONS[version].length;
+		if(alignments > 0) {
+			// 25 modules per alignment pattern, except the three overlapping the finder patterns, and the ones lying on the timing patterns
+			modules -= 25 * (alignments * alignments - 3) - 10 * (alignments - 2);
+		}
+		if(version >= VERSION_INFORMATION_MIN_VERSION) {
+			modules -= 2 * 18;
+		}
+		return modules / 8;
+	}
+	
+	/**
+	 * Get the coordinates of the centres of the alignment patterns. 
+	 * Every combination of two of them is the centre of an alignment pattern, except where it overlaps a finder pattern.
+	 * @param version
+	 *          version of the QRcode
+	 * @return the coordinates in increasing order, empty for version 1
+	 */
+	public static int[] getAlignmentPatternPositions(int version) {
+		checkVersion(version);
+		return ALIGNMENT_PATTERN_POSITIONS[version].clone();
+	}
+	
+	private static void checkVersion(int version) {
+		if(version<1 || version>MAX_VERSION) {
+			throw new IllegalArgumentException("The version has to be between 1 and " + MAX_VERSION);
 		}
-		return VERSION_CODE_WORDS[version-1] ;
 	}
 
 
 
 	/**
-	 * Return the sequence of pixels that encodes the format information related to error correction level and used mask.
+	 * Return the sequence of pixels that encodes the format information related to error correction level L and used mask.
 	 * The array is a boolean array providing a binary representation of the data, with the most significant bit first
 	 * @param mask
 	 *        the integer code of the mask to be used (must be between 0 and 7)
 	 * @return the array of pixels encoding the format information. Most significant bit first
 	 */
 	public static boolean[] getFormatSequence(int mask) {
+		return getFormatSequence(CorrectionLvl.L, mask);
+	}
+
+	/**
+	 * Return the sequence of pixels that encodes the format information related to error correction level and used mask.
+	 * The array is a boolean array providing a binary representation of the data, with the most significant bit first
+	 * @param level
+	 *        the error correction level
+	 * @param mask
+	 *        the integer code of the mask to be used (must be between 0 and 7)
+	 * @return the array of pixels encoding the format information. Most significant bit first
+	 */
+	public static boolean[] getFormatSequence(CorrectionLvl level, int mask) {
 		if(mask>7 || mask <0) {
 			throw new IllegalArgumentException("The mask has to be between 0 and 7");
 		}
-		int errorCorrectionLevel=CorrectionLvl.L.ordinal();
+		int errorCorrectionLevel=level.ordinal();
 		int code = ((LVL_CODE[errorCorrectionLevel]& 0x3)<<3) | (mask&0x7);
 		int current = code<<10;
 	
 		int poly = 0b10100110111;
-		int size = 15;
-		while(((0b1<<(size-1)) & current) ==0) {
-			size--;
-			if(size == 0) {
-				throw new IllegalAccessError();
+		// Level M with mask 0 has a code of 0, whose remainder is 0 : there is no leading bit to divide by
+		if(current != 0) {
+			int size = 15;
+			while(((0b1<<(size-1)) & current) ==0) {
+				size--;
+				if(size == 0) {
+					throw new IllegalAccessError();
+				}
 			}
-		}
 		
-		while(size>10) {
-			int paddedPoly = poly<<(size-11);
+			while(size>10) {
+				int paddedPoly = poly<<(size-11);
 	
-			current = paddedPoly^current;
+				current = paddedPoly^current;
 			
 			
-			while(((0b1<<(size-1)) & current) == 0) {
-				size--;
-				if(size == 0) {
-					throw new IllegalAccessError();
+				while(((0b1<<(size-1)) & current) == 0) {
+					size--;
+					if(size == 0) {
+						throw new IllegalAccessError();
+					}
 				}
 			}
+		
 		}
 		
 		int format = (code<<10 | (current& 0x3FF)) ^ 0b101010000010010;
@@ -126,6 +308,33 @@ public final class QRCodeInfos {
 		return formatPixels;
 	}
 	
-	
+	/**
+	 * Return the sequence of pixels that encodes the version, for versions 7 and above.
+	 * The 6 bits of the version are followed by the 12 bits of the remainder of their division by the BCH generator polynomial.
+	 * @param version
+	 *        version of the QRcode, at least 7
+	 * @return the array of 18 pixels encoding the version. Most significant bit first
+	 */
+	public static boolean[] getVersionSequence(int version) {
+		checkVersion(version);
+		if(version<VERSION_INFORMATION_MIN_VERSION) {
+			throw new IllegalArgumentException("Only versions 7 and above carry version information");
+		}
+		int poly = 0b1_1111_0010_0101;
+		
+		int remainder = version;
+		for(int i=0;i<12;i++) {
+			remainder = (remainder<<1) ^ ((remainder>>11) * poly);
+		}
+		
+		int versionInformation = version<<12 | remainder;
+		
+		boolean[] versionPixels = new boolean[18];
+		for(int i=0;i<versionPixels.length;i++) {
+			versionPixels[i] = ((versionInformation >> (17 - i)) & 0b1) != 0;
+		}
+		
+		return versionPixels;
+	}
 
 }
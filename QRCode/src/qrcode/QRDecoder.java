@@ -0,0 +1,359 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package qrcode;
+
+import java.nio.charset.StandardCharsets;
+
+import qrcode.QRCodeInfos.CorrectionLvl;
+import qrcode.QRCodeInfos.Mode;
+import reedsolomon.ReedSolomonDecoder;
+
+/**
+ * Reads QR codes back to their message. It reverses every step of the encoding :
+ * <ul>
+ * <li>the format information gives the error correction level and the mask,</li>
+ * <li>the data modules are unmasked and read in zig-zag order,</li>
+ * <li>the blocks are de-interleaved and corrected with Reed-Solomon,</li>
+ * <li>the numeric, alphanumeric and byte segments are parsed.</li>
+ * </ul>
+ * The matrix has to be a clean QR code of the right size, as rendered by MatrixConstruction : nothing is sampled from an image.
+ */
+public final class QRDecoder
+{
+	// A format information differing from a valid one on at most 3 bits is corrected to it
+	private static final int MAX_FORMAT_ERRORS = 3;
+
+	// The 32 valid format informations, indexed by level * 8 + mask
+	private static final int[] FORMAT_INFORMATIONS = new int[CorrectionLvl.values().length * MatrixConstruction.NUMBER_OF_MASKS];
+	static
+	{
+		for (CorrectionLvl level : CorrectionLvl.values())
+		{
+			for (int mask = 0; mask < MatrixConstruction.NUMBER_OF_MASKS; mask++)
+			{
+				int format = 0;
+				for (boolean bit : QRCodeInfos.getFormatSequence(level, mask))
+				{
+					format = (format << 1) | (bit ? 1 : 0);
+				}
+				FORMAT_INFORMATIONS[level.ordinal() * MatrixConstruction.NUMBER_OF_MASKS + mask] = format;
+			}
+		}
+	}
+
+	private QRDecoder() {}
+
+	/**
+	 * Decode a QR code
+	 * @param matrix
+	 * 			the ARGB matrix of the QR code, black modules being dark
+	 * @return the message of the QR code
+	 * @throws IllegalArgumentException
+	 * 			if the QR code can not be read
+	 */
+	public static String decode(int[][] matrix)
+	{
+		return decode(QRMatrix.of(matrix));
+	}
+
+	/**
+	 * Decode a QR code, correcting as many errors as its error correction allows
+	 * @param matrix
+	 * 			the QR code
+	 * @return the message of the QR code
+	 * @throws IllegalArgumentException
+	 * 			if the QR code can not be read
+	 */
+	public static String decode(QRMatrix matrix)
+	{
+		return decode(matrix, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Check that a QR code holds the given message, without a single wrong codeword.
+	 * Any correction means that the QR code was not rendered properly.
+	 * @param matrix
+	 * 			the QR code
+	 * @param expected
+	 * 			the message, compared once encoded to ISO-8859-1
+	 * @return true if the QR code reads back to the message without any correction
+	 */
+	public static boolean verify(QRMatrix matrix, String expected)
+	{
+		String message;
+		try
+		{
+			message = decode(matrix, 0);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return false;
+		}
+		return message.equals(new String(expected.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * @param maxCorrections
+	 * 			the number of wrong codewords over which the QR code is rejected
+	 */
+	private static String decode(QRMatrix matrix, int maxCorrections)
+	{
+		// Step 1 : The version, from the size
+		int size = matrix.size();
+		int version = (size - QRCodeInfos.getMatrixSize(1)) / 4 + 1;
+		if (version < 1 || version > 40 || QRCodeInfos.getMatrixSize(version) != size)
+		{
+			throw new IllegalArgumentException("No QR code version is " + size + " modules wide");
+		}
+
+		// Step 2 : The error correction level and the mask, from the format information
+		int format = readFormat(matrix);
+		CorrectionLvl level = CorrectionLvl.values()[format / MatrixConstruction.NUMBER_OF_MASKS];
+		int mask = format % MatrixConstruction.NUMBER_OF_MASKS;
+
+		// Step 3 : The codewords, unmasked and in zig-zag order
+		int[] codewords = new int[QRCodeInfos.getTotalCodeWordsLength(version)];
+		QRTemplate.of(version, level).read(matrix, mask, codewords);
+
+		// Step 4 : De-interleave and correct every block
+		int[] data = correctBlocks(codewords, version, level, maxCorrections);
+
+		// Step 5 : Parse the segments
+		return parseSegments(data, version);
+	}
+
+	/**
+	 * Read both copies of the format information and find the closest valid one
+	 * @return level * 8 + mask
+	 */
+	private static int readFormat(QRMatrix matrix)
+	{
+		int size = matrix.size();
+		int aroundTopLeft = 0;
+		int split = 0;
+
+		// Format bits are read most significant bit first, in the order of QRCodeInfos.getFormatSequence
+		for (int i = 0; i < 15; i++)
+		{
+			// Around the top-left finder pattern : along row 8, then up column 8, skipping the timing patterns
+			boolean topLeft;
+			if (i < 6)
+			{
+				topLeft = matrix.isDark(i, 8);
+			}
+			else if (i < 8)
+			{
+				topLeft = matrix.isDark(i + 1, 8);
+			}
+			else if (i == 8)
+			{
+				topLeft = matrix.isDark(8, 7);
+			}
+			else
+			{
+				topLeft = matrix.isDark(8, 14 - i);
+			}
+
+			// Split between the bottom-left and the top-right finder patterns
+			boolean other = (i < 7) ? matrix.isDark(8, size - 1 - i) : matrix.isDark(size - 15 + i, 8);
+
+			aroundTopLeft = (aroundTopLeft << 1) | (topLeft ? 1 : 0);
+			split = (split << 1) | (other ? 1 : 0);
+		}
+
+		int best = -1;
+		int fewestErrors = MAX_FORMAT_ERRORS + 1;
+		for (int candidate = 0; candidate < FORMAT_INFORMATIONS.length; candidate++)
+		{
+			int errors = Math.min(Integer.bitCount(aroundTopLeft ^ FORMAT_INFORMATIONS[candidate]),
+					Integer.bitCount(split ^ FORMAT_INFORMATIONS[candidate]));
+			if (errors < fewestErrors)
+			{
+				best = candidate;
+				fewestErrors = errors;
+			}
+		}
+
+		if (best < 0)
+		{
+			throw new IllegalArgumentException("The format information can not be read");
+		}
+		return best;
+	}
+
+	/**
+	 * De-interleave the codewords into blocks, and correct every block with its error correction codewords
+	 * @return the corrected data codewords, block after block
+	 */
+	private static int[] correctBlocks(int[] codewords, int version, CorrectionLvl level, int maxCorrections)
+	{
+		final int DATA_LENGTH = QRCodeInfos.getCodeWordsLength(version, level);
+		final int BLOCKS = QRCodeInfos.getBlockCount(version, level);
+		final int ECC_LENGTH = QRCodeInfos.getECCLength(version, level);
+
+		int shortBlockLength = DATA_LENGTH / BLOCKS;
+		int shortBlocks = BLOCKS - DATA_LENGTH % BLOCKS;
+
+		int[] data = new int[DATA_LENGTH];
+		int[] block = new int[shortBlockLength + 1 + ECC_LENGTH];
+		int corrections = 0;
+
+		for (int b = 0, start = 0; b < BLOCKS; b++)
+		{
+			int blockLength = (b < shortBlocks) ? shortBlockLength : shortBlockLength + 1;
+
+			// The i-th data codeword of every block is interleaved after the (i-1)-th ones. Only the longer blocks have a last one.
+			for (int i = 0; i < shortBlockLength; i++)
+			{
+				block[i] = codewords[i * BLOCKS + b];
+			}
+			if (blockLength > shortBlockLength)
+			{
+				block[shortBlockLength] = codewords[shortBlockLength * BLOCKS + b - shortBlocks];
+			}
+			for (int i = 0; i < ECC_LENGTH; i++)
+			{
+				block[blockLength + i] = codewords[DATA_LENGTH + i * BLOCKS + b];
+			}
+
+			int corrected = ReedSolomonDecoder.decode(block, 0, blockLength + ECC_LENGTH, ECC_LENGTH);
+			if (corrected == ReedSolomonDecoder.UNCORRECTABLE)
+			{
+				throw new IllegalArgumentException("Block " + b + " has too many errors to be corrected");
+			}
+			corrections += corrected;
+			if (corrections > maxCorrections)
+			{
+				throw new IllegalArgumentException(corrections + " codewords had to be corrected");
+			}
+
+			System.arraycopy(block, 0, data, start, blockLength);
+			start += blockLength;
+		}
+
+		return data;
+	}
+
+	/**
+	 * Read the segments until the terminator or the end of the data
+	 */
+	private static String parseSegments(int[] data, int version)
+	{
+		BitReader reader = new BitReader(data);
+		StringBuilder message = new StringBuilder();
+
+		while (reader.remaining() >= 4)
+		{
+			int indicator = reader.read(4);
+			if (indicator == 0) // Terminator
+			{
+				break;
+			}
+
+			Mode mode = modeOf(indicator);
+			int count = reader.read(QRCodeInfos.getCharacterCountBits(version, mode));
+
+			switch (mode)
+			{
+			case NUMERIC:
+				for (int left = count; left > 0; left -= 3)
+				{
+					int digits = Math.min(3, left);
+					int value = reader.read(1 + 3 * digits);
+					if (value >= (digits == 3 ? 1000 : digits == 2 ? 100 : 10))
+					{
+						throw new IllegalArgumentException("Invalid numeric group " + value);
+					}
+					String group = Integer.toString(value);
+					for (int pad = group.length(); pad < digits; pad++)
+					{
+						message.append('0');
+					}
+					message.append(group);
+				}
+				break;
+			case ALPHANUMERIC:
+				for (int left = count; left > 0; left -= 2)
+				{
+					if (left >= 2)
+					{
+						int value = reader.read(11);
+						if (value >= 45 * 45)
+						{
+							throw new IllegalArgumentException("Invalid alphanumeric pair " + value);
+						}
+						message.append(Segment.alphanumericChar(value / 45)).append(Segment.alphanumericChar(value % 45));
+					}
+					else
+					{
+						int value = reader.read(6);
+						if (value >= 45)
+						{
+							throw new IllegalArgumentException("Invalid alphanumeric character " + value);
+						}
+						message.append(Segment.alphanumericChar(value));
+					}
+				}
+				break;
+			default:
+				// ISO-8859-1 bytes are the first 256 characters
+				for (int i = 0; i < count; i++)
+				{
+					message.append((char) reader.read(Byte.SIZE));
+				}
+			}
+		}
+
+		return message.toString();
+	}
+
+	private static Mode modeOf(int indicator)
+	{
+		for (Mode mode : Mode.values())
+		{
+			if (QRCodeInfos.getModeIndicator(mode) == indicator)
+			{
+				return mode;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported mode " + indicator);
+	}
+
+	/**
+	 * Reads bits from 8-bit codewords, most significant bit first
+	 */
+	private static final class BitReader
+	{
+		private final int[] codewords;
+		private int position;
+
+		BitReader(int[] codewords)
+		{
+			this.codewords = codewords;
+		}
+
+		int remaining()
+		{
+			return codewords.length * Byte.SIZE - position;
+		}
+
+		int read(int bits)
+		{
+			if (bits > remaining())
+			{
+				throw new IllegalArgumentException("The segments go past the end of the data");
+			}
+
+			int value = 0;
+			for (int i = 0; i < bits; i++, position++)
+			{
+				int bit = (codewords[position >>> 3] >>> (7 - (position & 0b111))) & 1;
+				value = (value << 1) | bit;
+			}
+			return value;
+		}
+	}
+}
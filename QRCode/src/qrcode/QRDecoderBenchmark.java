@@ -0,0 +1,173 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package qrcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import qrcode.QRCodeInfos.CorrectionLvl;
+
+/**
+ * Measures how many QR codes per second are decoded, for every version from 1 to 40 at level M :
+ * <ul>
+ * <li>clean, when the QR codes are read as they were rendered,</li>
+ * <li>damaged, when one module of every block is flipped, so that every block needs a Reed-Solomon correction,</li>
+ * <li>verified in batch, on the common fork-join pool.</li>
+ * </ul>
+ * Every decoded message is checked, so the benchmark doubles as a round-trip test of the encoder and the decoder.
+ */
+public final class QRDecoderBenchmark
+{
+	/*
+	 * Parameters
+	 */
+	private static final int SEED = 42;
+	private static final int MESSAGES = 16;
+	private static final int BATCH_SIZE = 1024;
+	private static final CorrectionLvl LEVEL = CorrectionLvl.M;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final long MIN_MEASURE_NANOS = 100_000_000L;	// Every measure lasts at least 0.1 s
+
+	public static void main(String[] args)
+	{
+		Random random = new Random(SEED);
+
+		System.out.printf("version  size  %12s %12s %12s  (codes/s)%n", "clean", "damaged", "batch");
+
+		for (int version = 1; version <= 40; version++)
+		{
+			String[] messages = randomMessages(random, QRCodeInfos.getMaxInputLength(version, LEVEL));
+
+			QRMatrix[] clean = new QRMatrix[MESSAGES];
+			QRMatrix[] damaged = new QRMatrix[MESSAGES];
+			for (int m = 0; m < MESSAGES; m++)
+			{
+				clean[m] = MatrixConstruction.renderQRMatrix(version, LEVEL, DataEncoding.byteModeEncoding(messages[m], version, LEVEL));
+				damaged[m] = damage(clean[m], version);
+			}
+
+			System.out.printf("%7d  %4d   %12.0f %12.0f %12.0f%n", version, QRCodeInfos.getMatrixSize(version),
+					measure(clean, messages), measure(damaged, messages), measureBatch(clean, messages));
+		}
+	}
+
+	/**
+	 * @return MESSAGES printable ASCII messages of the given length
+	 */
+	private static String[] randomMessages(Random random, int length)
+	{
+		String[] messages = new String[MESSAGES];
+		for (int m = 0; m < MESSAGES; m++)
+		{
+			StringBuilder message = new StringBuilder(length);
+			for (int i = 0; i < length; i++)
+			{
+				message.append((char) (' ' + random.nextInt('~' - ' ' + 1)));
+			}
+			messages[m] = message.toString();
+		}
+		return messages;
+	}
+
+	/**
+	 * Flip the first module of the first codeword of every block. The first codewords are interleaved one block after the other.
+	 * @return a damaged copy of the QR code
+	 */
+	private static QRMatrix damage(QRMatrix matrix, int version)
+	{
+		QRMatrix damaged = matrix.copy();
+		int size = damaged.size();
+		int[] dataModules = MatrixConstruction.dataModuleOrder(MatrixConstruction.constructQRMatrix(version, LEVEL, 0));
+
+		for (int b = 0; b < QRCodeInfos.getBlockCount(version, LEVEL); b++)
+		{
+			int x = dataModules[b * Byte.SIZE] / size;
+			int y = dataModules[b * Byte.SIZE] % size;
+			damaged.set(x, y, !damaged.isDark(x, y));
+		}
+		return damaged;
+	}
+
+	/**
+	 * Decode every QR code for at least MIN_MEASURE_NANOS, after WARMUP_ROUNDS untimed rounds
+	 * @return the number of QR codes decoded per second
+	 */
+	private static double measure(QRMatrix[] matrices, String[] messages)
+	{
+		for (int round = 0; round < WARMUP_ROUNDS; round++)
+		{
+			decodeAll(matrices, messages);
+		}
+
+		long codes = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do
+		{
+			decodeAll(matrices, messages);
+			codes += matrices.length;
+			elapsed = System.nanoTime() - start;
+		}
+		while (elapsed < MIN_MEASURE_NANOS);
+
+		return codes / (elapsed / 1e9);
+	}
+
+	private static void decodeAll(QRMatrix[] matrices, String[] messages)
+	{
+		for (int m = 0; m < matrices.length; m++)
+		{
+			if (!QRDecoder.decode(matrices[m]).equals(messages[m]))
+			{
+				throw new IllegalStateException("QR code " + m + " does not read back to its message");
+			}
+		}
+	}
+
+	/**
+	 * Verify BATCH_SIZE QR codes at once for at least MIN_MEASURE_NANOS, after WARMUP_ROUNDS untimed rounds
+	 * @return the number of QR codes verified per second
+	 */
+	private static double measureBatch(QRMatrix[] matrices, String[] messages)
+	{
+		List<QRMatrix> batch = new ArrayList<>(BATCH_SIZE);
+		List<String> expected = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			batch.add(matrices[i % matrices.length]);
+			expected.add(messages[i % messages.length]);
+		}
+
+		for (int round = 0; round < WARMUP_ROUNDS; round++)
+		{
+			verifyAll(batch, expected);
+		}
+
+		long codes = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do
+		{
+			verifyAll(batch, expected);
+			codes += batch.size();
+			elapsed = System.nanoTime() - start;
+		}
+		while (elapsed < MIN_MEASURE_NANOS);
+
+		return codes / (elapsed / 1e9);
+	}
+
+	private static void verifyAll(List<QRMatrix> batch, List<String> expected)
+	{
+		List<Integer> failures = QRCodeBatch.verify(batch, expected);
+		if (!failures.isEmpty())
+		{
+			throw new IllegalStateException("QR codes " + Arrays.toString(failures.toArray()) + " do not read back to their message");
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package qrcode;
+
+import java.util.Arrays;
+
+/**
+ * A QR code matrix packed one bit per module.
+ *
+ * Module (x, y) corresponds to matrix[x][y] in the int[][] representation. Every line x is stored
+ * in consecutive longs, module y being bit (y % 64) of word (y / 64). A set bit is a dark module.
+ * A second bitmap of the same layout marks the reserved modules (finder, alignment and timing patterns,
+ * format information...) that the data must skip.
+ */
+public final class QRMatrix
+{
+	private final int size;
+	private final int wordsPerLine;
+
+	private final long[] modules;	// Dark modules
+	private final long[] reserved;	// Function pattern modules
+
+	/**
+	 * Create an all light matrix without any reserved module
+	 * @param size
+	 * 			the number of modules on each side
+	 */
+	public QRMatrix(int size)
+	{
+		this.size = size;
+		this.wordsPerLine = (size + Long.SIZE - 1) / Long.SIZE;
+		this.modules = new long[size * wordsPerLine];
+		this.reserved = new long[size * wordsPerLine];
+	}
+
+	private QRMatrix(QRMatrix other)
+	{
+		this.size = other.size;
+		this.wordsPerLine = other.wordsPerLine;
+		this.modules = other.modules.clone();
+		this.reserved = other.reserved.clone();
+	}
+
+	/**
+	 * Pack an ARGB matrix. Every module that is not transparent (0) is considered reserved,
+	 * and every black module is considered dark.
+	 * @param matrix
+	 * 			a square matrix of ARGB colours
+	 * @return the packed matrix
+	 */
+	public static QRMatrix of(int[][] matrix)
+	{
+		QRMatrix qrMatrix = new QRMatrix(matrix.length);
+
+		for (int x = 0; x < matrix.length; x++)
+		{
+			for (int y = 0; y < matrix.length; y++)
+			{
+				if (matrix[x][y] != MatrixConstruction.T)
+				{
+					qrMatrix.reserve(x, y);
+					qrMatrix.set(x, y, matrix[x][y] == MatrixConstruction.B);
+				}
+			}
+		}
+
+		return qrMatrix;
+	}
+
+	/**
+	 * @return a copy of this matrix, modules and reserved modules included
+	 */
+	public QRMatrix copy()
+	{
+		return new QRMatrix(this);
+	}
+
+	/**
+	 * @return the number of modules on each side
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the number of longs storing a line
+	 */
+	int wordsPerLine()
+	{
+		return wordsPerLine;
+	}
+
+	private int index(int x, int y)
+	{
+		return x * wordsPerLine + (y >>> 6);
+	}
+
+	/**
+	 * @return true if the module (x, y) is dark
+	 */
+	public boolean isDark(int x, int y)
+	{
+		return (modules[index(x, y)] & (1L << y)) != 0;
+	}
+
+	/**
+	 * Make the module (x, y) dark or light
+	 */
+	public void set(int x, int y, boolean dark)
+	{
+		if (dark)
+		{
+			modules[index(x, y)] |= 1L << y;
+		}
+		else
+		{
+			modules[index(x, y)] &= ~(1L << y);
+		}
+	}
+
+	/**
+	 * @return the position of the module (x, y) in the packed modules, as a bit index
+	 */
+	int bitPosition(int x, int y)
+	{
+		return index(x, y) * Long.SIZE + (y & (Long.SIZE - 1));
+	}
+
+	/**
+	 * @return true if the module at the given bit position is dark
+	 * @param position
+	 * 			a position returned by bitPosition
+	 */
+	boolean isDark(int position)
+	{
+		return (modules[position >>> 6] & (1L << position)) != 0;
+	}
+
+	/**
+	 * Make the module at the given bit position dark
+	 * @param position
+	 * 			a position returned by bitPosition
+	 */
+	void setDark(int position)
+	{
+		modules[position >>> 6] |= 1L << position;
+	}
+
+	/**
+	 * Invert every module of this matrix that is dark in the other one. The reserved modules stay the same.
+	 * @param other
+	 * 			a matrix of the same size
+	 */
+	void xor(QRMatrix other)
+	{
+		for (int i = 0; i < modules.length; i++)
+		{
+			modules[i] ^= other.modules[i];
+		}
+	}
+
+	/**
+	 * @return true if the module (x, y) belongs to a function pattern
+	 */
+	public boolean isReserved(int x, int y)
+	{
+		return (reserved[index(x, y)] & (1L << y)) != 0;
+	}
+
+	/**
+	 * Mark the module (x, y) as belonging to a function pattern
+	 */
+	public void reserve(int x, int y)
+	{
+		reserved[index(x, y)] |= 1L << y;
+	}
+
+	/**
+	 * Return 64 consecutive modules of line x, starting at module y. Module y + i is bit i of the result.
+	 * Modules outside of the matrix (y + i < 0 or y + i >= size) are light.
+	 * @param x
+	 * 			the line
+	 * @param y
+	 * 			the first module, which may be negative or past the end of the line
+	 * @return the modules packed in a long
+	 */
+	long lineBits(int x, int y)
+	{
+		return bits(modules, x * wordsPerLine, wordsPerLine, y);
+	}
+
+	/**
+	 * Return 64 consecutive bits of a packed line, starting at the given position. Bits outside of the line are 0.
+	 * The bits past the end of the line within its last word are expected to be 0.
+	 */
+	static long bits(long[] words, int firstWord, int wordsPerLine, int position)
+	{
+		int word = Math.floorDiv(position, Long.SIZE);
+		int shift = Math.floorMod(position, Long.SIZE);
+
+		long low = (word >= 0 && word < wordsPerLine) ? words[firstWord + word] : 0L;
+		if (shift == 0)
+		{
+			return low;
+		}
+
+		long high = (word + 1 >= 0 && word + 1 < wordsPerLine) ? words[firstWord + word + 1] : 0L;
+		return (low >>> shift) | (high << (Long.SIZE - shift));
+	}
+
+	/**
+	 * @return the number of dark modules
+	 */
+	public int darkModules()
+	{
+		int count = 0;
+		for (long word : modules)
+		{
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * @return the transposed matrix, in which module (x, y) is module (y, x) of this one. Reserved modules are not kept.
+	 */
+	QRMatrix transposed()
+	{
+		QRMatrix transposed = new QRMatrix(size);
+
+		for (int x = 0; x < size; x++)
+		{
+			for (int w = 0; w < wordsPerLine; w++)
+			{
+				// Visit the dark modules only
+				long word = modules[x * wordsPerLine + w];
+				while (word != 0)
+				{
+					int y = w * Long.SIZE + Long.numberOfTrailingZeros(word);
+					transposed.modules[transposed.index(y, x)] |= 1L << x;
+					word &= word - 1;
+				}
+			}
+		}
+
+		return transposed;
+	}
+
+	/**
+	 * Convert the matrix to ARGB colours, dark modules being black and light modules white
+	 * @return the int[][] representation of the matrix
+	 */
+	public int[][] toARGB()
+	{
+		int[][] matrix = new int[size][size];
+
+		for (int x = 0; x < size; x++)
+		{
+			for (int y = 0; y < size; y++)
+			{
+				matrix[x][y] = isDark(x, y) ? MatrixConstruction.B : MatrixConstruction.W;
+			}
+		}
+
+		return matrix;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (!(obj instanceof QRMatrix))
+		{
+			return false;
+		}
+		QRMatrix other = (QRMatrix) obj;
+		return size == other.size && Arrays.equals(modules, other.modules);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(modules);
+	}
+}
@@ -0,0 +1,284 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package qrcode;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Turns bit-packed QR codes into scaled, quiet-zoned 1-bit rasters without going through setRGB.
+ *
+ * Every line of pixels is packed once per line of modules, then copied for the other pixels of the module.
+ * The raster is available as a 1-bit BufferedImage, or streamed as PNG or binary PBM bytes.
+ *
+ * The buffers are kept from one QR code to the next, so a raster is meant to be reused, but by one thread at a time.
+ */
+public final class QRRaster
+{
+	public static final int DEFAULT_QUIET_ZONE = 4;	// The quiet zone is 4 modules wide
+
+	private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	private static final int PNG_BIT_DEPTH = 1;
+	private static final int PNG_GRAYSCALE = 0;
+	private static final int PNG_NO_FILTER = 0;
+
+	private final int scale;
+	private final int quietZone;
+
+	// Reused from one QR code to the next
+	private BufferedImage image;
+	private byte[] pixels = new byte[0];
+	private byte[] deflated = new byte[1 << 12];
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * @param scale
+	 * 			the number of pixels on each side of a module
+	 * @param quietZone
+	 * 			the number of light modules around the QR code
+	 */
+	public QRRaster(int scale, int quietZone)
+	{
+		if (scale < 1 || quietZone < 0)
+		{
+			throw new IllegalArgumentException("The scale has to be positive and the quiet zone can not be negative");
+		}
+		this.scale = scale;
+		this.quietZone = quietZone;
+	}
+
+	/**
+	 * @return the number of pixels on each side of the raster of a matrix
+	 */
+	public int width(QRMatrix matrix)
+	{
+		return (matrix.size() + 2 * quietZone) * scale;
+	}
+
+	/**
+	 * Draw the QR code in a 1-bit image, black and white.
+	 * The image is reused by the next call for a QR code of the same size : copy it to keep it.
+	 * @param matrix
+	 * 			the QR code
+	 * @return the image of the QR code
+	 */
+	public BufferedImage toImage(QRMatrix matrix)
+	{
+		int width = width(matrix);
+		if (image == null || image.getWidth() != width)
+		{
+			image = new BufferedImage(width, width, BufferedImage.TYPE_BYTE_BINARY);
+		}
+
+		// The default palette of the 1-bit image is 0 for black and 1 for white
+		byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		pack(matrix, data, 0, (width + 7) / 8, false);
+
+		return image;
+	}
+
+	/**
+	 * Write the QR code as a binary PBM (P4) image
+	 * @param matrix
+	 * 			the QR code
+	 * @param out
+	 * 			the stream receiving the image, left open
+	 */
+	public void writePBM(QRMatrix matrix, OutputStream out) throws IOException
+	{
+		int width = width(matrix);
+		int stride = (width + 7) / 8;
+
+		out.write(("P4\n" + width + " " + width + "\n").getBytes(StandardCharsets.US_ASCII));
+
+		// In PBM, 1 is black
+		byte[] data = pixels(stride * width);
+		pack(matrix, data, 0, stride, true);
+
+		out.write(data, 0, stride * width);
+	}
+
+	/**
+	 * Write the QR code as a 1-bit grayscale PNG image
+	 * @param matrix
+	 * 			the QR code
+	 * @param out
+	 * 			the stream receiving the image, left open
+	 */
+	public void writePNG(QRMatrix matrix, OutputStream out) throws IOException
+	{
+		int width = width(matrix);
+		int stride = (width + 7) / 8;
+
+		out.write(PNG_SIGNATURE);
+
+		byte[] header = new byte[13];
+		putInt(header, 0, width);
+		putInt(header, 4, width);
+		header[8] = PNG_BIT_DEPTH;
+		header[9] = PNG_GRAYSCALE;	// Compression, filter and interlace methods stay 0
+		writeChunk(out, "IHDR", header, header.length);
+
+		// Every line starts with its filter type, followed by its pixels, 0 being black
+		byte[] data = pixels((stride + 1) * width);
+		pack(matrix, data, 1, stride + 1, false);
+		for (int line = 0; line < width; line++)
+		{
+			data[line * (stride + 1)] = PNG_NO_FILTER;
+		}
+
+		deflater.reset();
+		deflater.setInput(data, 0, (stride + 1) * width);
+		deflater.finish();
+
+		int length = 0;
+		while (!deflater.finished())
+		{
+			if (length == deflated.length)
+			{
+				deflated = Arrays.copyOf(deflated, 2 * length);
+			}
+			length += deflater.deflate(deflated, length, deflated.length - length);
+		}
+		writeChunk(out, "IDAT", deflated, length);
+
+		writeChunk(out, "IEND", deflated, 0);
+	}
+
+	/**
+	 * Pack the pixels of the QR code, one line of pixels every lineLength bytes
+	 * @param data
+	 * 			the array receiving the pixels
+	 * @param offset
+	 * 			the index of the first byte of pixels of the first line
+	 * @param lineLength
+	 * 			the distance between two lines, in bytes
+	 * @param darkIsOne
+	 * 			whether dark modules are 1 bits and light ones 0 bits, or the opposite
+	 */
+	private void pack(QRMatrix matrix, byte[] data, int offset, int lineLength, boolean darkIsOne)
+	{
+		int size = matrix.size();
+		int width = width(matrix);
+		int stride = (width + 7) / 8;
+		byte light = darkIsOne ? 0 : (byte) 0xFF;
+
+		// Quiet zone above and below
+		for (int line = 0; line < quietZone * scale; line++)
+		{
+			Arrays.fill(data, offset + line * lineLength, offset + line * lineLength + stride, light);
+			Arrays.fill(data, offset + (width - 1 - line) * lineLength, offset + (width - 1 - line) * lineLength + stride, light);
+		}
+
+		for (int y = 0; y < size; y++)
+		{
+			int firstLine = (quietZone + y) * scale;
+			int start = offset + firstLine * lineLength;
+
+			// Pack the first line of pixels of the modules, light everywhere but on the dark modules
+			Arrays.fill(data, start, start + stride, light);
+			for (int x = 0; x < size; x++)
+			{
+				if (matrix.isDark(x, y))
+				{
+					fillRun(data, start, (quietZone + x) * scale, scale, darkIsOne);
+				}
+			}
+
+			// The other lines of pixels of the modules are the same
+			for (int line = 1; line < scale; line++)
+			{
+				System.arraycopy(data, start, data, start + line * lineLength, stride);
+			}
+		}
+	}
+
+	/**
+	 * Set or clear length bits from bit position from of the line starting at index start, most significant bit first
+	 */
+	private static void fillRun(byte[] data, int start, int from, int length, boolean one)
+	{
+		int end = from + length;
+
+		// Partial byte at the start of the run
+		while (from < end && (from & 0b111) != 0)
+		{
+			setBit(data, start, from++, one);
+		}
+
+		// Whole bytes
+		int wholeBytes = (end - from) >>> 3;
+		if (wholeBytes > 0)
+		{
+			Arrays.fill(data, start + (from >>> 3), start + (from >>> 3) + wholeBytes, one ? (byte) 0xFF : 0);
+			from += wholeBytes << 3;
+		}
+
+		// Partial byte at the end of the run
+		while (from < end)
+		{
+			setBit(data, start, from++, one);
+		}
+	}
+
+	private static void setBit(byte[] data, int start, int position, boolean one)
+	{
+		int mask = 0x80 >>> (position & 0b111);
+		if (one)
+		{
+			data[start + (position >>> 3)] |= mask;
+		}
+		else
+		{
+			data[start + (position >>> 3)] &= ~mask;
+		}
+	}
+
+	/**
+	 * @return the pixel buffer, grown to at least the given length
+	 */
+	private byte[] pixels(int length)
+	{
+		if (pixels.length < length)
+		{
+			pixels = new byte[length];
+		}
+		return pixels;
+	}
+
+	private void writeChunk(OutputStream out, String type, byte[] data, int length) throws IOException
+	{
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		byte[] number = new byte[4];
+
+		putInt(number, 0, length);
+		out.write(number);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+
+		// The CRC covers the type and the data
+		crc.reset();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		putInt(number, 0, (int) crc.getValue());
+		out.write(number);
+	}
+
+	private static void putInt(byte[] bytes, int index, int value)
+	{
+		bytes[index] = (byte) (value >>> 24);
+		bytes[index + 1] = (byte) (value >>> 16);
+		bytes[index + 2] = (byte) (value >>> 8);
+		bytes[index + 3] = (byte) value;
+	}
+}
@@ -0,0 +1,162 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package qrcode;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import qrcode.QRCodeInfos.CorrectionLvl;
+
+/**
+ * Everything about the matrix of a QR code that only depends on its version and error correction level,
+ * computed once per version and level.
+ *
+ * For every mask, the template holds the function patterns and format information, already packed and reserved,
+ * as well as the modules that the mask inverts. It also holds the bit positions of the data modules in zig-zag order,
+ * so that rendering a QR code is a copy, a scatter of the data bits, and a xor with the mask.
+ *
+ * Templates are immutable and shared between threads.
+ */
+final class QRTemplate
+{
+	private static final int MAX_VERSION = 40;
+	private static final int LEVELS = CorrectionLvl.values().length;
+
+	// TEMPLATES[v * LEVELS + l] holds the template of version v and level l, filled lazily
+	private static final AtomicReferenceArray<QRTemplate> TEMPLATES = new AtomicReferenceArray<>((MAX_VERSION + 1) * LEVELS);
+
+	private final QRMatrix[] bases;		// Function patterns and format information of every mask, data modules light
+	private final QRMatrix[] masks;		// Data modules inverted by every mask
+	private final int[] dataPositions;	// Bit positions of the data modules, in the order the data is placed
+
+	private QRTemplate(int version, CorrectionLvl level)
+	{
+		bases = new QRMatrix[MatrixConstruction.NUMBER_OF_MASKS];
+		masks = new QRMatrix[MatrixConstruction.NUMBER_OF_MASKS];
+
+		for (int mask = 0; mask < MatrixConstruction.NUMBER_OF_MASKS; mask++)
+		{
+			bases[mask] = QRMatrix.of(MatrixConstruction.constructMatrix(version, level, mask));
+		}
+
+		// The function patterns are the same for every mask, only the format information changes
+		int size = bases[0].size();
+		int[] dataModules = MatrixConstruction.dataModuleOrder(bases[0]);
+
+		dataPositions = new int[dataModules.length];
+		for (int i = 0; i < dataModules.length; i++)
+		{
+			dataPositions[i] = bases[0].bitPosition(dataModules[i] / size, dataModules[i] % size);
+		}
+
+		for (int mask = 0; mask < MatrixConstruction.NUMBER_OF_MASKS; mask++)
+		{
+			masks[mask] = new QRMatrix(size);
+			for (int module : dataModules)
+			{
+				int x = module / size;
+				int y = module % size;
+				masks[mask].set(x, y, MatrixConstruction.isMasked(x, y, mask));
+			}
+		}
+	}
+
+	/**
+	 * Return the template of the given version and level, computing it the first time it is asked for
+	 * @param version
+	 * 			the version of the QR code, between 1 and 40
+	 * @param level
+	 * 			the error correction level written in the format information
+	 * @return the shared template of the version and level
+	 */
+	static QRTemplate of(int version, CorrectionLvl level)
+	{
+		if (version < 1 || version > MAX_VERSION)
+		{
+			throw new IllegalArgumentException("The version has to be between 1 and " + MAX_VERSION);
+		}
+
+		int index = version * LEVELS + level.ordinal();
+
+		QRTemplate template = TEMPLATES.get(index);
+		if (template == null)
+		{
+			// Building the same template twice is harmless, so concurrent callers do not need to wait on each other
+			TEMPLATES.compareAndSet(index, null, new QRTemplate(version, level));
+			template = TEMPLATES.get(index);
+		}
+		return template;
+	}
+
+	/**
+	 * @return a new matrix holding the function patterns and format information of the mask, with light data modules
+	 */
+	QRMatrix base(int mask)
+	{
+		return bases[checkMask(mask)].copy();
+	}
+
+	/**
+	 * Render a QR code. The data modules past the end of the data are light before masking.
+	 * @param data
+	 * 			the bits to place in the data modules
+	 * @param mask
+	 * 			the mask, between 0 and 7
+	 * @return a new matrix holding the QR code
+	 */
+	QRMatrix render(boolean[] data, int mask)
+	{
+		QRMatrix matrix = bases[checkMask(mask)].copy();
+
+		int length = Math.min(data.length, dataPositions.length);
+		for (int i = 0; i < length; i++)
+		{
+			if (data[i])
+			{
+				matrix.setDark(dataPositions[i]);
+			}
+		}
+
+		matrix.xor(masks[mask]);
+
+		return matrix;
+	}
+
+	/**
+	 * Read the codewords back from a QR code, the inverse of render : the data modules are unmasked
+	 * and read in zig-zag order. The remainder bits after the last full codeword are ignored.
+	 * @param matrix
+	 * 			a QR code of the version of the template
+	 * @param mask
+	 * 			the mask of the QR code, between 0 and 7
+	 * @param codewords
+	 * 			the array receiving the codewords, at most as many as the data modules hold
+	 */
+	void read(QRMatrix matrix, int mask, int[] codewords)
+	{
+		QRMatrix maskPattern = masks[checkMask(mask)];
+
+		for (int i = 0; i < codewords.length; i++)
+		{
+			int codeword = 0;
+			for (int bit = i * Byte.SIZE; bit < (i + 1) * Byte.SIZE; bit++)
+			{
+				int position = dataPositions[bit];
+				boolean dark = matrix.isDark(position) ^ maskPattern.isDark(position);
+				codeword = (codeword << 1) | (dark ? 1 : 0);
+			}
+			codewords[i] = codeword;
+		}
+	}
+
+	private static int checkMask(int mask)
+	{
+		if (mask < 0 || mask >= MatrixConstruction.NUMBER_OF_MASKS)
+		{
+			throw new IllegalArgumentException("The mask has to be between 0 and 7");
+		}
+		return mask;
+	}
+}
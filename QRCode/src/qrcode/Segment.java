@@ -0,0 +1,288 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package qrcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import qrcode.QRCodeInfos.Mode;
+
+/**
+ * A run of ISO-8859-1 bytes of the message that is encoded in a single mode.
+ *
+ * plan splits a message into the sequence of segments with the fewest bits : digits are packed 3 in 10 bits,
+ * uppercase letters, digits and " $%*+-./:" 2 in 11 bits, and everything else 1 in 8 bits,
+ * every segment paying for its mode indicator and character count.
+ */
+final class Segment
+{
+	// The characters of the alphanumeric mode, in the order of their values
+	private static final String ALPHANUMERIC_CHARSET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+	// ALPHANUMERIC_VALUES[b] is the value of byte b in alphanumeric mode, -1 if it has none
+	private static final int[] ALPHANUMERIC_VALUES = new int[256];
+	static
+	{
+		Arrays.fill(ALPHANUMERIC_VALUES, -1);
+		for (int i = 0; i < ALPHANUMERIC_CHARSET.length(); i++)
+		{
+			ALPHANUMERIC_VALUES[ALPHANUMERIC_CHARSET.charAt(i)] = i;
+		}
+	}
+
+	/*
+	 * The planner counts in sixths of a bit, so that every mode costs a whole number per character :
+	 * 10/3 bits per digit, 11/2 bits per alphanumeric character and 8 bits per byte.
+	 */
+	private static final int SIXTHS = 6;
+	private static final int[] CHARACTER_COSTS = {20, 33, 48};
+
+	private final Mode mode;
+	private final byte[] data;
+	private final int start;
+	private final int length;
+
+	private Segment(Mode mode, byte[] data, int start, int length)
+	{
+		this.mode = mode;
+		this.data = data;
+		this.start = start;
+		this.length = length;
+	}
+
+	/**
+	 * @return the mode of the segment
+	 */
+	Mode mode()
+	{
+		return mode;
+	}
+
+	/**
+	 * @return the number of characters of the segment
+	 */
+	int length()
+	{
+		return length;
+	}
+
+	/**
+	 * @return the number of bits of the segment in a QR code of the given version, header included
+	 */
+	int bitLength(int version)
+	{
+		int headerBits = 4 + QRCodeInfos.getCharacterCountBits(version, mode);
+
+		switch (mode)
+		{
+		case NUMERIC:		return headerBits + 10 * (length / 3) + (length % 3 == 0 ? 0 : 1 + 3 * (length % 3));
+		case ALPHANUMERIC:	return headerBits + 11 * (length / 2) + 6 * (length % 2);
+		default:			return headerBits + Byte.SIZE * length;
+		}
+	}
+
+	/**
+	 * @return the number of bits of all the segments, headers included
+	 */
+	static int bitLength(List<Segment> segments, int version)
+	{
+		int bits = 0;
+		for (Segment segment : segments)
+		{
+			bits += segment.bitLength(version);
+		}
+		return bits;
+	}
+
+	/**
+	 * Write the mode indicator, the character count and the characters of the segment
+	 * @param buffer
+	 * 			the buffer to append to
+	 * @param version
+	 * 			the version of the QR code, which sets the length of the character count
+	 */
+	void appendTo(BitBuffer buffer, int version)
+	{
+		buffer.append(QRCodeInfos.getModeIndicator(mode), 4);
+		buffer.append(length, QRCodeInfos.getCharacterCountBits(version, mode));
+
+		int end = start + length;
+		switch (mode)
+		{
+		case NUMERIC:
+			// Groups of 3 digits in 10 bits, the last 1 or 2 digits in 4 or 7 bits
+			for (int i = start; i < end; i += 3)
+			{
+				int digits = Math.min(3, end - i);
+				int value = 0;
+				for (int j = i; j < i + digits; j++)
+				{
+					value = value * 10 + (data[j] - '0');
+				}
+				buffer.append(value, 1 + 3 * digits);
+			}
+			break;
+		case ALPHANUMERIC:
+			// Pairs of characters in 11 bits, the last one alone in 6 bits
+			for (int i = start; i < end; i += 2)
+			{
+				if (i + 1 < end)
+				{
+					buffer.append(45 * alphanumericValue(data[i]) + alphanumericValue(data[i + 1]), 11);
+				}
+				else
+				{
+					buffer.append(alphanumericValue(data[i]), 6);
+				}
+			}
+			break;
+		default:
+			for (int i = start; i < end; i++)
+			{
+				buffer.append(Byte.toUnsignedInt(data[i]), Byte.SIZE);
+			}
+		}
+	}
+
+	/**
+	 * Split the data into the segments that encode it in the fewest bits for the given version.
+	 *
+	 * After every character, the planner keeps for each mode the cheapest encoding of the characters so far
+	 * that ends with a segment of that mode. A segment may then go on with the next character, or be closed,
+	 * rounding its cost up to a whole bit, so that a segment of another mode starts.
+	 *
+	 * @param data
+	 * 			the ISO-8859-1 bytes of the message
+	 * @param version
+	 * 			the version of the QR code, which sets the cost of the segment headers
+	 * @return the segments in order, none for an empty message
+	 */
+	static List<Segment> plan(byte[] data, int version)
+	{
+		Mode[] modes = Mode.values();
+		int n = data.length;
+
+		int[] headerCosts = new int[modes.length];
+		int[] costs = new int[modes.length];
+		for (Mode mode : modes)
+		{
+			headerCosts[mode.ordinal()] = (4 + QRCodeInfos.getCharacterCountBits(version, mode)) * SIXTHS;
+			costs[mode.ordinal()] = headerCosts[mode.ordinal()];
+		}
+
+		// charModes[i][m] is the mode of character i in the cheapest encoding whose segment is in mode m after character i
+		byte[][] charModes = new byte[n][modes.length];
+
+		for (int i = 0; i < n; i++)
+		{
+			int[] nextCosts = new int[modes.length];
+
+			// Go on with the current segment of every mode able to encode the character
+			for (Mode mode : modes)
+			{
+				int m = mode.ordinal();
+				if (canEncode(mode, data[i]))
+				{
+					nextCosts[m] = costs[m] + CHARACTER_COSTS[m];
+					charModes[i][m] = (byte) m;
+				}
+				else
+				{
+					nextCosts[m] = Integer.MAX_VALUE;
+					charModes[i][m] = -1;
+				}
+			}
+
+			// Or close it and start a segment of another mode
+			int[] closedCosts = nextCosts.clone();
+			for (int to = 0; to < modes.length; to++)
+			{
+				for (int from = 0; from < modes.length; from++)
+				{
+					if (from != to && charModes[i][from] == from)
+					{
+						int cost = roundUp(closedCosts[from]) + headerCosts[to];
+						if (cost < nextCosts[to])
+						{
+							nextCosts[to] = cost;
+							charModes[i][to] = (byte) from;
+						}
+					}
+				}
+			}
+
+			costs = nextCosts;
+		}
+
+		// Start from the cheapest ending, then walk the characters backwards
+		int mode = 0;
+		for (int m = 1; m < modes.length; m++)
+		{
+			if (roundUp(costs[m]) < roundUp(costs[mode]))
+			{
+				mode = m;
+			}
+		}
+
+		byte[] chosen = new byte[n];
+		for (int i = n - 1; i >= 0; i--)
+		{
+			mode = charModes[i][mode];
+			chosen[i] = (byte) mode;
+		}
+
+		// Group the characters of the same mode
+		List<Segment> segments = new ArrayList<>();
+		for (int start = 0; start < n; )
+		{
+			int end = start + 1;
+			while (end < n && chosen[end] == chosen[start])
+			{
+				end++;
+			}
+			segments.add(new Segment(modes[chosen[start]], data, start, end - start));
+			start = end;
+		}
+
+		return segments;
+	}
+
+	/**
+	 * @return the cost rounded up to a whole number of bits
+	 */
+	private static int roundUp(int cost)
+	{
+		if (cost == Integer.MAX_VALUE)
+		{
+			return cost;
+		}
+		return (cost + SIXTHS - 1) / SIXTHS * SIXTHS;
+	}
+
+	private static boolean canEncode(Mode mode, byte b)
+	{
+		switch (mode)
+		{
+		case NUMERIC:		return b >= '0' && b <= '9';
+		case ALPHANUMERIC:	return alphanumericValue(b) >= 0;
+		default:			return true;
+		}
+	}
+
+	/**
+	 * @return the character of the given value in alphanumeric mode
+	 */
+	static char alphanumericChar(int value)
+	{
+		return ALPHANUMERIC_CHARSET.charAt(value);
+	}
+
+	private static int alphanumericValue(byte b)
+	{
+		return ALPHANUMERIC_VALUES[Byte.toUnsignedInt(b)];
+	}
+}
@@ -0,0 +1,119 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package reedsolomon;
+
+/**
+ * Primitive arithmetic in GF(256), the field used by the QR code Reed-Solomon codes.
+ *
+ * Elements are plain integers between 0 and 255. Multiplication and division go through
+ * precomputed exponential and logarithm tables, so no object is ever created.
+ */
+public final class GaloisField
+{
+	public static final int SIZE = 256;
+
+	// The primitive polynomial x^8 + x^4 + x^3 + x^2 + 1 used by QR codes
+	private static final int PRIMITIVE_POLYNOMIAL = 285;
+
+	// EXP[i] = alpha^i. The table is twice as long as needed so that EXP[LOG[a] + LOG[b]] never requires a modulo.
+	private static final int[] EXP = new int[2 * SIZE];
+
+	// LOG[alpha^i] = i. LOG[0] is undefined and left at 0.
+	private static final int[] LOG = new int[SIZE];
+
+	static
+	{
+		int n = 1;
+		for (int i = 0; i < SIZE - 1; i++)
+		{
+			EXP[i] = n;
+			LOG[n] = i;
+
+			n <<= 1;
+			if (n >= SIZE)
+			{
+				n ^= PRIMITIVE_POLYNOMIAL;
+			}
+		}
+
+		// alpha^255 = 1, so the second half of the table repeats the first
+		for (int i = SIZE - 1; i < EXP.length; i++)
+		{
+			EXP[i] = EXP[i - (SIZE - 1)];
+		}
+	}
+
+	private GaloisField() {}
+
+	/**
+	 * @param power
+	 * 			a non-negative power of alpha, strictly smaller than 510
+	 * @return alpha to the given power
+	 */
+	public static int exp(int power)
+	{
+		return EXP[power];
+	}
+
+	/**
+	 * @param value
+	 * 			a non-zero element of the field
+	 * @return the power of alpha equal to value, between 0 and 254
+	 */
+	public static int log(int value)
+	{
+		if (value == 0)
+		{
+			throw new IllegalArgumentException("The logarithm of 0 is undefined");
+		}
+		return LOG[value];
+	}
+
+	/**
+	 * Multiply two elements of the field
+	 * @param a
+	 * @param b
+	 * @return the product a * b in GF(256)
+	 */
+	public static int multiply(int a, int b)
+	{
+		if (a == 0 || b == 0)
+		{
+			return 0;
+		}
+		return EXP[LOG[a] + LOG[b]];
+	}
+
+	/**
+	 * Divide two elements of the field
+	 * @param a
+	 * @param b
+	 * 			a non-zero element
+	 * @return the quotient a / b in GF(256)
+	 */
+	public static int divide(int a, int b)
+	{
+		if (b == 0)
+		{
+			throw new ArithmeticException("Division by 0 in GF(256)");
+		}
+		if (a == 0)
+		{
+			return 0;
+		}
+		return EXP[LOG[a] + (SIZE - 1) - LOG[b]];
+	}
+
+	/**
+	 * @param a
+	 * 			a non-zero element
+	 * @return the multiplicative inverse of a in GF(256)
+	 */
+	public static int inverse(int a)
+	{
+		return divide(1, a);
+	}
+}
@@ -0,0 +1,102 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package reedsolomon;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the throughput of {@link ErrorCorrectionEncoding} and {@link ReedSolomonEncoder},
+ * after checking that both produce the same codewords.
+ */
+public final class ReedSolomonBenchmark
+{
+	/*
+	 * Parameters
+	 */
+	private static final int SEED = 42;
+	private static final int MESSAGES = 2000;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 10;
+
+	// Data and ECC lengths of QR versions 1 to 4 at level L
+	private static final int[] DATA_LENGTHS = {19, 34, 55, 80};
+	private static final int[] ECC_LENGTHS = {7, 10, 15, 20};
+
+	public static void main(String[] args)
+	{
+		Random random = new Random(SEED);
+
+		for (int v = 0; v < DATA_LENGTHS.length; v++)
+		{
+			int[][] messages = new int[MESSAGES][DATA_LENGTHS[v]];
+			for (int[] message : messages)
+			{
+				for (int i = 0; i < message.length; i++)
+				{
+					message[i] = random.nextInt(GaloisField.SIZE);
+				}
+			}
+
+			// Both encoders must agree before their speed is compared
+			for (int[] message : messages)
+			{
+				if (!Arrays.equals(ErrorCorrectionEncoding.encode(message, ECC_LENGTHS[v]), ReedSolomonEncoder.encode(message, ECC_LENGTHS[v])))
+				{
+					throw new AssertionError("The encoders disagree on " + Arrays.toString(message));
+				}
+			}
+
+			double reference = measure(messages, ECC_LENGTHS[v], false);
+			double tableDriven = measure(messages, ECC_LENGTHS[v], true);
+
+			System.out.printf("data=%3d ecc=%2d  reference: %10.0f codes/s  table-driven: %10.0f codes/s  (x%.1f)%n",
+					DATA_LENGTHS[v], ECC_LENGTHS[v], reference, tableDriven, tableDriven / reference);
+		}
+	}
+
+	/**
+	 * Encode every message ROUNDS times, after WARMUP_ROUNDS untimed rounds
+	 * @return the number of messages encoded per second
+	 */
+	private static double measure(int[][] messages, int eccLength, boolean tableDriven)
+	{
+		int[] ecc = new int[eccLength];
+		int checksum = 0;
+		long start = 0;
+
+		for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++)
+		{
+			if (round == WARMUP_ROUNDS)
+			{
+				start = System.nanoTime();
+			}
+
+			for (int[] message : messages)
+			{
+				if (tableDriven)
+				{
+					ReedSolomonEncoder.encode(message, 0, message.length, eccLength, ecc, 0);
+				}
+				else
+				{
+					ecc = ErrorCorrectionEncoding.encode(message, eccLength);
+				}
+				checksum ^= ecc[0];
+			}
+		}
+
+		long elapsed = System.nanoTime() - start;
+
+		// Keeps the JIT from discarding the work
+		if (checksum == Integer.MIN_VALUE)
+		{
+			System.out.println(checksum);
+		}
+
+		return (double) messages.length * ROUNDS / (elapsed / 1e9);
+	}
+}
@@ -0,0 +1,237 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package reedsolomon;
+
+/**
+ * Reed-Solomon decoder for the codewords produced by {@link ReedSolomonEncoder} and {@link ErrorCorrectionEncoding}.
+ *
+ * The syndromes are the values of the received polynomial at the roots a^0 ... a^(n-1) of the generator polynomial.
+ * When one of them is not 0, the error locator polynomial is found with the Berlekamp-Massey algorithm,
+ * its roots (the error positions) with a Chien search, and the error values with the Forney algorithm.
+ * Up to n / 2 wrong codewords are corrected.
+ */
+public final class ReedSolomonDecoder
+{
+	// Returned when there are more errors than the error correction codewords can fix
+	public static final int UNCORRECTABLE = -1;
+
+	private static final int ORDER = GaloisField.SIZE - 1;	// alpha^255 = 1
+
+	private ReedSolomonDecoder() {}
+
+	/**
+	 * Correct the block codewords[offset .. offset + length[, made of data codewords followed by eccLength error correction codewords.
+	 * @param codewords
+	 * 			the array containing the block, corrected in place
+	 * @param offset
+	 * 			the index of the first codeword of the block
+	 * @param length
+	 * 			the number of codewords of the block, error correction included. At most 255.
+	 * @param eccLength
+	 * 			the number of error correction codewords at the end of the block
+	 * @return the number of codewords that were corrected, or UNCORRECTABLE. The block is left as it was when it is uncorrectable.
+	 */
+	public static int decode(int[] codewords, int offset, int length, int eccLength)
+	{
+		if (length > ORDER || eccLength > length)
+		{
+			throw new IllegalArgumentException("A block holds at most " + ORDER + " codewords, error correction included");
+		}
+
+		// Step 1 : Syndromes, evaluated with Horner's method. The first codeword has the highest degree.
+		int[] syndromes = new int[eccLength];
+		boolean hasErrors = false;
+		for (int i = 0; i < eccLength; i++)
+		{
+			int root = GaloisField.exp(i);
+			int value = 0;
+			for (int j = offset; j < offset + length; j++)
+			{
+				value = GaloisField.multiply(value, root) ^ codewords[j];
+			}
+			syndromes[i] = value;
+			hasErrors |= value != 0;
+		}
+
+		if (!hasErrors)
+		{
+			return 0;
+		}
+
+		// Step 2 : Error locator polynomial, lowest degree first
+		int[] locator = berlekampMassey(syndromes);
+		int errors = degree(locator);
+		if (2 * errors > eccLength)
+		{
+			return UNCORRECTABLE;
+		}
+
+		// Step 3 : Chien search. The codeword at index j is the coefficient of x^(length - 1 - j),
+		// and it is wrong when the locator has a root at alpha^-(length - 1 - j).
+		int[] positions = new int[errors];
+		int found = 0;
+		for (int j = 0; j < length; j++)
+		{
+			int power = length - 1 - j;
+			if (evaluate(locator, GaloisField.exp((ORDER - power) % ORDER)) == 0)
+			{
+				if (found == errors)
+				{
+					return UNCORRECTABLE;
+				}
+				positions[found++] = j;
+			}
+		}
+		if (found != errors)
+		{
+			return UNCORRECTABLE;
+		}
+
+		// Step 4 : Forney algorithm, with the evaluator polynomial S(x) * locator(x) mod x^eccLength
+		int[] evaluator = new int[eccLength];
+		for (int k = 0; k < eccLength; k++)
+		{
+			for (int i = 0; i <= k && i < locator.length; i++)
+			{
+				evaluator[k] ^= GaloisField.multiply(syndromes[k - i], locator[i]);
+			}
+		}
+
+		int[] values = new int[errors];
+		for (int e = 0; e < errors; e++)
+		{
+			int power = length - 1 - positions[e];
+			int inverse = GaloisField.exp((ORDER - power) % ORDER);
+
+			// The formal derivative only keeps the odd terms in characteristic 2
+			int derivative = 0;
+			for (int i = 1; i < locator.length; i += 2)
+			{
+				derivative ^= GaloisField.multiply(locator[i], power(inverse, i - 1));
+			}
+			if (derivative == 0)
+			{
+				return UNCORRECTABLE;
+			}
+
+			// The first root of the generator is alpha^0, hence the extra factor X = alpha^power
+			values[e] = GaloisField.multiply(GaloisField.exp(power), GaloisField.divide(evaluate(evaluator, inverse), derivative));
+		}
+
+		for (int e = 0; e < errors; e++)
+		{
+			codewords[offset + positions[e]] ^= values[e];
+		}
+
+		return errors;
+	}
+
+	/**
+	 * Find the shortest linear feedback shift register generating the syndromes
+	 * @param syndromes
+	 * 			the syndromes, at least one of them not 0
+	 * @return the error locator polynomial, lowest degree first
+	 */
+	private static int[] berlekampMassey(int[] syndromes)
+	{
+		int n = syndromes.length;
+
+		int[] locator = new int[n + 1];
+		int[] previous = new int[n + 1];
+		locator[0] = 1;
+		previous[0] = 1;
+
+		int length = 0;			// Current number of errors
+		int shift = 1;			// Steps since previous was last updated
+		int previousDiscrepancy = 1;
+
+		for (int k = 0; k < n; k++)
+		{
+			// How far the register is from producing the next syndrome
+			int discrepancy = syndromes[k];
+			for (int i = 1; i <= length; i++)
+			{
+				discrepancy ^= GaloisField.multiply(locator[i], syndromes[k - i]);
+			}
+
+			if (discrepancy == 0)
+			{
+				shift++;
+				continue;
+			}
+
+			int factor = GaloisField.divide(discrepancy, previousDiscrepancy);
+
+			if (2 * length <= k)
+			{
+				int[] saved = locator.clone();
+
+				subtractShifted(locator, previous, factor, shift);
+
+				length = k + 1 - length;
+				previous = saved;
+				previousDiscrepancy = discrepancy;
+				shift = 1;
+			}
+			else
+			{
+				subtractShifted(locator, previous, factor, shift);
+				shift++;
+			}
+		}
+
+		return locator;
+	}
+
+	/**
+	 * poly -= factor * x^shift * other
+	 */
+	private static void subtractShifted(int[] poly, int[] other, int factor, int shift)
+	{
+		for (int i = shift; i < poly.length; i++)
+		{
+			poly[i] ^= GaloisField.multiply(factor, other[i - shift]);
+		}
+	}
+
+	/**
+	 * @return the degree of the polynomial, lowest degree first
+	 */
+	private static int degree(int[] poly)
+	{
+		int degree = poly.length - 1;
+		while (degree > 0 && poly[degree] == 0)
+		{
+			degree--;
+		}
+		return degree;
+	}
+
+	/**
+	 * @return the value of the polynomial, lowest degree first, at x
+	 */
+	private static int evaluate(int[] poly, int x)
+	{
+		int value = 0;
+		for (int i = poly.length - 1; i >= 0; i--)
+		{
+			value = GaloisField.multiply(value, x) ^ poly[i];
+		}
+		return value;
+	}
+
+	/**
+	 * @return x to the given non-negative power
+	 */
+	private static int power(int x, int exponent)
+	{
+		if (exponent == 0)
+		{
+			return 1;
+		}
+		return GaloisField.exp(GaloisField.log(x) * exponent % ORDER);
+	}
+}
@@ -0,0 +1,146 @@
+/*  Authors:
+*	Orfeas Liossatos (oiliossatos@gmail.com)
+*	Lionel Pham (https://www.ph4m.online/)
+*/
+
+package reedsolomon;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Table-driven Reed-Solomon encoder producing the same codewords as {@link ErrorCorrectionEncoding#encode(int[], int)}.
+ *
+ * The remainder of the polynomial division is computed in place like a linear feedback shift register,
+ * and the generator polynomial of every ECC length is only computed once.
+ */
+public final class ReedSolomonEncoder
+{
+	// A Reed-Solomon codeword in GF(256) is at most 255 bytes long
+	public static final int MAX_ECC_LENGTH = GaloisField.SIZE - 2;
+
+	// Marks a zero coefficient in a generator polynomial stored in logarithmic form
+	private static final int ZERO_COEFFICIENT = -1;
+
+	// GENERATORS[n] holds the generator polynomial for n error correction codewords, filled lazily
+	private static final AtomicReferenceArray<int[]> GENERATORS = new AtomicReferenceArray<>(MAX_ECC_LENGTH + 1);
+
+	private ReedSolomonEncoder() {}
+
+	/**
+	 * Generate a given number of error correction codewords for the given sequence of bytes
+	 * @param messageCodeWords
+	 * 			the sequence of bytes from which the ECC are generated
+	 * @param eccLength
+	 * 			the number of ECC to generate
+	 * @return An array of ECC bytes for messageCodeWords
+	 */
+	public static int[] encode(int[] messageCodeWords, int eccLength)
+	{
+		int[] errorCodewords = new int[eccLength];
+		encode(messageCodeWords, 0, messageCodeWords.length, eccLength, errorCodewords, 0);
+		return errorCodewords;
+	}
+
+	/**
+	 * Generate eccLength error correction codewords for the bytes message[offset .. offset + length[
+	 * and write them to errorCodewords starting at eccOffset. Nothing is allocated.
+	 * @param message
+	 * 			the array containing the data codewords
+	 * @param offset
+	 * 			the index of the first data codeword
+	 * @param length
+	 * 			the number of data codewords
+	 * @param eccLength
+	 * 			the number of ECC to generate
+	 * @param errorCodewords
+	 * 			the array receiving the ECC. It may be the message array itself if both ranges do not overlap
+	 * @param eccOffset
+	 * 			the index at which the first ECC is written
+	 */
+	public static void encode(int[] message, int offset, int length, int eccLength, int[] errorCodewords, int eccOffset)
+	{
+		if (eccLength == 0)
+		{
+			return;
+		}
+
+		int[] generator = generatorPolynomial(eccLength);
+		int last = eccOffset + eccLength - 1;
+
+		// The ECC slots act as the shift register holding the remainder
+		for (int i = eccOffset; i <= last; i++)
+		{
+			errorCodewords[i] = 0;
+		}
+
+		for (int i = offset; i < offset + length; i++)
+		{
+			int factor = (message[i] & 0xFF) ^ errorCodewords[eccOffset];
+
+			// Shift the remainder by one term
+			System.arraycopy(errorCodewords, eccOffset + 1, errorCodewords, eccOffset, eccLength - 1);
+			errorCodewords[last] = 0;
+
+			// Subtract factor times the generator polynomial
+			if (factor != 0)
+			{
+				int logFactor = GaloisField.log(factor);
+				for (int j = 0; j < eccLength; j++)
+				{
+					if (generator[j] != ZERO_COEFFICIENT)
+					{
+						errorCodewords[eccOffset + j] ^= GaloisField.exp(generator[j] + logFactor);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the generator polynomial (x - a^0)(x - a^1)...(x - a^(n-1)), without its leading coefficient,
+	 * highest degree first. The coefficients are stored as powers of alpha.
+	 * @param eccLength
+	 * 			the number n of error correction codewords
+	 * @return the cached generator polynomial. It must not be modified.
+	 */
+	private static int[] generatorPolynomial(int eccLength)
+	{
+		if (eccLength < 1 || eccLength > MAX_ECC_LENGTH)
+		{
+			throw new IllegalArgumentException("The number of error correction codewords has to be between 1 and " + MAX_ECC_LENGTH);
+		}
+
+		int[] generator = GENERATORS.get(eccLength);
+		if (generator == null)
+		{
+			// Computing the same polynomial twice is harmless, so concurrent callers do not need to wait on each other
+			GENERATORS.compareAndSet(eccLength, null, computeGeneratorPolynomial(eccLength));
+			generator = GENERATORS.get(eccLength);
+		}
+		return generator;
+	}
+
+	private static int[] computeGeneratorPolynomial(int eccLength)
+	{
+		// Coefficients in normal form, highest degree first, starting with the polynomial 1
+		int[] poly = new int[eccLength + 1];
+		poly[0] = 1;
+
+		for (int i = 0; i < eccLength; i++)
+		{
+			// Multiply by (x - a^i), from the lowest degree coefficient upwards
+			int root = GaloisField.exp(i);
+			for (int j = i + 1; j > 0; j--)
+			{
+				poly[j] ^= GaloisField.multiply(poly[j - 1], root);
+			}
+		}
+
+		int[] generator = new int[eccLength];
+		for (int j = 0; j < eccLength; j++)
+		{
+			generator[j] = (poly[j + 1] == 0) ? ZERO_COEFFICIENT : GaloisField.log(poly[j + 1]);
+		}
+		return generator;
+	}
+}
@@ -0,0 +1,250 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Classe convertissant un catalogue HYG au format CSV vers le format binaire lu par {@link BinaryCatalogueLoader}.
+ * <p>
+ * Utilisation : {@code java ch.epfl.rigel.astronomy.BinaryCatalogueConverter hygdata_v3.csv hygdata_v3.bin}
+ * <p>
+ * Les programmes n'ont pas à le lancer : {@link #convertedNextTo(URL)} génère le catalogue binaire à côté de la ressource CSV 
+ * au premier lancement (ou lorsque le CSV ou le format ont changé), dans le répertoire de compilation, 
+ * et les lancements suivants le projettent en mémoire par {@link #loadStars(URL)}.
+ * <p>
+ * Publique, finale, non instanciable.
+ *
+ * @author Orfeas Liossatos (310738)
+ * @author Henrique Da Silva Gameiro (315689)
+ */
+public final class BinaryCatalogueConverter {
+
+    static final String BINARY_EXTENSION = ".bin";
+
+    private BinaryCatalogueConverter() {}
+
+    /**
+     * Convertit le catalogue HYG dont le chemin est le premier argument,
+     * en un catalogue binaire dont le chemin est le second argument.
+     * @param args
+     *          le chemin du catalogue HYG, puis celui du catalogue binaire
+     * @throws IOException
+     *          en cas d'erreur d'entrée/sortie.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Utilisation : BinaryCatalogueConverter <catalogue HYG> <catalogue binaire>");
+            System.exit(1);
+        }
+
+        try (InputStream hygStream = new FileInputStream(args[0]);
+                OutputStream binaryStream = new FileOutputStream(args[1])) {
+            convert(hygStream, binaryStream);
+        }
+    }
+
+    /**
+     * Retourne le catalogue binaire correspondant à la ressource CSV {@code hygResource}, à côté d'elle et de même nom 
+     * avec l'extension {@value #BINARY_EXTENSION}, en le générant d'abord s'il n'existe pas, est plus ancien que le CSV, 
+     * ou que son en-tête n'est pas celui de la version courante du format.
+     * Le fichier est écrit sous un nom temporaire puis renommé, de sorte qu'un lancement concurrent ne lise jamais un fichier incomplet.
+     * @param hygResource
+     *          l'URL de la ressource CSV, ou null
+     * @return
+     *          le chemin du catalogue binaire, ou rien si la ressource n'est pas un fichier (dans une archive JAR, par exemple)
+     *          ou que le catalogue binaire ne peut pas être écrit
+     */
+    public static Optional<Path> convertedNextTo(URL hygResource) {
+        if (hygResource == null || !"file".equals(hygResource.getProtocol())) {
+            return Optional.empty();
+        }
+
+        Path hyg;
+        try {
+            hyg = Paths.get(hygResource.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        String hygName = hyg.getFileName().toString();
+        int extension = hygName.lastIndexOf('.');
+        Path binary = hyg.resolveSibling((extension < 0 ? hygName : hygName.substring(0, extension)) + BINARY_EXTENSION);
+
+        try {
+            if (!Files.exists(binary) || Files.getLastModifiedTime(binary).compareTo(Files.getLastModifiedTime(hyg)) < 0
+                    || !hasCurrentHeader(binary)) {
+                Path temporary = Files.createTempFile(binary.getParent(), hygName, ".tmp");
+                try {
+                    try (InputStream hygStream = Files.newInputStream(hyg);
+                            OutputStream binaryStream = Files.newOutputStream(temporary)) {
+                        convert(hygStream, binaryStream);
+                    }
+                    Files.move(temporary, binary, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temporary);
+                }
+            }
+            return Optional.of(binary);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Retourne un bâtisseur contenant les étoiles de la ressource CSV {@code hygResource} : lues du catalogue binaire 
+     * de {@link #convertedNextTo(URL)} s'il existe, projeté en mémoire, et sinon analysées depuis le CSV.
+     * <p>
+     * Si le catalogue binaire est rejeté par {@link BinaryCatalogueLoader}, il est supprimé pour être regénéré 
+     * au lancement suivant, et les étoiles sont lues du CSV : un fichier corrompu ne peut pas empêcher le chargement.
+     * @param hygResource
+     *          l'URL de la ressource CSV
+     * @return
+     *          un nouveau bâtisseur contenant les étoiles du catalogue
+     * @throws IOException
+     *          si la ressource CSV n'existe pas ou ne peut pas être lue.
+     */
+    public static StarCatalogue.Builder loadStars(URL hygResource) throws IOException {
+        if (hygResource == null) {
+            throw new IOException("Catalogue HYG introuvable");
+        }
+
+        Optional<Path> binary = convertedNextTo(hygResource);
+        if (binary.isPresent()) {
+            // Un bâtisseur à part, pour ne pas garder les étoiles lues avant qu'une erreur soit détectée
+            try (InputStream binaryStream = new FileInputStream(binary.get().toFile())) {
+                return new StarCatalogue.Builder().loadFrom(binaryStream, BinaryCatalogueLoader.INSTANCE);
+            } catch (IOException e) {
+                try {
+                    Files.deleteIfExists(binary.get());
+                } catch (IOException ignored) {
+                    // Le catalogue sera lu du CSV à chaque lancement, comme sans catalogue binaire
+                }
+            }
+        }
+
+        try (InputStream hygStream = hygResource.openStream()) {
+            return new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE);
+        }
+    }
+
+    /**
+     * Retourne vrai si le fichier {@code binary} commence par l'en-tête de la version courante du format binaire.
+     */
+    private static boolean hasCurrentHeader(Path binary) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(binary))) {
+            return in.readInt() == BinaryCatalogueLoader.MAGIC && in.readInt() == BinaryCatalogueLoader.FORMAT_VERSION;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lit le catalogue HYG du flot {@code hygStream} et l'écrit au format binaire dans le flot {@code binaryStream}.
+     * @param hygStream
+     *          le flot du catalogue HYG, fermé à la fin de la lecture
+     * @param binaryStream
+     *          le flot recevant le catalogue binaire, laissé ouvert
+     * @throws IOException
+     *          en cas d'erreur d'entrée/sortie.
+     */
+    public static void convert(InputStream hygStream, OutputStream binaryStream) throws IOException {
+        StarCatalogue.Builder builder = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE);
+        write(builder.stars(), binaryStream);
+    }
+
+    /**
+     * Écrit les étoiles données au format binaire dans le flot {@code outputStream}.
+     * @param stars
+     *          les étoiles, dans l'ordre du catalogue
+     * @param outputStream
+     *          le flot recevant le catalogue binaire, laissé ouvert
+     * @throws IOException
+     *          en cas d'erreur d'entrée/sortie.
+     */
+    public static void write(List<Star> stars, OutputStream outputStream) throws IOException {
+        // Réservoir des chaînes : chaque nom ou type spectral n'y figure qu'une fois
+        Map<String, Integer> stringIndices = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int[] nameIndices = new int[stars.size()];
+        int[] specIndices = new int[stars.size()];
+        for (int i = 0; i < stars.size(); i++) {
+            nameIndices[i] = intern(stars.get(i).name(), stringIndices, strings);
+            specIndices[i] = intern(stars.get(i).spectralType(), stringIndices, strings);
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+
+        // En-tête
+        out.writeInt(BinaryCatalogueLoader.MAGIC);
+        out.writeInt(BinaryCatalogueLoader.FORMAT_VERSION);
+        out.writeInt(stars.size());
+        out.writeInt(strings.size());
+
+        // Colonnes
+        for (Star star : stars) {
+            out.writeDouble(star.equatorialPos().ra());
+        }
+        for (Star star : stars) {
+            out.writeDouble(star.equatorialPos().dec());
+        }
+        for (Star star : stars) {
+            out.writeFloat((float) star.magnitude());
+        }
+        for (Star star : stars) {
+            out.writeFloat((float) star.colorIndex());
+        }
+        for (Star star : stars) {
+            out.writeFloat((float) star.distance());
+        }
+        for (Star star : stars) {
+            out.writeInt(star.hipparcosId());
+        }
+        for (int nameIndex : nameIndices) {
+            out.writeInt(nameIndex);
+        }
+        for (int specIndex : specIndices) {
+            out.writeInt(specIndex);
+        }
+
+        // Réservoir des chaînes, précédé du début de chacune
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        out.writeInt(0);
+        for (String string : strings) {
+            pool.write(string.getBytes(StandardCharsets.UTF_8));
+            out.writeInt(pool.size());
+        }
+        pool.writeTo(out);
+
+        out.flush();
+    }
+
+    /**
+     * Retourne l'index de la chaîne donnée dans le réservoir, en l'y ajoutant si elle n'y figure pas encore.
+     */
+    private static int intern(String string, Map<String, Integer> stringIndices, List<String> strings) {
+        return stringIndices.computeIfAbsent(string, s -> {
+            strings.add(s);
+            return strings.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,155 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import ch.epfl.rigel.astronomy.StarCatalogue.Builder;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
+/**
+ * Type énuméré représentant un chargeur de catalogue d'étoiles au format binaire,
+ * produit par {@link BinaryCatalogueConverter} à partir du catalogue HYG.
+ * <p>
+ * Le fichier (gros-boutiste) est formé d'un en-tête, puis d'une colonne par attribut des étoiles,
+ * puis d'un réservoir de chaînes partagées par les noms et les types spectraux :
+ * <pre>
+ * int     MAGIC, FORMAT_VERSION, n (nombre d'étoiles), m (nombre de chaînes)
+ * double  ascension droite [n], déclinaison [n]  (en radians)
+ * float   magnitude [n], indice de couleur [n], distance [n]
+ * int     numéro Hipparcos [n], index du nom [n], index du type spectral [n]
+ * int     début de chaque chaîne [m + 1]  (en octets, depuis le début du réservoir)
+ * byte    réservoir des chaînes, en UTF-8
+ * </pre>
+ * Aucun texte n'est analysé au chargement : un flot de fichier est projeté en mémoire
+ * avec {@link FileChannel#map}, et les colonnes sont lues directement. Une étoile est toutefois
+ * toujours construite par ligne, le catalogue en cours de construction n'acceptant que des {@link Star}.
+ * Un fichier corrompu (comptes, débuts de chaînes ou index hors limites) lève IOException.
+ * <p>
+ * Publique, immuable.
+ *
+ * @author Orfeas Liossatos (310738)
+ * @author Henrique Da Silva Gameiro (315689)
+ */
+public enum BinaryCatalogueLoader implements StarCatalogue.Loader {
+
+    /**
+     * Un chargeur de catalogue binaire
+     */
+    INSTANCE;
+
+    // Format du fichier
+    static final int MAGIC          = 0x52474C43; // "RGLC"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES   = 4 * Integer.BYTES;
+    static final int STAR_BYTES     = 2 * Double.BYTES + 3 * Float.BYTES + 3 * Integer.BYTES;
+
+    /**
+     * Charge les étoiles du catalogue binaire {@code inputStream} et les ajoute
+     * au catalogue en cours de construction du bâtisseur {@code builder},
+     * ou lève IOException en cas d'erreur d'entrée/sortie ou si le flot n'est pas un catalogue binaire.
+     * Le flot est projeté en mémoire s'il s'agit d'un flot de fichier, et lu entièrement sinon.
+     * @param inputStream
+     *          le flot d'entrée
+     * @param builder
+     *          le bâtisseur de catalogue d'étoiles
+     * @throws IOException
+     *          en cas d'erreur d'entrée/sortie, ou si le flot n'est pas un catalogue binaire.
+     */
+    @Override
+    public void load(InputStream inputStream, Builder builder) throws IOException {
+        ByteBuffer buffer = (inputStream instanceof FileInputStream)
+                ? map(((FileInputStream) inputStream).getChannel())
+                : ByteBuffer.wrap(inputStream.readAllBytes());
+
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+            throw new IOException("Le flot n'est pas un catalogue binaire (version " + FORMAT_VERSION + ")");
+        }
+        int starCount   = buffer.getInt(2 * Integer.BYTES);
+        int stringCount = buffer.getInt(3 * Integer.BYTES);
+        if (starCount < 0 || stringCount < 0) {
+            throw new IOException("Le catalogue binaire est corrompu : nombre d'étoiles ou de chaînes négatif");
+        }
+
+        // Taille des colonnes, calculée en long pour qu'un en-tête corrompu ne puisse pas déborder
+        long columnsEnd = HEADER_BYTES + (long) starCount * STAR_BYTES + ((long) stringCount + 1) * Integer.BYTES;
+        if (columnsEnd > buffer.limit()) {
+            throw new IOException("Le catalogue binaire est tronqué");
+        }
+
+        // Début de chaque colonne
+        int raStart         = HEADER_BYTES;
+        int decStart        = raStart       + starCount * Double.BYTES;
+        int magStart        = decStart      + starCount * Double.BYTES;
+        int ciStart         = magStart      + starCount * Float.BYTES;
+        int distStart       = ciStart       + starCount * Float.BYTES;
+        int hipStart        = distStart     + starCount * Float.BYTES;
+        int nameStart       = hipStart      + starCount * Integer.BYTES;
+        int specStart       = nameStart     + starCount * Integer.BYTES;
+        int offsetsStart    = specStart     + starCount * Integer.BYTES;
+        int poolStart       = offsetsStart  + (stringCount + 1) * Integer.BYTES;
+
+        if (poolStart + buffer.getInt(offsetsStart + stringCount * Integer.BYTES) != buffer.limit()) {
+            throw new IOException("Le catalogue binaire est tronqué");
+        }
+
+        // Les chaînes sont décodées une seule fois, puis partagées par les étoiles
+        int poolLength = buffer.limit() - poolStart;
+        byte[] pool = new byte[poolLength];
+        ByteBuffer poolView = buffer.duplicate();
+        poolView.position(poolStart);
+        poolView.get(pool);
+
+        String[] strings = new String[stringCount];
+        for (int k = 0; k < stringCount; k++) {
+            int from = buffer.getInt(offsetsStart + k * Integer.BYTES);
+            int to   = buffer.getInt(offsetsStart + (k + 1) * Integer.BYTES);
+            if (from < 0 || from > to || to > poolLength) {
+                throw new IOException("Le catalogue binaire est corrompu : chaîne " + k + " hors du réservoir");
+            }
+            strings[k] = new String(pool, from, to - from, StandardCharsets.UTF_8);
+        }
+
+        for (int i = 0; i < starCount; i++) {
+            String name = string(strings, buffer.getInt(nameStart + i * Integer.BYTES));
+            String spectralType = string(strings, buffer.getInt(specStart + i * Integer.BYTES));
+            try {
+                builder.addStar(new Star(
+                        buffer.getInt(hipStart + i * Integer.BYTES),
+                        name,
+                        EquatorialCoordinates.of(
+                                buffer.getDouble(raStart + i * Double.BYTES),
+                                buffer.getDouble(decStart + i * Double.BYTES)),
+                        buffer.getFloat(magStart + i * Float.BYTES),
+                        buffer.getFloat(ciStart + i * Float.BYTES),
+                        buffer.getFloat(distStart + i * Float.BYTES),
+                        spectralType));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Le catalogue binaire est corrompu : étoile " + i + " invalide", e);
+            }
+        }
+    }
+
+    /**
+     * Retourne la chaîne d'index {@code index} du réservoir, ou lève IOException si elle n'y figure pas.
+     */
+    private static String string(String[] strings, int index) throws IOException {
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("Le catalogue binaire est corrompu : index de chaîne " + index + " hors du réservoir");
+        }
+        return strings[index];
+    }
+
+    /**
+     * Projette en mémoire le reste du fichier, depuis la position courante du canal, et consomme le canal.
+     */
+    private static ByteBuffer map(FileChannel channel) throws IOException {
+        long position = channel.position();
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position);
+        channel.position(channel.size());
+        return buffer;
+    }
+}
@@ -3,12 +3,13 @@ package ch.epfl.rigel.astronomy;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.coordinates.CartesianCoordinates;
@@ -28,6 +29,16 @@ import ch.epfl.rigel.coordinates.StereographicProjection;
  */
 public final class ObservedSky {
     
+    // Nombre d'étoiles projetées par une tâche du calcul parallèle
+    private static final int STARS_PER_TASK = 1024;
+    
+    // Les paramètres d'observation, gardés pour les mises à jour
+    private final ZonedDateTime when;
+    private final GeographicCoordinates geographicPos;
+    private final StereographicProjection projection;
+    private final boolean rotateUnitVectors;
+    private final ForkJoinPool pool;
+    
     private final Sun sun;
     private final CartesianCoordinates sunPosition;
     
@@ -39,9 +50,11 @@ public final class ObservedSky {
     
     private final StarCatalogue starCatalogue;
     private final double[] starPositions;
+    private final double[] projectionCenter;    // Le vecteur unité équatorial du centre de la projection
     
-    // BONUS
-    private final Map<CelestialObject, CartesianCoordinates> celestialObjectMap = new HashMap<>();
+    // Construit à la première recherche de l'objet le plus proche. Ses attributs étant finaux,
+    // un index construit en double par deux fils reste correct.
+    private StarIndex starIndex;
     
     /**
      * Constructeur de ObservedSky. Construit le ciel observé et ses objets célestes {@code starCatalogue} à un instant donné {@code when}, 
@@ -53,83 +66,250 @@ public final class ObservedSky {
      */
     public ObservedSky(ZonedDateTime when, GeographicCoordinates geographicPos,
             StereographicProjection stereographicProjection, StarCatalogue starCatalogue) {
+        this(when, geographicPos, stereographicProjection, starCatalogue, false);
+    }
+    
+    /**
+     * Constructeur de ObservedSky. Comme le constructeur précédent, mais si {@code rotateUnitVectors}, 
+     * les étoiles sont projetées par une seule rotation de leurs vecteurs unités précalculés, sans trigonométrie par étoile,
+     * et leurs positions sont alors exactes aux erreurs d'arrondi près.
+     * @param when
+     * @param geographicPos
+     * @param stereographicProjection
+     * @param starCatalogue
+     * @param rotateUnitVectors
+     *          si les étoiles sont projetées par rotation de leurs vecteurs unités
+     */
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates geographicPos,
+            StereographicProjection stereographicProjection, StarCatalogue starCatalogue, boolean rotateUnitVectors) {
+        this(when, geographicPos, stereographicProjection, starCatalogue, rotateUnitVectors, null);
+    }
+    
+    /**
+     * Constructeur de ObservedSky. Comme le constructeur précédent, mais si {@code pool} n'est pas nul, 
+     * le soleil, la lune et chaque planète sont calculés dans des tâches séparées de {@code pool}, 
+     * et les étoiles y sont projetées par tranches de {@value #STARS_PER_TASK} étoiles. 
+     * Le résultat est exactement celui du calcul séquentiel.
+     * @param when
+     * @param geographicPos
+     * @param stereographicProjection
+     * @param starCatalogue
+     * @param rotateUnitVectors
+     *          si les étoiles sont projetées par rotation de leurs vecteurs unités
+     * @param pool
+     *          le groupe de fils effectuant le calcul, ou null pour calculer dans le fil appelant
+     */
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates geographicPos,
+            StereographicProjection stereographicProjection, StarCatalogue starCatalogue, boolean rotateUnitVectors,
+            ForkJoinPool pool) {
+        this(when, geographicPos, stereographicProjection, starCatalogue, rotateUnitVectors, pool, null);
+    }
+    
+    /**
+     * Constructeur de ObservedSky. Si {@code sameInstant} n'est pas nul, c'est un ciel observé au même instant
+     * dont le soleil, la lune et les planètes sont repris tels quels.
+     */
+    private ObservedSky(ZonedDateTime when, GeographicCoordinates geographicPos,
+            StereographicProjection stereographicProjection, StarCatalogue starCatalogue, boolean rotateUnitVectors,
+            ForkJoinPool pool, ObservedSky sameInstant) {
         
-        // Le soleil
-        sun = SunModel.SUN.at(
-                Epoch.J2010.daysUntil(when), 
-                new EclipticToEquatorialConversion(when));
+        this.when = when;
+        this.geographicPos = geographicPos;
+        this.projection = stereographicProjection;
+        this.rotateUnitVectors = rotateUnitVectors;
+        this.pool = pool;
         
-        sunPosition = equatorialToCartesianCoordinates(
-                when, stereographicProjection, geographicPos,
-                sun.equatorialPos());
+        double daysSinceJ2010 = Epoch.J2010.daysUntil(when);
+        EclipticToEquatorialConversion eclipticToEquatorial = new EclipticToEquatorialConversion(when);
+        EquatorialToHorizontalConversion equatorialToHorizontal = new EquatorialToHorizontalConversion(when, geographicPos);
         
-        celestialObjectMap.put(sun, sunPosition);
+        projectionCenter = stereographicProjection.centerUnitVector(equatorialToHorizontal);
         
-        // La lune
-        moon = MoonModel.MOON.at(
-                Epoch.J2010.daysUntil(when),
-                new EclipticToEquatorialConversion(when));
+        // Les colonnes du catalogue sont lues sans copie
+        this.starCatalogue = starCatalogue;
+        starPositions = new double[starCatalogue.starCount() * 2];
+        StarProjection starProjection = rotateUnitVectors
+                ? new StarProjection(stereographicProjection, equatorialToHorizontal, 
+                        null, null, starCatalogue.unitVectorsColumn(), starPositions, 0, starCatalogue.starCount())
+                : new StarProjection(stereographicProjection, equatorialToHorizontal, 
+                        starCatalogue.raColumn(), starCatalogue.decColumn(), null, starPositions, 0, starCatalogue.starCount());
+        
+        if (sameInstant != null) {
+            // Le système solaire ne dépend que de l'instant, seules les étoiles sont projetées à nouveau ;
+            // la liste des planètes, non modifiable, peut être partagée
+            sun = sameInstant.sun;
+            moon = sameInstant.moon;
+            planets = sameInstant.planets;
+            
+            if (pool == null) {
+                starProjection.compute();
+            } else {
+                pool.invoke(starProjection);
+            }
+        } else if (pool == null) {
+            // Le soleil, la lune, les planètes extraterrestres puis les étoiles, dans ce fil
+            sun = SunModel.SUN.at(daysSinceJ2010, eclipticToEquatorial);
+            moon = MoonModel.MOON.at(daysSinceJ2010, eclipticToEquatorial);
+            
+            List<Planet> computedPlanets = new ArrayList<Planet>();
+            for (PlanetModel planetModel : PlanetModel.ALLEXTRATERRESTRIAL) {
+                computedPlanets.add(planetModel.at(daysSinceJ2010, eclipticToEquatorial));
+            }
+            planets = List.copyOf(computedPlanets);
+            
+            starProjection.compute();
+        } else {
+            // Une tâche par objet du système solaire, et les étoiles par tranches pendant ce temps
+            ForkJoinTask<Sun> sunTask = pool.submit(() -> SunModel.SUN.at(daysSinceJ2010, eclipticToEquatorial));
+            ForkJoinTask<Moon> moonTask = pool.submit(() -> MoonModel.MOON.at(daysSinceJ2010, eclipticToEquatorial));
+            
+            List<ForkJoinTask<Planet>> planetTasks = new ArrayList<>();
+            for (PlanetModel planetModel : PlanetModel.ALLEXTRATERRESTRIAL) {
+                planetTasks.add(pool.submit(() -> planetModel.at(daysSinceJ2010, eclipticToEquatorial)));
+            }
+            
+            pool.invoke(starProjection);
+            
+            sun = sunTask.join();
+            moon = moonTask.join();
+            List<Planet> computedPlanets = new ArrayList<Planet>();
+            for (ForkJoinTask<Planet> planetTask : planetTasks) {
+                computedPlanets.add(planetTask.join());
+            }
+            planets = List.copyOf(computedPlanets);
+        }
+        
+        // Les positions du système solaire, peu nombreuses, avec la conversion (et donc le temps sidéral) des étoiles
+        sunPosition = equatorialToCartesianCoordinates(
+                stereographicProjection, equatorialToHorizontal,
+                sun.equatorialPos());
         
         moonPosition = equatorialToCartesianCoordinates(
-                when, stereographicProjection, geographicPos,
+                stereographicProjection, equatorialToHorizontal,
                 moon.equatorialPos());
         
-        celestialObjectMap.put(moon, moonPosition);
-        
-        // Les planètes extraterrestres
-        planets = new ArrayList<Planet>();
-        for (PlanetModel planetModel : PlanetModel.ALLEXTRATERRESTRIAL) {
-            planets.add(planetModel.at(
-                    Epoch.J2010.daysUntil(when), 
-                    new EclipticToEquatorialConversion(when)));
-        }
-        
         int numPlanetPositionComponents = planets.size() * 2;
         planetPositions = new double[numPlanetPositionComponents];
         
         fillCelestialObjectPositionsArray(planetPositions, planets, 
-                when, geographicPos, stereographicProjection);
-        
+                stereographicProjection, equatorialToHorizontal);
+    }
+    
+    /**
+     * Retourne le ciel observé à l'instant {@code when}, depuis la même position et par la même projection, 
+     * calculé de la même manière. Retourne ce ciel lui-même si l'instant est le même.
+     * @param when
+     *          le nouvel instant d'observation
+     * @return
+     *          le ciel observé au nouvel instant
+     */
+    public ObservedSky advanceTo(ZonedDateTime when) {
+        return advanceTo(when, geographicPos, projection);
+    }
+    
+    /**
+     * Retourne le ciel observé à l'instant {@code when}, depuis la position {@code geographicPos}, 
+     * par la projection {@code stereographicProjection}, calculé de la même manière, 
+     * en ne refaisant que le travail qui dépend de ce qui a changé : 
+     * ce ciel lui-même si rien n'a changé, et les mêmes soleil, lune et planètes si seuls la position ou la projection ont changé.
+     * @param when
+     *          le nouvel instant d'observation
+     * @param geographicPos
+     *          la nouvelle position de l'observateur
+     * @param stereographicProjection
+     *          la nouvelle projection stéréographique
+     * @return
+     *          le ciel observé avec les nouveaux paramètres
+     */
+    public ObservedSky advanceTo(ZonedDateTime when, GeographicCoordinates geographicPos,
+            StereographicProjection stereographicProjection) {
         
-        // Les étoiles
-        this.starCatalogue = starCatalogue;
+        boolean sameInstant = when.isEqual(this.when);
+        boolean samePosition = geographicPos.lon() == this.geographicPos.lon() 
+                && geographicPos.lat() == this.geographicPos.lat();
         
-        int numStarPositionComponents = stars().size() * 2;
-        starPositions = new double[numStarPositionComponents];
+        if (sameInstant && samePosition && stereographicProjection == projection) {
+            return this;
+        }
+        return new ObservedSky(when, geographicPos, stereographicProjection, starCatalogue, rotateUnitVectors, pool, 
+                sameInstant ? this : null);
+    }
+    
+    /**
+     * Une projection des étoiles d'index compris dans [from, to[, qui se divise en deux tant 
+     * qu'elle contient plus de {@value #STARS_PER_TASK} étoiles. Les tâches écrivent dans des parties disjointes de positions.
+     */
+    private static final class StarProjection extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final StereographicProjection projection;
+        private final EquatorialToHorizontalConversion conversion;
+        private final double[] ra;
+        private final double[] dec;
+        private final double[] unitVectors;     // Non nul si les vecteurs unités sont tournés
+        private final double[] positions;
+        private final int from;
+        private final int to;
+        
+        StarProjection(StereographicProjection projection, EquatorialToHorizontalConversion conversion,
+                double[] ra, double[] dec, double[] unitVectors, double[] positions, int from, int to) {
+            this.projection = projection;
+            this.conversion = conversion;
+            this.ra = ra;
+            this.dec = dec;
+            this.unitVectors = unitVectors;
+            this.positions = positions;
+            this.from = from;
+            this.to = to;
+        }
         
-        fillCelestialObjectPositionsArray(starPositions, stars(), 
-                when, geographicPos, stereographicProjection);
-
+        @Override
+        protected void compute() {
+            if (to - from > STARS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new StarProjection(projection, conversion, ra, dec, unitVectors, positions, from, middle),
+                        new StarProjection(projection, conversion, ra, dec, unitVectors, positions, middle, to));
+            } else if (unitVectors != null) {
+                projection.applyToAllUnitVectors(conversion, unitVectors, positions, from, to);
+            } else {
+                projection.applyToAll(conversion, ra, dec, positions, from, to);
+            }
+        }
     }
     
-    private CartesianCoordinates equatorialToCartesianCoordinates(ZonedDateTime when, 
-            StereographicProjection stereographicProjection, GeographicCoordinates geographicPos,
-            EquatorialCoordinates equatorialPos) {
+    private CartesianCoordinates equatorialToCartesianCoordinates(StereographicProjection stereographicProjection, 
+            EquatorialToHorizontalConversion equatorialToHorizontal, EquatorialCoordinates equatorialPos) {
 
-        return stereographicProjection.compose(
-                new EquatorialToHorizontalConversion(when, geographicPos))
-                .apply(equatorialPos);
+        return stereographicProjection.apply(equatorialToHorizontal.apply(equatorialPos));
     }
     
     private void fillCelestialObjectPositionsArray(double[] positionsArray, List<? extends CelestialObject> celestialObjects,
-            ZonedDateTime when, GeographicCoordinates geographicPos, StereographicProjection stereographicProjection) {
+            StereographicProjection stereographicProjection, EquatorialToHorizontalConversion equatorialToHorizontal) {
         
         Preconditions.checkArgument(positionsArray.length == celestialObjects.size() * 2);
         
         int i = 0;
         for (CelestialObject obj : celestialObjects) {
 
-            CartesianCoordinates objCoordinates = equatorialToCartesianCoordinates(when,
-                    stereographicProjection, geographicPos,
+            CartesianCoordinates objCoordinates = equatorialToCartesianCoordinates(
+                    stereographicProjection, equatorialToHorizontal,
                     obj.equatorialPos());
             
             positionsArray[i++] = objCoordinates.x();
             positionsArray[i++] = objCoordinates.y();
-            
-            celestialObjectMap.put(obj, objCoordinates);
         }
     }
     
+    /**
+     * Retourne la projection stéréographique par laquelle le ciel observé a été projeté
+     * @return
+     *          la projection stéréographique du ciel observé
+     */
+    public StereographicProjection projection() {
+        return projection;
+    }
+    
     /**
      * Retourne le soleil du ciel observée
      * @return
@@ -167,9 +347,9 @@ public final class ObservedSky {
     }
     
     /**
-     * Retourne une liste des planètes du ciel observé
+     * Retourne la liste non modifiable des planètes du ciel observé
      * @return
-     *          une liste des planètes du ciel observé
+     *          la liste non modifiable des planètes du ciel observé
      */
     public List<Planet> planets() {
         return planets;
@@ -202,6 +382,87 @@ public final class ObservedSky {
         return Arrays.copyOf(starPositions, stars().size() * 2);
     }
     
+    /**
+     * Retourne l'abscisse de l'étoile d'index {@code index} du ciel observé, sans copier les positions
+     * @param index
+     *          l'index de l'étoile dans {@link #stars()}
+     * @return
+     *          l'abscisse de l'étoile dans le plan de la projection
+     */
+    public double starX(int index) {
+        return starPositions[2 * index];
+    }
+    
+    /**
+     * Retourne l'ordonnée de l'étoile d'index {@code index} du ciel observé, sans copier les positions
+     * @param index
+     *          l'index de l'étoile dans {@link #stars()}
+     * @return
+     *          l'ordonnée de l'étoile dans le plan de la projection
+     */
+    public double starY(int index) {
+        return starPositions[2 * index + 1];
+    }
+    
+    /**
+     * Retourne l'index dans {@link #stars()} de l'étoile de rang {@code rank} par magnitude croissante
+     * @param rank
+     *          le rang de l'étoile, 0 pour la plus brillante
+     * @return
+     *          l'index de l'étoile
+     * @see StarCatalogue#starIndexByMagnitude(int)
+     */
+    public int starIndexByMagnitude(int rank) {
+        return starCatalogue.starIndexByMagnitude(rank);
+    }
+    
+    /**
+     * Retourne, triés, les rangs par magnitude croissante inférieurs à {@code rankCount} des étoiles 
+     * dont la projection est à une distance au plus {@code planeRadius} du centre du plan, 
+     * sans parcourir les étoiles des régions du ciel loin du champ de vue.
+     * Les rangs sont ceux de {@link #starIndexByMagnitude(int)}.
+     * @param planeRadius
+     *          le rayon, dans le plan de la projection, du disque autour du centre
+     * @param rankCount
+     *          le nombre de rangs, des étoiles les plus brillantes, parmi lesquels chercher
+     * @return
+     *          les rangs des étoiles du disque, par ordre croissant
+     */
+    public int[] starRanksWithin(double planeRadius, int rankCount) {
+        // Un point à la distance angulaire c du centre est projeté à la distance tan(c / 2)
+        return starCatalogue.starRanksWithin(projectionCenter, 2 * Math.atan(planeRadius), rankCount);
+    }
+    
+    /**
+     * Retourne le nombre d'étoiles du ciel observé dont la magnitude est inférieure ou égale à {@code limitingMagnitude}
+     * @param limitingMagnitude
+     *          la magnitude limite
+     * @return
+     *          le nombre d'étoiles au moins aussi brillantes que la magnitude limite
+     * @see StarCatalogue#starCountBrighterThan(double)
+     */
+    public int starCountBrighterThan(double limitingMagnitude) {
+        return starCatalogue.starCountBrighterThan(limitingMagnitude);
+    }
+    
+    /**
+     * Retourne les magnitudes des étoiles du ciel observé, indexées comme {@link #stars()}
+     * @return
+     *          les magnitudes des étoiles du ciel observé
+     */
+    public float[] starMagnitudes() {
+        return starCatalogue.magnitudes();
+    }
+    
+    /**
+     * Retourne les températures de couleur des étoiles du ciel observé, indexées comme {@link #stars()}
+     * @return
+     *          les températures de couleur des étoiles du ciel observé
+     */
+    public int[] starColorTemperatures() {
+        return starCatalogue.colorTemperatures();
+    }
+    
     /**
      * Retourne les astérismes du ciel observé
      * @return
@@ -222,6 +483,42 @@ public final class ObservedSky {
         return starCatalogue.asterismIndices(asterism);
     }
     
+    /**
+     * Retourne le nombre d'astérismes du ciel observé
+     * @return
+     *          le nombre d'astérismes du ciel observé
+     * @see StarCatalogue#asterismCount()
+     */
+    public int asterismCount() {
+        return starCatalogue.asterismCount();
+    }
+    
+    /**
+     * Retourne le nombre d'étoiles de l'astérisme numéro {@code asterism} du ciel observé
+     * @param asterism
+     *          le numéro de l'astérisme
+     * @return
+     *          le nombre d'étoiles de l'astérisme
+     * @see StarCatalogue#asterismLength(int)
+     */
+    public int asterismLength(int asterism) {
+        return starCatalogue.asterismLength(asterism);
+    }
+    
+    /**
+     * Retourne l'index dans {@link #stars()} de l'étoile en position {@code position} de l'astérisme numéro {@code asterism}
+     * @param asterism
+     *          le numéro de l'astérisme
+     * @param position
+     *          la position de l'étoile dans l'astérisme
+     * @return
+     *          l'index de l'étoile
+     * @see StarCatalogue#asterismStarIndex(int, int)
+     */
+    public int asterismStarIndex(int asterism, int position) {
+        return starCatalogue.asterismStarIndex(asterism, position);
+    }
+    
     
     /** BONUS
      * Retourne les coordonnées cartésiennes de l'objet céleste non-nul {@code celestialObject}.
@@ -236,21 +533,26 @@ public final class ObservedSky {
         
         // Un "workaround" de l'immuabilité des Planètes, du Soleil, et de la Lune.
         
-        if (celestialObject.name() == sun.name()) {
-            return celestialObjectMap.get(sun);
+        if (celestialObject instanceof Sun) {
+            return sunPosition;
         }
         
-        if (celestialObject.name() == moon.name()) {
-            return celestialObjectMap.get(moon);
+        if (celestialObject instanceof Moon) {
+            return moonPosition;
         }
         
-        for (Planet planet : planets) {
-            if (celestialObject.name() == planet.name()) {
-                return celestialObjectMap.get(planet);
-            }
+        if (celestialObject instanceof Planet) {
+            int i = planetIndex(celestialObject);
+            return (i < 0) ? null : CartesianCoordinates.of(planetPositions[2 * i], planetPositions[2 * i + 1]);
+        }
+        
+        // Les positions des étoiles ne sont que dans starPositions, à l'index de l'étoile dans le catalogue
+        if (celestialObject instanceof Star) {
+            int i = starCatalogue.indexOf((Star) celestialObject);
+            return (i < 0) ? null : CartesianCoordinates.of(starPositions[2 * i], starPositions[2 * i + 1]);
         }
         
-        return celestialObjectMap.get(celestialObject);
+        return null;
     }
     
     /** BONUS
@@ -266,30 +568,48 @@ public final class ObservedSky {
         
         // Un "workaround" de l'immuabilité des Planètes, du Soleil, et de la Lune.
         
-        if (celestialObject.name() == sun.name()) {
+        if (celestialObject instanceof Sun) {
             return sun;
         }
         
-        if (celestialObject.name() == moon.name()) {
+        if (celestialObject instanceof Moon) {
             return moon;
         }
         
-        for (Planet planet : planets) {
-            if (celestialObject.name() == planet.name()) {
-                return planet;
-            }
+        if (celestialObject instanceof Planet) {
+            int i = planetIndex(celestialObject);
+            return (i < 0) ? null : planets.get(i);
         }
         
-        for (Star star : stars()) {
-            if (star.hipparcosId() == ((Star)celestialObject).hipparcosId())
-                return star;
+        // Les étoiles sont retrouvées par leur numéro Hipparcos, ou à défaut par identité
+        if (celestialObject instanceof Star) {
+            Star star = (Star) celestialObject;
+            int i = starCatalogue.indexOfHipparcosId(star.hipparcosId());
+            if (i < 0) {
+                i = starCatalogue.indexOf(star);
+            }
+            return (i < 0) ? null : stars().get(i);
         }
         
         return null;
     }
+    
+    /**
+     * Retourne l'index dans planets() de la planète portant le nom de l'objet céleste donné, ou -1.
+     */
+    private int planetIndex(CelestialObject celestialObject) {
+        for (int i = 0; i < planets.size(); i++) {
+            if (planets.get(i).name().equals(celestialObject.name())) {
+                return i;
+            }
+        }
+        return -1;
+    }
    
-    private double distanceSquaredTo(CartesianCoordinates cartesianPos1, CartesianCoordinates cartesianPos2) {
-        return Math.hypot(cartesianPos1.x() - cartesianPos2.x(), cartesianPos1.y() - cartesianPos2.y());
+    private double distanceSquaredTo(CartesianCoordinates cartesianPos, double x, double y) {
+        double dx = cartesianPos.x() - x;
+        double dy = cartesianPos.y() - y;
+        return dx * dx + dy * dy;
     }
     
     /**
@@ -308,14 +628,14 @@ public final class ObservedSky {
         CelestialObject closestObject = null;
 
         // Sun
-        double distanceToOtherObject = distanceSquaredTo(cartesianPos, sunPosition);
+        double distanceToOtherObject = distanceSquaredTo(cartesianPos, sunPosition.x(), sunPosition.y());
         if (smallestDistance > distanceToOtherObject) { 
             smallestDistance = distanceToOtherObject;   
             closestObject = sun;
         }
         
         // Moon
-        distanceToOtherObject = distanceSquaredTo(cartesianPos, moonPosition);
+        distanceToOtherObject = distanceSquaredTo(cartesianPos, moonPosition.x(), moonPosition.y());
         if (smallestDistance > distanceToOtherObject) {
             smallestDistance = distanceToOtherObject;
             closestObject = moon;
@@ -323,8 +643,7 @@ public final class ObservedSky {
         
         // Planets
         for (int i = 0; i < planetPositions.length; i += 2) {
-            distanceToOtherObject = distanceSquaredTo(cartesianPos,
-                    CartesianCoordinates.of(planetPositions[i], planetPositions[i + 1]));
+            distanceToOtherObject = distanceSquaredTo(cartesianPos, planetPositions[i], planetPositions[i + 1]);
             
             if (smallestDistance > distanceToOtherObject) {
                 smallestDistance = distanceToOtherObject;
@@ -332,17 +651,14 @@ public final class ObservedSky {
             }
         }
         
-        // Stars
-        for (int i = 0; i < starPositions.length; i += 2) {
-            distanceToOtherObject = distanceSquaredTo(cartesianPos,
-                    CartesianCoordinates.of(starPositions[i], starPositions[i + 1]));
-            
-            if (smallestDistance > distanceToOtherObject) {
-                smallestDistance = distanceToOtherObject;
-                closestObject = stars().get(i / 2);
-            }
+        // Stars, in the spatial index
+        if (starIndex == null) {
+            starIndex = new StarIndex(starPositions);
+        }
+        int closestStar = starIndex.closestTo(cartesianPos.x(), cartesianPos.y(), smallestDistance);
+        if (closestStar >= 0) {
+            closestObject = stars().get(closestStar);
         }
-
         
         // If there is no closest Object
         if (closestObject == null) {
@@ -15,6 +15,7 @@ import ch.epfl.rigel.math.ClosedInterval;
 public final class Star extends CelestialObject {
 
     private final int hipparcosId;
+    private final float colorIndex;
     private final int colorTemperature;
     private final double distance;
     private final String spectralType;
@@ -49,6 +50,7 @@ public final class Star extends CelestialObject {
         Preconditions.checkInInterval(COLOR_INDEX_INTERVAL, colorIndex);
         
         this.hipparcosId = hipparcosId;
+        this.colorIndex = colorIndex;
         this.colorTemperature = (int) (4600 * ((1.0 / (0.92 * colorIndex + 1.7)) + (1.0 / (0.92 * colorIndex + 0.62))));
         this.distance = distance;
         this.spectralType = spectralType;
@@ -63,6 +65,15 @@ public final class Star extends CelestialObject {
         return this.hipparcosId;
     }
     
+    /**
+     * Retourne l'indice de couleur B-V de l'étoile.
+     * @return
+     *          l'indice de couleur de l'étoile
+     */
+    public double colorIndex() {
+        return colorIndex;
+    }
+    
     /**
      * Retourne la température de couleur de l'étoile, en degrés Kelvin, arrondie à l'entier inférieur le plus proche.   
      * @return
@@ -4,11 +4,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import ch.epfl.rigel.Preconditions;
 
@@ -24,6 +27,30 @@ public final class StarCatalogue {
 
     private final List<Star> stars;
     private final Map<Asterism, List<Integer>> asterismsWithIndices;
+    private final Set<Asterism> asterismSet;
+    private final int[][] asterismIndexTable;
+    
+    // Colonnes des attributs des étoiles, indexées comme stars()
+    private final double[] ra;
+    private final double[] dec;
+    private final float[] magnitude;
+    private final int[] colorTemperature;
+    private final int[] hip;
+    private final double[] unitVectors;
+    
+    // Table de hachage à adressage ouvert des numéros Hipparcos vers les index des étoiles (0 marque une case vide),
+    // et table, par identité, des index des étoiles qu'elle ne contient pas : sans numéro Hipparcos, ou dont le numéro est déjà pris
+    private final int[] hipKeys;
+    private final int[] hipIndices;
+    private final Map<Star, Integer> unindexedStars;
+    
+    // Index des étoiles triés par magnitude croissante (des plus brillantes aux plus faibles), et leurs magnitudes dans cet ordre
+    private final int[] byMagnitude;
+    private final float[] sortedMagnitudes;
+    
+    // Construite à la première recherche par région du ciel. Ses attributs étant finaux,
+    // une grille construite en double par deux fils reste correcte.
+    private StarGrid starGrid;
     
     /**
      * Constructeur de StarCatalogue. Construit un catalogue d'étoiles {@code stars} et d'astérismes {@code asterisms},
@@ -36,16 +63,60 @@ public final class StarCatalogue {
      *          si un des astérismes contient une étoile qui ne fait pas partie de la liste d'étoiles.
      */
     public StarCatalogue(List<Star> stars, List<Asterism> asterisms) {
-        // Precondition : asterism.stars() are included in stars
-        for (Asterism asterism : asterisms) {
-            Preconditions.checkArgument(
-                    stars.containsAll(
-                            asterism.stars()));               
-        }
         // Copy stars list
         this.stars = List.copyOf(stars);
+        
+        // Compute the columns
+        int starCount = stars.size();
+        this.ra = new double[starCount];
+        this.dec = new double[starCount];
+        this.magnitude = new float[starCount];
+        this.colorTemperature = new int[starCount];
+        this.hip = new int[starCount];
+        this.unitVectors = new double[3 * starCount];
+        
+        for (int i = 0; i < starCount; i++) {
+            Star star = this.stars.get(i);
+            ra[i] = star.equatorialPos().ra();
+            dec[i] = star.equatorialPos().dec();
+            magnitude[i] = (float) star.magnitude();
+            colorTemperature[i] = star.colorTemperature();
+            hip[i] = star.hipparcosId();
+            
+            double cosDec = Math.cos(dec[i]);
+            unitVectors[3 * i] = cosDec * Math.cos(ra[i]);
+            unitVectors[3 * i + 1] = cosDec * Math.sin(ra[i]);
+            unitVectors[3 * i + 2] = Math.sin(dec[i]);
+        }
+        
+        // Compute the Hipparcos index
+        int capacity = Integer.highestOneBit(Math.max(1, 2 * starCount)) << 1;
+        this.hipKeys = new int[capacity];
+        this.hipIndices = new int[capacity];
+        this.unindexedStars = new IdentityHashMap<>();
+        
+        for (int i = 0; i < starCount; i++) {
+            if (hip[i] == 0 || indexOfHipparcosId(hip[i]) >= 0) {
+                unindexedStars.put(this.stars.get(i), i);
+            } else {
+                int slot = hipSlot(hip[i]);
+                hipKeys[slot] = hip[i];
+                hipIndices[slot] = i;
+            }
+        }
+        
+        // Compute the magnitude order, stable so that equal magnitudes keep the catalogue order
+        this.byMagnitude = IntStream.range(0, starCount)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> magnitude[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.sortedMagnitudes = new float[starCount];
+        for (int rank = 0; rank < starCount; rank++) {
+            sortedMagnitudes[rank] = magnitude[byMagnitude[rank]];
+        }
 
-        // Compute asterismsWithIndices
+        // Compute asterismsWithIndices, and the primitive table in the same order
         this.asterismsWithIndices = new HashMap<>();
         
         Map<Star, Integer> starIndexMap = new HashMap<>();
@@ -53,15 +124,26 @@ public final class StarCatalogue {
             starIndexMap.put(stars.get(i), i);
         }
 
+        List<int[]> asterismTable = new ArrayList<>();
         for (Asterism asterism : asterisms) {   // Pour chaque astérisme
+            if (asterismsWithIndices.containsKey(asterism)) {
+                continue;
+            }
+            
             List<Integer> starIndicies = new ArrayList<Integer>();
-
             for (Star star : asterism.stars()) { // Pour chaque étoile dans l'astérisme
-                starIndicies.add(starIndexMap.get(star));  
+                // Precondition : asterism.stars() are included in stars
+                Integer index = starIndexMap.get(star);
+                Preconditions.checkArgument(Objects.nonNull(index));
+                starIndicies.add(index);  
             }
             
-            this.asterismsWithIndices.put(asterism, starIndicies);
+            this.asterismsWithIndices.put(asterism, List.copyOf(starIndicies));
+            asterismTable.add(starIndicies.stream().mapToInt(Integer::intValue).toArray());
         }
+        
+        this.asterismSet = Set.copyOf(asterismsWithIndices.keySet());
+        this.asterismIndexTable = asterismTable.toArray(new int[0][]);
     }
     
     /**
@@ -73,13 +155,191 @@ public final class StarCatalogue {
         return stars;
     }
     
+    /**
+     * Retourne le nombre d'étoiles du catalogue.
+     * @return
+     *          le nombre d'étoiles du catalogue.
+     */
+    public int starCount() {
+        return ra.length;
+    }
+    
+    /**
+     * Retourne les ascensions droites des étoiles du catalogue, en radians, indexées comme {@link #stars()}.
+     * @return
+     *          une copie de la colonne des ascensions droites.
+     */
+    public double[] ra() {
+        return ra.clone();
+    }
+    
+    /**
+     * Retourne les déclinaisons des étoiles du catalogue, en radians, indexées comme {@link #stars()}.
+     * @return
+     *          une copie de la colonne des déclinaisons.
+     */
+    public double[] dec() {
+        return dec.clone();
+    }
+    
+    /**
+     * Retourne les magnitudes des étoiles du catalogue, indexées comme {@link #stars()}.
+     * @return
+     *          une copie de la colonne des magnitudes.
+     */
+    public float[] magnitudes() {
+        return magnitude.clone();
+    }
+    
+    /**
+     * Retourne les températures de couleur des étoiles du catalogue, en degrés Kelvin, indexées comme {@link #stars()}.
+     * @return
+     *          une copie de la colonne des températures de couleur.
+     */
+    public int[] colorTemperatures() {
+        return colorTemperature.clone();
+    }
+    
+    /**
+     * Retourne les numéros Hipparcos des étoiles du catalogue, indexés comme {@link #stars()}.
+     * @return
+     *          une copie de la colonne des numéros Hipparcos.
+     */
+    public int[] hipparcosIds() {
+        return hip.clone();
+    }
+    
+    /**
+     * Retourne les vecteurs unités équatoriaux des étoiles du catalogue, calculés au chargement : 
+     * cos(dec)cos(ra), cos(dec)sin(ra) et sin(dec) pour chaque étoile, dans l'ordre de {@link #stars()}.
+     * @return
+     *          une copie des vecteurs unités, trois composantes par étoile.
+     */
+    public double[] unitVectors() {
+        return unitVectors.clone();
+    }
+    
+    /*
+     * Les colonnes elles-mêmes, sans copie, pour les projections de chaque image. 
+     * Elles ne doivent pas être modifiées.
+     */
+    
+    double[] raColumn() {
+        return ra;
+    }
+    
+    double[] decColumn() {
+        return dec;
+    }
+    
+    double[] unitVectorsColumn() {
+        return unitVectors;
+    }
+    
+    /**
+     * Retourne l'index dans le catalogue de l'étoile de rang {@code rank} par magnitude croissante : 
+     * le rang 0 est l'étoile la plus brillante. Les étoiles de même magnitude gardent l'ordre du catalogue.
+     * @param rank
+     *          le rang de l'étoile, dans [0, starCount()[
+     * @return
+     *          l'index de l'étoile dans le catalogue.
+     * @throws IndexOutOfBoundsException
+     *          si le rang n'est pas compris dans [0, starCount()[.
+     */
+    public int starIndexByMagnitude(int rank) {
+        return byMagnitude[rank];
+    }
+    
+    /**
+     * Retourne, triés, les rangs par magnitude croissante inférieurs à {@code rankCount} des étoiles
+     * à une distance angulaire au plus {@code angularRadius} de la direction de vecteur unité équatorial {@code center}.
+     * Seules les cases d'une grille sur la sphère céleste qui touchent la région sont parcourues.
+     */
+    int[] starRanksWithin(double[] center, double angularRadius, int rankCount) {
+        StarGrid grid = starGrid;
+        if (grid == null) {
+            grid = new StarGrid(unitVectors, byMagnitude);
+            starGrid = grid;
+        }
+        return grid.ranksWithin(center, angularRadius, rankCount);
+    }
+    
+    /**
+     * Retourne le nombre d'étoiles du catalogue dont la magnitude est inférieure ou égale à {@code limitingMagnitude}, 
+     * c'est-à-dire le nombre de rangs de {@link #starIndexByMagnitude(int)} à parcourir pour les trouver toutes.
+     * @param limitingMagnitude
+     *          la magnitude limite
+     * @return
+     *          le nombre d'étoiles au moins aussi brillantes que la magnitude limite.
+     */
+    public int starCountBrighterThan(double limitingMagnitude) {
+        // Recherche dichotomique du premier rang dont la magnitude dépasse la limite
+        int lo = 0;
+        int hi = sortedMagnitudes.length;
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            if (sortedMagnitudes[middle] <= limitingMagnitude) {
+                lo = middle + 1;
+            } else {
+                hi = middle;
+            }
+        }
+        return lo;
+    }
+    
+    /**
+     * Retourne l'index dans le catalogue de la première étoile portant le numéro Hipparcos donné, 
+     * ou -1 s'il n'y en a aucune. Le numéro 0 signifiant l'absence de numéro, aucune étoile ne lui correspond.
+     * @param hipparcosId
+     *          le numéro Hipparcos
+     * @return
+     *          l'index de l'étoile, ou -1.
+     */
+    public int indexOfHipparcosId(int hipparcosId) {
+        if (hipparcosId == 0) {
+            return -1;
+        }
+        int slot = hipSlot(hipparcosId);
+        return (hipKeys[slot] == hipparcosId) ? hipIndices[slot] : -1;
+    }
+    
+    /**
+     * Retourne l'index dans le catalogue de l'étoile donnée (la même instance), ou -1 si elle n'en fait pas partie.
+     * @param star
+     *          l'étoile
+     * @return
+     *          l'index de l'étoile, ou -1.
+     */
+    public int indexOf(Star star) {
+        int index = indexOfHipparcosId(star.hipparcosId());
+        if (index >= 0 && stars.get(index) == star) {
+            return index;
+        }
+        
+        return unindexedStars.getOrDefault(star, -1);
+    }
+    
+    /**
+     * Retourne la case de la table de hachage contenant le numéro Hipparcos donné, 
+     * ou la case vide où il serait ajouté (sondage linéaire).
+     */
+    private int hipSlot(int hipparcosId) {
+        int mask = hipKeys.length - 1;
+        // Hachage de Fibonacci : les bits de poids fort du produit choisissent la case
+        int slot = (hipparcosId * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(mask);
+        while (hipKeys[slot] != 0 && hipKeys[slot] != hipparcosId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
     /**
      * Retourne l'ensemble des astérismes du catalogue.
      * @return
      *          l'ensemble des astérismes du catalogue.
      */
     public Set<Asterism> asterisms() {
-       return Set.copyOf(asterismsWithIndices.keySet());
+       return asterismSet;
     }
     
     /**
@@ -94,7 +354,46 @@ public final class StarCatalogue {
         
         Preconditions.checkArgument(Objects.nonNull(asterismIndices));
         
-        return List.copyOf(asterismIndices);
+        return asterismIndices;
+    }
+    
+    /**
+     * Retourne le nombre d'astérismes du catalogue, numérotés de 0 à ce nombre exclu 
+     * pour {@link #asterismLength(int)} et {@link #asterismStarIndex(int, int)}.
+     * @return
+     *          le nombre d'astérismes du catalogue.
+     */
+    public int asterismCount() {
+        return asterismIndexTable.length;
+    }
+    
+    /**
+     * Retourne le nombre d'étoiles de l'astérisme numéro {@code asterism}.
+     * @param asterism
+     *          le numéro de l'astérisme
+     * @return
+     *          le nombre d'étoiles de l'astérisme.
+     * @throws IndexOutOfBoundsException
+     *          si le numéro n'est pas compris dans [0, asterismCount()[.
+     */
+    public int asterismLength(int asterism) {
+        return asterismIndexTable[asterism].length;
+    }
+    
+    /**
+     * Retourne l'index dans le catalogue de l'étoile en position {@code position} de l'astérisme numéro {@code asterism}, 
+     * sans copie ni emballage.
+     * @param asterism
+     *          le numéro de l'astérisme
+     * @param position
+     *          la position de l'étoile dans l'astérisme
+     * @return
+     *          l'index de l'étoile dans le catalogue.
+     * @throws IndexOutOfBoundsException
+     *          si le numéro ou la position sont invalides.
+     */
+    public int asterismStarIndex(int asterism, int position) {
+        return asterismIndexTable[asterism][position];
     }
     
     /**
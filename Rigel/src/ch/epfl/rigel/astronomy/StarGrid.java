@@ -0,0 +1,164 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.Arrays;
+
+import ch.epfl.rigel.math.Angle;
+
+/**
+ * Classe représentant une grille grossière sur la sphère céleste, en ascension droite et en déclinaison,
+ * pour trouver les étoiles proches d'une direction sans parcourir tout le catalogue.
+ * <p>
+ * Les étoiles ne bougeant pas dans le repère équatorial, la grille ne dépend que du catalogue, et pas de l'instant ni de la projection.
+ * Chaque case contient les rangs par magnitude croissante de ses étoiles, dans l'ordre,
+ * de sorte qu'une recherche limitée aux étoiles les plus brillantes s'arrête tôt dans chaque case.
+ * <p>
+ * Package-privée, finale, immuable.
+ *
+ * @author Orfeas Liossatos (310738)
+ * @author Henrique Da Silva Gameiro (315689)
+ */
+final class StarGrid {
+
+    private static final int DEC_CELLS = 90;    // Bandes de 2° de déclinaison
+    private static final int RA_CELLS   = 180;  // Fuseaux de 2° d'ascension droite
+    private static final double CELL_HEIGHT = Math.PI / DEC_CELLS;
+    private static final double CELL_WIDTH  = Angle.TAU / RA_CELLS;
+
+    // Marge absorbant les erreurs d'arrondi au bord de la calotte
+    private static final double RADIUS_MARGIN = 1e-9;
+
+    // Au delà de cette part des cases, parcourir les rangs dans l'ordre coûte moins que les cases puis le tri
+    private static final int MAX_CELL_SHARE = 8;
+
+    private final double[] unitVectors;
+    private final int[] byMagnitude;
+
+    // Les rangs de la case c sont ranks[cellStarts[c]] ... ranks[cellStarts[c + 1] - 1], croissants
+    private final int[] cellStarts;
+    private final int[] ranks;
+
+    /**
+     * Constructeur de StarGrid. Construit la grille des étoiles de vecteurs unités équatoriaux {@code unitVectors},
+     * sans copier les tableaux qui ne doivent donc plus être modifiés.
+     * @param unitVectors
+     *          les vecteurs unités équatoriaux des étoiles, x, y puis z pour chaque étoile
+     * @param byMagnitude
+     *          les index des étoiles par magnitude croissante
+     */
+    StarGrid(double[] unitVectors, int[] byMagnitude) {
+        this.unitVectors = unitVectors;
+        this.byMagnitude = byMagnitude;
+
+        int starCount = byMagnitude.length;
+        int[] cellOfRank = new int[starCount];
+        this.cellStarts = new int[DEC_CELLS * RA_CELLS + 1];
+        for (int rank = 0; rank < starCount; rank++) {
+            int index = byMagnitude[rank];
+            double x = unitVectors[3 * index];
+            double y = unitVectors[3 * index + 1];
+            double z = unitVectors[3 * index + 2];
+
+            cellOfRank[rank] = row(Math.asin(Math.max(-1, Math.min(1, z)))) * RA_CELLS + column(Math.atan2(y, x));
+            cellStarts[cellOfRank[rank] + 1]++;
+        }
+        for (int cell = 0; cell < DEC_CELLS * RA_CELLS; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        // Les rangs étant parcourus dans l'ordre, chaque case les reçoit triés
+        int[] next = Arrays.copyOf(cellStarts, DEC_CELLS * RA_CELLS);
+        this.ranks = new int[starCount];
+        for (int rank = 0; rank < starCount; rank++) {
+            ranks[next[cellOfRank[rank]]++] = rank;
+        }
+    }
+
+    /**
+     * Retourne, triés, les rangs par magnitude croissante inférieurs à {@code rankCount} des étoiles
+     * à une distance angulaire au plus {@code angularRadius} de la direction de vecteur unité équatorial {@code center}.
+     * @param center
+     *          le vecteur unité équatorial du centre de la calotte, x, y puis z
+     * @param angularRadius
+     *          le rayon angulaire de la calotte, en radians
+     * @param rankCount
+     *          le nombre de rangs, des étoiles les plus brillantes, parmi lesquels chercher
+     * @return
+     *          les rangs des étoiles de la calotte, par ordre croissant
+     */
+    int[] ranksWithin(double[] center, double angularRadius, int rankCount) {
+        double radius = angularRadius + RADIUS_MARGIN;
+        double centerDec = Math.asin(Math.max(-1, Math.min(1, center[2])));
+        double centerRa = Math.atan2(center[1], center[0]);
+
+        // Les bandes de déclinaison touchées, puis les fuseaux : tous si la calotte contient un pôle
+        int minRow = row(centerDec - radius);
+        int maxRow = row(centerDec + radius);
+        int minColumn = 0;
+        int columnCount = RA_CELLS;
+        if (centerDec + radius < Math.PI / 2 && centerDec - radius > -Math.PI / 2) {
+            double halfWidth = Math.asin(Math.sin(radius) / Math.cos(centerDec));
+            minColumn = (int) Math.floor((centerRa - halfWidth) / CELL_WIDTH);
+            int maxColumn = (int) Math.floor((centerRa + halfWidth) / CELL_WIDTH);
+            columnCount = Math.min(RA_CELLS, maxColumn - minColumn + 1);
+        }
+
+        double minDot = (radius >= Math.PI) ? Double.NEGATIVE_INFINITY : Math.cos(radius);
+        int[] found = new int[16];
+        int foundCount = 0;
+
+        if ((maxRow - minRow + 1) * columnCount > DEC_CELLS * RA_CELLS / MAX_CELL_SHARE) {
+            for (int rank = 0; rank < rankCount; rank++) {
+                if (dot(center, byMagnitude[rank]) >= minDot) {
+                    if (foundCount == found.length) {
+                        found = Arrays.copyOf(found, 2 * foundCount);
+                    }
+                    found[foundCount++] = rank;
+                }
+            }
+            return Arrays.copyOf(found, foundCount);
+        }
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int i = 0; i < columnCount; i++) {
+                int cell = row * RA_CELLS + Math.floorMod(minColumn + i, RA_CELLS);
+
+                for (int k = cellStarts[cell]; k < cellStarts[cell + 1] && ranks[k] < rankCount; k++) {
+                    if (dot(center, byMagnitude[ranks[k]]) >= minDot) {
+                        if (foundCount == found.length) {
+                            found = Arrays.copyOf(found, 2 * foundCount);
+                        }
+                        found[foundCount++] = ranks[k];
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(found, 0, foundCount);
+        return Arrays.copyOf(found, foundCount);
+    }
+
+    /**
+     * Retourne le produit scalaire de {@code center} et du vecteur unité de l'étoile d'index {@code index}
+     */
+    private double dot(double[] center, int index) {
+        return center[0] * unitVectors[3 * index]
+                + center[1] * unitVectors[3 * index + 1]
+                + center[2] * unitVectors[3 * index + 2];
+    }
+
+    /**
+     * Retourne la bande de la déclinaison {@code dec}, bornée aux bandes de la grille
+     */
+    private static int row(double dec) {
+        int row = (int) Math.floor((dec + Math.PI / 2) / CELL_HEIGHT);
+        return Math.max(0, Math.min(DEC_CELLS - 1, row));
+    }
+
+    /**
+     * Retourne le fuseau de l'ascension droite {@code ra}, dans [-π, π]
+     */
+    private static int column(double ra) {
+        int column = (int) Math.floor(ra / CELL_WIDTH);
+        return Math.floorMod(column, RA_CELLS);
+    }
+}
@@ -0,0 +1,164 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.Arrays;
+
+/**
+ * Classe représentant un arbre k-d (k = 2) sur les positions projetées des étoiles,
+ * pour trouver l'étoile la plus proche d'un point en temps sous-linéaire.
+ * <p>
+ * L'arbre est implicite : le nœud d'un intervalle de {@code order} est son élément du milieu,
+ * les éléments avant lui ont une coordonnée (x aux profondeurs paires, y aux impaires) inférieure ou égale à la sienne,
+ * ceux après lui une coordonnée supérieure ou égale. Les positions non définies (NaN) ne sont pas indexées.
+ * <p>
+ * Package-privée, finale, immuable.
+ *
+ * @author Orfeas Liossatos (310738)
+ * @author Henrique Da Silva Gameiro (315689)
+ */
+final class StarIndex {
+
+    private final double[] positions;
+    private final int[] order;
+
+    /**
+     * Constructeur de StarIndex. Construit l'arbre sur les positions données,
+     * sans copier le tableau qui ne doit donc plus être modifié.
+     * @param positions
+     *          les positions des étoiles, x puis y pour chaque étoile
+     */
+    StarIndex(double[] positions) {
+        this.positions = positions;
+
+        int starCount = positions.length / 2;
+        int[] definedStars = new int[starCount];
+        int definedCount = 0;
+        for (int i = 0; i < starCount; i++) {
+            if (!Double.isNaN(positions[2 * i]) && !Double.isNaN(positions[2 * i + 1])) {
+                definedStars[definedCount++] = i;
+            }
+        }
+
+        this.order = Arrays.copyOf(definedStars, definedCount);
+        build(0, order.length, 0);
+    }
+
+    /**
+     * Retourne l'index de l'étoile la plus proche du point (x, y) dont le carré de la distance est
+     * strictement inférieur à {@code maxDistanceSquared}, ou -1 s'il n'y en a aucune.
+     * En cas d'égalité, l'étoile de plus petit index l'emporte, comme lors d'un parcours linéaire.
+     * @param x
+     *          l'abscisse du point
+     * @param y
+     *          l'ordonnée du point
+     * @param maxDistanceSquared
+     *          le carré de la distance au delà de laquelle les étoiles sont ignorées
+     * @return
+     *          l'index de l'étoile la plus proche, ou -1
+     */
+    int closestTo(double x, double y, double maxDistanceSquared) {
+        Search search = new Search(x, y, maxDistanceSquared);
+        search.visit(0, order.length, 0);
+        return search.closest;
+    }
+
+    /**
+     * Range l'intervalle [from, to[ de {@code order} en arbre, en plaçant la médiane au milieu.
+     */
+    private void build(int from, int to, int depth) {
+        while (to - from > 1) {
+            int middle = (from + to) >>> 1;
+            int axis = depth & 1;
+            select(from, to, middle, axis);
+
+            build(from, middle, depth + 1);
+            from = middle + 1;
+            depth++;
+        }
+    }
+
+    /**
+     * Place en {@code k} l'élément qui y serait si [from, to[ était trié selon l'axe donné,
+     * les plus petits avant lui et les plus grands après (sélection de Hoare).
+     */
+    private void select(int from, int to, int k, int axis) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = coordinate(order[(lo + hi) >>> 1], axis);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate(order[i], axis) < pivot) i++;
+                while (coordinate(order[j], axis) > pivot) j--;
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private double coordinate(int star, int axis) {
+        return positions[2 * star + axis];
+    }
+
+    /**
+     * Une recherche de l'étoile la plus proche d'un point
+     */
+    private final class Search {
+
+        private final double x;
+        private final double y;
+        private double bestDistanceSquared;
+        private int closest = -1;
+
+        Search(double x, double y, double maxDistanceSquared) {
+            this.x = x;
+            this.y = y;
+            this.bestDistanceSquared = maxDistanceSquared;
+        }
+
+        void visit(int from, int to, int depth) {
+            if (from >= to) {
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            int star = order[middle];
+
+            double dx = x - positions[2 * star];
+            double dy = y - positions[2 * star + 1];
+            double distanceSquared = dx * dx + dy * dy;
+
+            if (distanceSquared < bestDistanceSquared
+                    || (distanceSquared == bestDistanceSquared && closest >= 0 && star < closest)) {
+                bestDistanceSquared = distanceSquared;
+                closest = star;
+            }
+
+            // Le côté du point d'abord, puis l'autre s'il peut contenir une étoile plus proche (ou aussi proche)
+            double delta = ((depth & 1) == 0) ? dx : dy;
+            if (delta < 0) {
+                visit(from, middle, depth + 1);
+                if (delta * delta <= bestDistanceSquared) {
+                    visit(middle + 1, to, depth + 1);
+                }
+            } else {
+                visit(middle + 1, to, depth + 1);
+                if (delta * delta <= bestDistanceSquared) {
+                    visit(from, middle, depth + 1);
+                }
+            }
+        }
+    }
+}
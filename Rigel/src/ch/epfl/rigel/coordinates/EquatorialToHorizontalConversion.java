@@ -62,6 +62,27 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
         return HorizontalCoordinates.of(az, alt);
     }
  
+    /**
+     * Retourne le temps sidéral local de l'observateur, en radians.
+     */
+    double localSiderealTime() {
+        return localSiderealTime;
+    }
+    
+    /**
+     * Retourne le sinus de la latitude de l'observateur.
+     */
+    double sinObsLat() {
+        return sinObsLat;
+    }
+    
+    /**
+     * Retourne le cosinus de la latitude de l'observateur.
+     */
+    double cosObsLat() {
+        return cosObsLat;
+    }
+ 
     // Operations non prises en charge
     
     /**
@@ -1,7 +1,9 @@
 package ch.epfl.rigel.coordinates;
 
+import java.util.Arrays;
 import java.util.function.Function;
 
+import ch.epfl.rigel.Preconditions;
 import ch.epfl.rigel.math.Angle;
 
 /**
@@ -109,6 +111,179 @@ public final class StereographicProjection implements Function<HorizontalCoordin
         return CartesianCoordinates.of(x, y);
     }
     
+    /**
+     * Projette d'un coup les points de coordonnées équatoriales {@code ra}, {@code dec}, 
+     * convertis en coordonnées horizontales par {@code conversion}, et écrit leurs coordonnées cartésiennes
+     * dans {@code positions} (x, puis y, pour chaque point). Donne exactement le résultat de 
+     * {@code compose(conversion).apply(...)} pour chaque point, mais sans aucune allocation : 
+     * le temps sidéral et la latitude de l'observateur ne sont lus qu'une fois, et aucune coordonnée intermédiaire n'est construite.
+     * Lève IllegalArgumentException si les tableaux n'ont pas des tailles correspondantes.
+     * @param conversion
+     *          la conversion des coordonnées équatoriales en coordonnées horizontales
+     * @param ra
+     *          les ascensions droites, en radians
+     * @param dec
+     *          les déclinaisons, en radians
+     * @param positions
+     *          le tableau recevant les coordonnées cartésiennes, deux fois plus long que {@code ra}
+     * @throws IllegalArgumentException
+     *          si {@code ra} et {@code dec} n'ont pas la même taille, ou si {@code positions} n'est pas deux fois plus grand.
+     */
+    public void applyToAll(EquatorialToHorizontalConversion conversion, double[] ra, double[] dec, double[] positions) {
+        applyToAll(conversion, ra, dec, positions, 0, ra.length);
+    }
+    
+    /**
+     * Comme {@link #applyToAll(EquatorialToHorizontalConversion, double[], double[], double[])}, 
+     * mais ne projette que les points d'index compris dans [{@code from}, {@code to}[, 
+     * pour que des fils différents puissent se partager un même tableau {@code positions}.
+     * @param conversion
+     *          la conversion des coordonnées équatoriales en coordonnées horizontales
+     * @param ra
+     *          les ascensions droites, en radians
+     * @param dec
+     *          les déclinaisons, en radians
+     * @param positions
+     *          le tableau recevant les coordonnées cartésiennes, deux fois plus long que {@code ra}
+     * @param from
+     *          l'index du premier point projeté
+     * @param to
+     *          l'index suivant celui du dernier point projeté
+     * @throws IllegalArgumentException
+     *          si les tableaux n'ont pas des tailles correspondantes, ou si l'intervalle n'est pas compris dans [0, ra.length].
+     */
+    public void applyToAll(EquatorialToHorizontalConversion conversion, double[] ra, double[] dec, double[] positions, 
+            int from, int to) {
+        Preconditions.checkArgument(ra.length == dec.length && positions.length == 2 * ra.length);
+        Preconditions.checkArgument(0 <= from && from <= to && to <= ra.length);
+        
+        // Constantes de l'image, calculées une seule fois
+        double localSiderealTime = conversion.localSiderealTime();
+        double sinObsLat = conversion.sinObsLat();
+        double cosObsLat = conversion.cosObsLat();
+        
+        for (int i = from; i < to; i++) {
+            // Coordonnées horizontales, comme EquatorialToHorizontalConversion.apply
+            double hourAngle = localSiderealTime - ra[i];
+            double cosDec = Math.cos(dec[i]);
+            double sinDec = Math.sin(dec[i]);
+            
+            double alt = Math.asin(sinDec * sinObsLat + cosDec * cosObsLat * Math.cos(hourAngle));
+            double az = Math.atan2(-cosDec * cosObsLat * Math.sin(hourAngle), sinDec - sinObsLat * Math.sin(alt));
+            if (az < 0) az += Angle.TAU;
+            az = Angle.normalizePositive(az);
+            
+            // Coordonnées cartésiennes, comme apply
+            double cosAlt = Math.cos(alt);
+            double sinAlt = Math.sin(alt);
+            
+            double azDelta = az - azProjCenter;
+            double cosAzDelta = Math.cos(azDelta);
+            double d = 1 / (1 + sinAlt * sinAltProjCenter + cosAlt * cosAltProjCenter * cosAzDelta);
+            
+            positions[2 * i] = d * cosAlt * Math.sin(azDelta);
+            positions[2 * i + 1] = d * (sinAlt * cosAltProjCenter - cosAlt * sinAltProjCenter * cosAzDelta);
+        }
+    }
+    
+    /**
+     * Projette d'un coup les points de vecteurs unités équatoriaux {@code unitVectors} (x, y, z pour chaque point, 
+     * avec x = cos(dec)cos(ra), y = cos(dec)sin(ra), z = sin(dec)), convertis en coordonnées horizontales par {@code conversion}, 
+     * et écrit leurs coordonnées cartésiennes dans {@code positions} (x, puis y, pour chaque point).
+     * <p>
+     * Le passage du repère équatorial au repère centré sur le centre de projection est une rotation, 
+     * calculée une fois par appel : chaque point ne coûte ensuite qu'un produit matrice-vecteur et une division, sans trigonométrie.
+     * Le résultat est celui de {@code compose(conversion).apply(...)} aux erreurs d'arrondi près.
+     * Lève IllegalArgumentException si les tableaux n'ont pas des tailles correspondantes.
+     * @param conversion
+     *          la conversion des coordonnées équatoriales en coordonnées horizontales
+     * @param unitVectors
+     *          les vecteurs unités équatoriaux, trois composantes par point
+     * @param positions
+     *          le tableau recevant les coordonnées cartésiennes, deux composantes par point
+     * @throws IllegalArgumentException
+     *          si {@code unitVectors} et {@code positions} ne contiennent pas le même nombre de points.
+     */
+    public void applyToAllUnitVectors(EquatorialToHorizontalConversion conversion, double[] unitVectors, double[] positions) {
+        applyToAllUnitVectors(conversion, unitVectors, positions, 0, unitVectors.length / 3);
+    }
+    
+    /**
+     * Comme {@link #applyToAllUnitVectors(EquatorialToHorizontalConversion, double[], double[])}, 
+     * mais ne projette que les points d'index compris dans [{@code from}, {@code to}[.
+     * @param conversion
+     *          la conversion des coordonnées équatoriales en coordonnées horizontales
+     * @param unitVectors
+     *          les vecteurs unités équatoriaux, trois composantes par point
+     * @param positions
+     *          le tableau recevant les coordonnées cartésiennes, deux composantes par point
+     * @param from
+     *          l'index du premier point projeté
+     * @param to
+     *          l'index suivant celui du dernier point projeté
+     * @throws IllegalArgumentException
+     *          si les tableaux ne contiennent pas le même nombre de points, ou si l'intervalle n'est pas compris dans [0, nombre de points].
+     */
+    public void applyToAllUnitVectors(EquatorialToHorizontalConversion conversion, double[] unitVectors, double[] positions,
+            int from, int to) {
+        Preconditions.checkArgument(unitVectors.length % 3 == 0 && positions.length == unitVectors.length / 3 * 2);
+        Preconditions.checkArgument(0 <= from && from <= to && to <= unitVectors.length / 3);
+        
+        double[] m = rotation(conversion);
+        
+        for (int i = 2 * from, k = 3 * from; i < 2 * to; i += 2, k += 3) {
+            double x = unitVectors[k];
+            double y = unitVectors[k + 1];
+            double z = unitVectors[k + 2];
+            
+            double d = 1 / (1 + m[6] * x + m[7] * y + m[8] * z);
+            
+            positions[i]     = d * (m[0] * x + m[1] * y + m[2] * z);
+            positions[i + 1] = d * (m[3] * x + m[4] * y + m[5] * z);
+        }
+    }
+    
+    /**
+     * Retourne le vecteur unité équatorial (x = cos(dec)cos(ra), y = cos(dec)sin(ra), z = sin(dec)) 
+     * du centre de la projection, vu à travers la conversion {@code conversion}.
+     * @param conversion
+     *          la conversion des coordonnées équatoriales en coordonnées horizontales
+     * @return
+     *          les composantes x, y et z du vecteur unité équatorial du centre de la projection
+     */
+    public double[] centerUnitVector(EquatorialToHorizontalConversion conversion) {
+        // La profondeur vers le centre est le produit scalaire avec son vecteur unité
+        return Arrays.copyOfRange(rotation(conversion), 6, 9);
+    }
+    
+    /**
+     * Retourne, ligne par ligne, la rotation du repère équatorial vers le repère de la projection vu à travers {@code conversion}
+     */
+    private double[] rotation(EquatorialToHorizontalConversion conversion) {
+        double cosLst = Math.cos(conversion.localSiderealTime());
+        double sinLst = Math.sin(conversion.localSiderealTime());
+        double sinObsLat = conversion.sinObsLat();
+        double cosObsLat = conversion.cosObsLat();
+        double cosAzProjCenter = Math.cos(azProjCenter);
+        double sinAzProjCenter = Math.sin(azProjCenter);
+        
+        // Lignes de la rotation du repère équatorial vers le repère horizontal (est, nord, zénith), 
+        // sachant que cos(dec)cos(H) = cos(lst)x + sin(lst)y et cos(dec)sin(H) = sin(lst)x - cos(lst)y
+        double[] east   = { -sinLst, cosLst, 0 };
+        double[] north  = { -sinObsLat * cosLst, -sinObsLat * sinLst, cosObsLat };
+        double[] zenith = { cosObsLat * cosLst, cosObsLat * sinLst, sinObsLat };
+        
+        // Puis vers le repère de la projection : cos(alt)sin(azDelta), la hauteur au dessus du plan, et la profondeur vers le centre
+        double[] m = new double[9];
+        for (int j = 0; j < 3; j++) {
+            double cosAltCosAzDelta = north[j] * cosAzProjCenter + east[j] * sinAzProjCenter;
+            m[j]     = east[j] * cosAzProjCenter - north[j] * sinAzProjCenter;
+            m[3 + j] = zenith[j] * cosAltProjCenter - cosAltCosAzDelta * sinAltProjCenter;
+            m[6 + j] = zenith[j] * sinAltProjCenter + cosAltCosAzDelta * cosAltProjCenter;
+        }
+        return m;
+    }
+    
     /**
      * Retourne les coordonnées horizontales du point dont la projection est le point de coordonnées cartésiennes xy.
      * @param xy
@@ -0,0 +1,337 @@
+package ch.epfl.rigel.gui;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.math.Angle;
+
+/**
+ * Classe représentant un peintre du ciel hors écran : il dessine dans une {@link BufferedImage} à l'aide de Java2D,
+ * sans démarrer JavaFX, les mêmes éléments que {@link SkyCanvasPainter} (astérismes, étoiles, planètes, Soleil, Lune,
+ * Terre et horizon), avec le même passage du plan à l'image que le gestionnaire de canevas.
+ * <p>
+ * Un même peintre peut dessiner depuis plusieurs fils à la fois, chaque appel de {@link #render} ayant sa propre image.
+ * <p>
+ * Publique, finale.
+ *
+ * @author Orfeas Liossatos (310738)
+ * @author Henrique Da Silva Gameiro (315689)
+ */
+public final class HeadlessSkyRenderer {
+
+    private static final float ASTERISM_LINE_WIDTH  = 1.0f;
+    private static final float HORIZON_LINE_WIDTH   = 2.0f;
+
+    private static final double HALO_SCALE_FACTOR   = 2.2d;
+    private static final double SURFACE_DILATION    = 2d;
+    private static final double SUN_MOON_ANGULAR_SIZE = Angle.ofDeg(0.5);
+
+    private static final int CARD_NUM               = 8;
+    private static final double CARDINAL_VERT_OFFSET = -0.5d;
+    private static final HorizontalCoordinates HORIZON = HorizontalCoordinates.of(0, 0);
+    private static final double SMALL_ANGLE         = 0.0001;
+
+    // Les couleurs de SkyCanvasPainter
+    private static final Color SKY_COLOR        = new Color(5, 5, 20);
+    private static final Color ASTERISM_COLOR   = Color.BLUE;
+    private static final Color PLANET_COLOR     = new Color(211, 211, 211);
+    private static final Color HALO_COLOR       = new Color(255, 255, 0, 64);
+    private static final Color HORIZON_COLOR    = Color.RED;
+    private static final double EARTH_TRANSPARENCY = 0.6d;
+
+    private final int width;
+    private final int height;
+    private final double fieldOfViewDeg;
+
+    private final HorizontalCoordinates[] cardinalCoords = new HorizontalCoordinates[CARD_NUM];
+    private final String[] cardinalNames = new String[CARD_NUM];
+
+    // Couleurs et facteurs de taille des étoiles du dernier catalogue dessiné, remplacés d'un bloc
+    private volatile StarStyle starStyle;
+
+    /**
+     * Constructeur de HeadlessSkyRenderer. Construit un peintre d'images de {@code width} x {@code height} pixels,
+     * dont la largeur couvre un champ de vue de {@code fieldOfViewDeg} degrés.
+     * @param width
+     *          la largeur des images, en pixels
+     * @param height
+     *          la hauteur des images, en pixels
+     * @param fieldOfViewDeg
+     *          le champ de vue horizontal, en degrés
+     * @throws IllegalArgumentException
+     *          si une des dimensions ou le champ de vue n'est pas strictement positif
+     */
+    public HeadlessSkyRenderer(int width, int height, double fieldOfViewDeg) {
+        Preconditions.checkArgument(width > 0 && height > 0);
+        Preconditions.checkArgument(fieldOfViewDeg > 0);
+
+        this.width = width;
+        this.height = height;
+        this.fieldOfViewDeg = fieldOfViewDeg;
+
+        for (int i = 0; i < CARD_NUM; i++) {
+            cardinalCoords[i] = HorizontalCoordinates.ofDeg(i * 45, CARDINAL_VERT_OFFSET);
+            cardinalNames[i] = cardinalCoords[i].azOctantName("N", "E", "S", "O");
+        }
+    }
+
+    /**
+     * Retourne la largeur des images, en pixels
+     * @return
+     *          la largeur des images
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Retourne la hauteur des images, en pixels
+     * @return
+     *          la hauteur des images
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Dessine le ciel observé {@code sky}, vu à travers la projection stéréographique avec laquelle il a été calculé,
+     * dans une nouvelle image ARGB.
+     * @param sky
+     *          le ciel observé
+     * @return
+     *          l'image du ciel
+     */
+    public BufferedImage render(ObservedSky sky) {
+        StereographicProjection projection = sky.projection();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+
+            // Le passage du plan à l'image, comme dans SkyCanvasManager : une dilatation, l'axe y retourné, centrée
+            double scale = width / projection.applyToAngle(Angle.ofDeg(fieldOfViewDeg));
+            Plane plane = new Plane(scale, width / 2d, height / 2d);
+
+            graphics.setColor(SKY_COLOR);
+            graphics.fillRect(0, 0, width, height);
+
+            drawAsterisms(graphics, sky, plane);
+            drawStars(graphics, sky, projection, plane);
+            drawPlanets(graphics, sky, projection, plane);
+            drawSun(graphics, sky, projection, plane);
+            drawMoon(graphics, sky, projection, plane);
+            drawEarth(graphics, projection, plane);
+            drawHorizon(graphics, projection, plane);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private void drawAsterisms(Graphics2D graphics, ObservedSky sky, Plane plane) {
+        Path2D.Double path = new Path2D.Double();
+
+        for (int asterism = 0; asterism < sky.asterismCount(); asterism++) {
+            boolean oldStarVisible = false;
+
+            for (int position = 0; position < sky.asterismLength(asterism); position++) {
+                int index = sky.asterismStarIndex(asterism, position);
+                double x = plane.x(sky.starX(index));
+                double y = plane.y(sky.starY(index));
+                boolean newStarVisible = x >= 0 && x < width && y >= 0 && y < height;
+
+                if (position == 0 || (!newStarVisible && !oldStarVisible)) {
+                    path.moveTo(x, y);
+                } else {
+                    path.lineTo(x, y);
+                }
+
+                oldStarVisible = newStarVisible;
+            }
+        }
+
+        graphics.setColor(ASTERISM_COLOR);
+        graphics.setStroke(new BasicStroke(ASTERISM_LINE_WIDTH));
+        graphics.draw(path);
+    }
+
+    private void drawStars(Graphics2D graphics, ObservedSky sky, StereographicProjection projection, Plane plane) {
+        StarStyle style = starStyle;
+        if (style == null || !style.attributes.isFor(sky)) {
+            style = new StarStyle(sky);
+            starStyle = style;
+        }
+
+        double projectedAngularSize = projection.applyToAngle(SkyCanvasPainter.STAR_ANGULAR_SIZE);
+        int visibleStarCount = sky.starCountBrighterThan(
+                SkyCanvasPainter.limitingMagnitude(plane.scale * projectedAngularSize));
+
+        // L'image dans le plan, depuis son centre
+        double planeRadius = Math.hypot(width / 2d, height / 2d) / plane.scale;
+        int[] visibleRanks = sky.starRanksWithin(planeRadius + projectedAngularSize / 2, visibleStarCount);
+
+        Ellipse2D.Double disc = new Ellipse2D.Double();
+        for (int i = visibleRanks.length - 1; i >= 0; i--) {
+            int index = sky.starIndexByMagnitude(visibleRanks[i]);
+
+            double diameter = plane.scale * style.attributes.sizeFactor(index) * projectedAngularSize;
+            double x = plane.x(sky.starX(index));
+            double y = plane.y(sky.starY(index));
+            double radius = diameter / 2;
+
+            // Écarter les étoiles hors de l'image, et celles dont la position n'est pas définie
+            if (!(x + radius >= 0 && x - radius <= width && y + radius >= 0 && y - radius <= height)) {
+                continue;
+            }
+
+            disc.setFrame(x - radius, y - radius, diameter, diameter);
+            graphics.setColor(style.colors[index]);
+            graphics.fill(disc);
+        }
+    }
+
+    private void drawPlanets(Graphics2D graphics, ObservedSky sky, StereographicProjection projection, Plane plane) {
+        double projectedAngularSize = projection.applyToAngle(SkyCanvasPainter.STAR_ANGULAR_SIZE);
+        double[] planetPositions = sky.planetPositions();
+
+        graphics.setColor(PLANET_COLOR);
+        for (int i = 0; i < sky.planets().size(); i++) {
+            double diameter = plane.scale * SkyCanvasPainter.sizeFactor(sky.planets().get(i).magnitude()) * projectedAngularSize;
+            fillDisc(graphics, plane.x(planetPositions[2 * i]), plane.y(planetPositions[2 * i + 1]), diameter);
+        }
+    }
+
+    private void drawSun(Graphics2D graphics, ObservedSky sky, StereographicProjection projection, Plane plane) {
+        double x = plane.x(sky.sunPosition().x());
+        double y = plane.y(sky.sunPosition().y());
+        double diameter = plane.scale * projection.applyToAngle(SUN_MOON_ANGULAR_SIZE);
+
+        graphics.setColor(HALO_COLOR);
+        fillDisc(graphics, x, y, diameter * HALO_SCALE_FACTOR);
+        fillDisc(graphics, x, y, diameter + SURFACE_DILATION);
+
+        graphics.setColor(Color.WHITE);
+        fillDisc(graphics, x, y, diameter);
+    }
+
+    private void drawMoon(Graphics2D graphics, ObservedSky sky, StereographicProjection projection, Plane plane) {
+        graphics.setColor(Color.WHITE);
+        fillDisc(graphics, plane.x(sky.moonPosition().x()), plane.y(sky.moonPosition().y()),
+                plane.scale * projection.applyToAngle(SUN_MOON_ANGULAR_SIZE));
+    }
+
+    private void drawEarth(Graphics2D graphics, StereographicProjection projection, Plane plane) {
+        CartesianCoordinates center = projection.circleCenterForParallel(HORIZON);
+        double x = plane.x(center.x());
+        double y = plane.y(center.y());
+        double diameter = plane.scale * Math.abs(2 * projection.circleRadiusForParallel(HORIZON));
+        double viewingAlt = projection.getProjectionCenter().alt();
+
+        if (viewingAlt < -SMALL_ANGLE) {
+            // La transparence de la Terre diminue plus on s'approche d'une hauteur d'observation de -90 degrés
+            graphics.setColor(earthColor(EARTH_TRANSPARENCY * (1 - Math.abs(viewingAlt / (Angle.TAU / 4)))));
+            fillDisc(graphics, x, y, diameter);
+        } else if (viewingAlt < SMALL_ANGLE) {
+            graphics.setColor(earthColor(EARTH_TRANSPARENCY));
+            graphics.fill(new Rectangle2D.Double(0, height / 2d, width, height / 2d));
+        } else {
+            // L'extérieur du cercle de l'horizon
+            Area earth = new Area(new Rectangle2D.Double(0, 0, width, height));
+            earth.subtract(new Area(new Ellipse2D.Double(x - diameter / 2, y - diameter / 2, diameter, diameter)));
+            graphics.setColor(earthColor(EARTH_TRANSPARENCY));
+            graphics.fill(earth);
+        }
+    }
+
+    private void drawHorizon(Graphics2D graphics, StereographicProjection projection, Plane plane) {
+        graphics.setColor(HORIZON_COLOR);
+        graphics.setStroke(new BasicStroke(HORIZON_LINE_WIDTH));
+
+        double viewingAlt = projection.getProjectionCenter().alt();
+        if (-SMALL_ANGLE <= viewingAlt && viewingAlt < SMALL_ANGLE) {
+            graphics.draw(new Line2D.Double(0, height / 2d, width, height / 2d));
+        } else {
+            CartesianCoordinates center = projection.circleCenterForParallel(HORIZON);
+            double diameter = plane.scale * Math.abs(2 * projection.circleRadiusForParallel(HORIZON));
+            graphics.draw(new Ellipse2D.Double(
+                    plane.x(center.x()) - diameter / 2, plane.y(center.y()) - diameter / 2, diameter, diameter));
+        }
+
+        // Les points cardinaux et intercardinaux, centrés, sous leur position
+        FontMetrics metrics = graphics.getFontMetrics();
+        for (int i = 0; i < CARD_NUM; i++) {
+            CartesianCoordinates cardinal = projection.apply(cardinalCoords[i]);
+            double x = plane.x(cardinal.x()) - metrics.stringWidth(cardinalNames[i]) / 2d;
+            double y = plane.y(cardinal.y()) + metrics.getAscent();
+            graphics.drawString(cardinalNames[i], (float) x, (float) y);
+        }
+    }
+
+    private static void fillDisc(Graphics2D graphics, double x, double y, double diameter) {
+        graphics.fill(new Ellipse2D.Double(x - diameter / 2, y - diameter / 2, diameter, diameter));
+    }
+
+    private static Color earthColor(double opacity) {
+        return new Color(0, 0, 0, (int) Math.round(255 * opacity));
+    }
+
+    private static Color awtColor(javafx.scene.paint.Color color) {
+        return new Color((float) color.getRed(), (float) color.getGreen(), (float) color.getBlue(), (float) color.getOpacity());
+    }
+
+    /**
+     * Le passage du plan de la projection à l'image
+     */
+    private static final class Plane {
+
+        private final double scale;
+        private final double tx;
+        private final double ty;
+
+        Plane(double scale, double tx, double ty) {
+            this.scale = scale;
+            this.tx = tx;
+            this.ty = ty;
+        }
+
+        double x(double planeX) {
+            return scale * planeX + tx;
+        }
+
+        double y(double planeY) {
+            return -scale * planeY + ty;
+        }
+    }
+
+    /**
+     * Les attributs de dessin des étoiles d'un catalogue, et leurs couleurs Java2D
+     */
+    private static final class StarStyle {
+
+        private final StarRenderAttributes attributes;
+        private final Color[] colors;
+
+        StarStyle(ObservedSky sky) {
+            this.attributes = new StarRenderAttributes(sky);
+            this.colors = new Color[sky.stars().size()];
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = awtColor(attributes.color(i));
+            }
+        }
+    }
+}
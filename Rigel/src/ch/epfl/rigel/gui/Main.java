@@ -14,8 +14,8 @@ import java.util.List;
 import java.util.function.UnaryOperator;
 
 import ch.epfl.rigel.astronomy.AsterismLoader;
+import ch.epfl.rigel.astronomy.BinaryCatalogueConverter;
 import ch.epfl.rigel.astronomy.CelestialObject;
-import ch.epfl.rigel.astronomy.HygDatabaseLoader;
 import ch.epfl.rigel.astronomy.MoonModel;
 import ch.epfl.rigel.astronomy.PlanetModel;
 import ch.epfl.rigel.astronomy.Star;
@@ -127,12 +127,11 @@ public final class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception {
-        try (InputStream hygStream = resourceStream(HYG_CATALOGUE_NAME);
-                InputStream astStream = resourceStream(ASTERISM_CATALOGUE_NAME)) {
+        try (InputStream astStream = resourceStream(ASTERISM_CATALOGUE_NAME)) {
 
-            // Initialisation du modèle
-            StarCatalogue catalogue = new StarCatalogue.Builder()
-                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+            // Initialisation du modèle : le catalogue binaire, généré à côté du CSV au premier lancement, 
+            // est projeté en mémoire sans analyse du CSV
+            StarCatalogue catalogue = BinaryCatalogueConverter.loadStars(getClass().getResource(HYG_CATALOGUE_NAME))
                     .loadFrom(astStream, AsterismLoader.INSTANCE)
                     .build();
         
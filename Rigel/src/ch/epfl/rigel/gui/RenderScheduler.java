@@ -0,0 +1,72 @@
+package ch.epfl.rigel.gui;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Classe représentant un ordonnanceur de dessin : les demandes de dessin sont notées,
+ * et le dessin n'est fait qu'une fois par image, avec l'état courant, s'il y en a eu au moins une.
+ * Plusieurs changements rapprochés (la date puis l'heure, par exemple) ne coûtent ainsi qu'un seul dessin.
+ * <p>
+ * Publique, finale. Ses méthodes doivent être appelées depuis le fil JavaFX.
+ *
+ * @author Orfeas Liossatos (310738)
+ * @author Henrique Da Silva Gameiro (315689)
+ */
+public final class RenderScheduler extends AnimationTimer {
+
+    private final Runnable renderer;
+
+    private boolean dirty = false;
+    private long requestedFrames = 0;
+    private long performedFrames = 0;
+
+    /**
+     * Constructeur de RenderScheduler. Construit un ordonnanceur qui dessine à l'aide de {@code renderer}.
+     * Il faut le démarrer avec {@link #start()} pour que les demandes soient satisfaites.
+     * @param renderer
+     *          le dessin à faire, une fois par image au plus
+     */
+    public RenderScheduler(Runnable renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Demande un dessin, qui sera fait à la prochaine image avec l'état d'alors
+     */
+    public void requestFrame() {
+        dirty = true;
+        requestedFrames++;
+    }
+
+    /**
+     * Méthode appelée une fois par image. Dessine si un dessin a été demandé depuis l'image précédente.
+     * @param timestampNanos
+     *          l'horodatage de l'image courante en nanosecondes
+     */
+    @Override
+    public void handle(long timestampNanos) {
+        if (dirty) {
+            dirty = false;
+            performedFrames++;
+            renderer.run();
+        }
+    }
+
+    /**
+     * Retourne le nombre de dessins demandés depuis la construction
+     * @return
+     *          le nombre de dessins demandés
+     */
+    public long requestedFrames() {
+        return requestedFrames;
+    }
+
+    /**
+     * Retourne le nombre de dessins faits depuis la construction, au plus un par image
+     * @return
+     *          le nombre de dessins faits
+     */
+    public long performedFrames() {
+        return performedFrames;
+    }
+}
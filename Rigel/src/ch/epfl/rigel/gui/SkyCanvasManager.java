@@ -1,18 +1,27 @@
 package ch.epfl.rigel.gui;
 
+import java.time.ZonedDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
 import ch.epfl.rigel.astronomy.CelestialObject;
 import ch.epfl.rigel.astronomy.ObservedSky;
 import ch.epfl.rigel.astronomy.StarCatalogue;
 import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
 import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import ch.epfl.rigel.coordinates.StereographicProjection;
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.ClosedInterval;
 import ch.epfl.rigel.math.RightOpenInterval;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.DoubleBinding;
 import javafx.beans.binding.ObjectBinding;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.scene.canvas.Canvas;
@@ -45,6 +54,7 @@ public final class SkyCanvasManager {
     // Attributs privés
     private Canvas canvas;
     private SkyCanvasPainter painter;
+    private RenderScheduler renderScheduler;
 
     // Propriétés et liens externes 
     private DoubleBinding mouseAzDeg;
@@ -56,10 +66,19 @@ public final class SkyCanvasManager {
     private ObjectBinding<StereographicProjection> projection; 
     private DoubleBinding dilationFactor;
     private ObjectBinding<Transform> planeToCanvas;
-    private ObjectBinding<ObservedSky> observedSky;
+    private ObjectProperty<ObservedSky> observedSky = new SimpleObjectProperty<>();
     private ObjectProperty<CartesianCoordinates> mousePosition = new SimpleObjectProperty<>(INIT_MOUSE_POSITION);
     private ObjectBinding<HorizontalCoordinates> mouseHorizontalPosition;
     
+    // Calcul du ciel observé hors du fil JavaFX : un fil coordonne, le groupe de fils commun calcule
+    private final ExecutorService skyExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ObservedSky");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong latestSkyRequest = new AtomicLong();
+    private ObservedSky latestSky;  // Le dernier ciel calculé, utilisé seulement par skyExecutor après la construction
+    
     
     /**
      * Constructeur de SkyCanvasManager. Construit un gestionnaire de canevas étant donné
@@ -121,19 +140,31 @@ public final class SkyCanvasManager {
         
         
         /*
-         *  Un lien contenant le ciel observé
+         *  Une propriété contenant le ciel observé, dont les étoiles sont projetées
+         *  par rotation de leurs vecteurs unités, sans trigonométrie par étoile.
+         *  Le premier ciel est calculé ici, les suivants hors du fil JavaFX, 
+         *  et chacun n'est publié qu'une fois complet
          */
-        observedSky = Bindings.createObjectBinding(
-                () -> new ObservedSky(
-                        dateTimeB.getZonedDateTime(),
-                        observerLocationB.getCoordinates(),
-                        projection.getValue(),
-                        catalogue), 
-                observerLocationB.coordinatesProperty(),
-                dateTimeB.dateProperty(),
-                dateTimeB.timeProperty(),
-                dateTimeB.zoneProperty(),
-                projection);
+        observedSky.setValue(new ObservedSky(
+                dateTimeB.getZonedDateTime(),
+                observerLocationB.getCoordinates(),
+                projection.getValue(),
+                catalogue,
+                true,
+                ForkJoinPool.commonPool()));
+        latestSky = observedSky.getValue();
+        
+        ChangeListener<Object> skyRequestListener = (o, oV, nV) 
+                -> requestObservedSky(
+                        dateTimeB, 
+                        observerLocationB, 
+                        projection.getValue());
+        
+        observerLocationB.coordinatesProperty().addListener(skyRequestListener);
+        dateTimeB.dateProperty().addListener(skyRequestListener);
+        dateTimeB.timeProperty().addListener(skyRequestListener);
+        dateTimeB.zoneProperty().addListener(skyRequestListener);
+        projection.addListener(skyRequestListener);
         
         
         /*
@@ -255,26 +286,33 @@ public final class SkyCanvasManager {
         });
         
         
+        /*
+         * Le dessin du ciel, fait au plus une fois par image avec l'état le plus récent
+         */
+        renderScheduler = new RenderScheduler(() -> {
+            // La projection du ciel, qui peut être en retard d'une image sur celle des paramètres d'observation
+            painter.drawAllConditional(
+                observedSky.getValue(),
+                observedSky.getValue().projection(),
+                planeToCanvas.getValue(),
+                clickedObject.getValue(),
+                miscB.getShowStars(),
+                miscB.getShowAsterisms(),
+                miscB.getShowPlanets(),
+                miscB.getShowSun(),
+                miscB.getShowMoon(),
+                miscB.getShowEarth(),
+                miscB.getShowHorizon(),
+                miscB.getShowInfo());
+        });
+        
         /*
          * Des auditeurs pour être informé des changements 
-         * des liens et propriétés ayant un impact sur le dessin du ciel
+         * des liens et propriétés ayant un impact sur le dessin du ciel, 
+         * qui ne font que demander un dessin
          */
         ChangeListener<Object> painterListener = (o, oV, nV) 
-                -> {
-                    painter.drawAllConditional(
-                        observedSky.getValue(),
-                        projection.getValue(),
-                        planeToCanvas.getValue(),
-                        clickedObject.getValue(),
-                        miscB.getShowStars(),
-                        miscB.getShowAsterisms(),
-                        miscB.getShowPlanets(),
-                        miscB.getShowSun(),
-                        miscB.getShowMoon(),
-                        miscB.getShowEarth(),
-                        miscB.getShowHorizon(),
-                        miscB.getShowInfo());
-                };
+                -> renderScheduler.requestFrame();
         
         observedSky.addListener(painterListener);
         planeToCanvas.addListener(painterListener);
@@ -287,6 +325,9 @@ public final class SkyCanvasManager {
         miscB.showMoonProperty().addListener(painterListener);
         miscB.showEarthProperty().addListener(painterListener);
         miscB.showHorizonProperty().addListener(painterListener);
+        
+        renderScheduler.requestFrame();
+        renderScheduler.start();
                 
         // BONUS : STAR TRACKING
        
@@ -298,7 +339,7 @@ public final class SkyCanvasManager {
                     
                          if (miscB.getDoTrack()) {
                              viewingParametersB.setCenter(
-                                 projection.getValue().inverseApply(
+                                 observedSky.getValue().projection().inverseApply(
                                          observedSky.getValue().getPosition(
                                                  clickedObject.getValue())));
                          }
@@ -307,16 +348,45 @@ public final class SkyCanvasManager {
 
         clickedObject.addListener(trackListener);
         miscB.doTrackProperty().addListener(trackListener);
-        observerLocationB.lonDegProperty().addListener(trackListener);
-        observerLocationB.latDegProperty().addListener(trackListener);
-        dateTimeB.zoneProperty().addListener(trackListener);
-        dateTimeB.dateProperty().addListener(trackListener);
-        dateTimeB.timeProperty().addListener(trackListener);
+        
+        // Le suivi réagit aux nouveaux ciels dus à l'instant ou au lieu d'observation, qui arrivent après eux,
+        // mais pas à ceux dus au centre de projection, qu'il modifie lui-même
+        observedSky.addListener((o, oldSky, newSky) -> {
+            if (oldSky.projection() == newSky.projection()) {
+                trackListener.changed(o, oldSky, newSky);
+            }
+        });
         
         
                 
     }
     
+    /**
+     * Demande le calcul, hors du fil JavaFX, du ciel observé à l'instant et depuis le lieu actuels, 
+     * qui remplacera le ciel courant dans le fil JavaFX. Un calcul pas encore commencé est abandonné 
+     * si une demande plus récente arrive entre temps. Le nouveau ciel est obtenu du précédent, 
+     * en ne refaisant que le travail qui dépend des paramètres changés.
+     */
+    private void requestObservedSky(DateTimeBean dateTimeB, ObserverLocationBean observerLocationB,
+            StereographicProjection projection) {
+        
+        // Les paramètres sont lus ici, dans le fil JavaFX
+        ZonedDateTime when = dateTimeB.getZonedDateTime();
+        GeographicCoordinates where = observerLocationB.getCoordinates();
+        long request = latestSkyRequest.incrementAndGet();
+        
+        skyExecutor.execute(() -> {
+            if (request != latestSkyRequest.get()) {
+                return;
+            }
+            ObservedSky sky = latestSky.advanceTo(when, where, projection);
+            if (sky != latestSky) {
+                latestSky = sky;
+                Platform.runLater(() -> observedSky.setValue(sky));
+            }
+        });
+    }
+    
     /**
      * Retourne le canevas du ciel
      * @return
@@ -352,6 +422,16 @@ public final class SkyCanvasManager {
     public ObjectBinding<CelestialObject> objectUnderMouseProperty() {
         return objectUnderMouse;
     }
+    
+    /**
+     * Retourne l'ordonnanceur du dessin du ciel, et ses compteurs d'images demandées et dessinées
+     * @return
+     *          l'ordonnanceur du dessin du ciel
+     */
+    public RenderScheduler renderScheduler() {
+        return renderScheduler;
+    }
+    
     // BONUS
     public ObjectProperty<CelestialObject> clickedObjectProperty(){
         return clickedObject;
@@ -359,7 +439,7 @@ public final class SkyCanvasManager {
     public ObjectBinding<StereographicProjection> projectionProperty(){
         return projection;
     }
-    public ObjectBinding<ObservedSky> observedSkyProperty(){
+    public ReadOnlyObjectProperty<ObservedSky> observedSkyProperty(){
         return observedSky;
     }
 }
@@ -3,9 +3,9 @@ package ch.epfl.rigel.gui;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import ch.epfl.rigel.astronomy.Asterism;
 import ch.epfl.rigel.astronomy.CelestialObject;
 import ch.epfl.rigel.astronomy.Moon;
 import ch.epfl.rigel.astronomy.ObservedSky;
@@ -17,13 +17,18 @@ import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import ch.epfl.rigel.coordinates.StereographicProjection;
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.ClosedInterval;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.TextAlignment;
+import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.scene.transform.Transform;
 
 /**
@@ -37,7 +42,6 @@ import javafx.scene.transform.Transform;
 public final class SkyCanvasPainter {
 
     private static final double ASTERISM_LINE_WIDTH = 1.0d;
-    private static final Point2D OFFSCREEN_POINT    = new Point2D(-1d, -1d);
     
     private static final Color HALO_COLOR           = Color.YELLOW.deriveColor(0d, 1d, 1d, 0.25d);
     private static final double HALO_SCALE_FACTOR   = 2.2d;
@@ -47,10 +51,18 @@ public final class SkyCanvasPainter {
     private static final double CARDINAL_VERT_OFFSET                    = -0.5d;
     private static final List<String> CARD_NAMES                        = new ArrayList<>();
     private static final List<HorizontalCoordinates> HORI_CARD_COORDS   = new ArrayList<>();
+    static {
+        for (int i = 0; i < CARD_NUM; i++) {
+            HORI_CARD_COORDS.add(HorizontalCoordinates.ofDeg(i * 45, CARDINAL_VERT_OFFSET));
+            CARD_NAMES.add(HORI_CARD_COORDS.get(i).azOctantName("N", "E", "S", "O"));
+        }
+    }
     
     private static final double HORIZON_LINE_WIDTH          = 2.0d;
     private static final HorizontalCoordinates HORIZON      = HorizontalCoordinates.of(0, 0);
     private static final ClosedInterval MAGNITUDE_INTERVAL  = ClosedInterval.of(-2.0, 5.0);
+    static final double STAR_ANGULAR_SIZE                   = Angle.ofDeg(0.5);
+    private static final double MIN_STAR_DIAMETER           = 0.25d;     // En pixels, en dessous l'étoile n'est pas dessinée
     
     /// BONUS 
     private static final double EARTH_TRANSPARENCY  = 0.6d;
@@ -65,7 +77,6 @@ public final class SkyCanvasPainter {
 
     private static final String FONT_AWESOME_NAME = "/Font Awesome 5 Free-Solid-900.otf";
     private static final double FONT_AWESOME_SIZE = 30d; 
-    private static Font FONT_AWESOME;
     
     private static final String SUN_SYMBOL      = "\uf185";
     private static final String STAR_SYMBOL     = "\uf005";
@@ -82,6 +93,17 @@ public final class SkyCanvasPainter {
     private final Canvas canvas;
     private final GraphicsContext context;
     
+    // Attributs de dessin des étoiles du dernier catalogue dessiné
+    private StarRenderAttributes starAttributes;
+    
+    // Couche de la Terre, de l'horizon et des points cardinaux, qui ne dépend pas de l'instant d'observation : 
+    // dessinée sur un canevas hors écran, et gardée en image tant que sa clé ne change pas.
+    // La clé de l'image précédente permet de ne la capturer qu'une fois stable.
+    private Canvas staticLayerCanvas;
+    private WritableImage staticLayerImage;
+    private double[] staticLayerKey;
+    private double[] previousStaticLayerKey;
+    
     /**
      * Constructeur du SkyCanvasPainter. Construit un peintre d'étoiles 
      * étant donné le canevas {@code canvas} donné.
@@ -90,19 +112,6 @@ public final class SkyCanvasPainter {
     public SkyCanvasPainter(Canvas canvas) {
         this.canvas = canvas;
         this.context = canvas.getGraphicsContext2D();
-        
-        for (int i = 0; i < CARD_NUM; i++) {
-            HORI_CARD_COORDS.add(HorizontalCoordinates.ofDeg(i * 45, CARDINAL_VERT_OFFSET));
-            CARD_NAMES.add(HORI_CARD_COORDS.get(i).azOctantName("N", "E", "S", "O"));
-        }
-        
-
-        try (InputStream fontStream = getClass().getResourceAsStream(FONT_AWESOME_NAME)) {
-            FONT_AWESOME = Font.loadFont(fontStream, FONT_AWESOME_SIZE);
-            fontStream.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
     }
     
     /**
@@ -114,11 +123,37 @@ public final class SkyCanvasPainter {
     }
     
     private double diameterFromMagnitude(double magnitude, StereographicProjection projection) {
+        return diameterFromMagnitude(magnitude, projection.applyToAngle(STAR_ANGULAR_SIZE));
+    }
+    
+    private double diameterFromMagnitude(double magnitude, double projectedAngularSize) {
+        return sizeFactor(magnitude) * projectedAngularSize;
+    }
+    
+    /**
+     * Retourne le facteur par lequel multiplier la taille projetée de {@link #STAR_ANGULAR_SIZE} 
+     * pour obtenir le diamètre d'un objet de magnitude {@code magnitude}.
+     */
+    static double sizeFactor(double magnitude) {
         double clippedMagnitude = MAGNITUDE_INTERVAL.clip(magnitude);
-        double sizeFactor = (99 - 17 * clippedMagnitude) / 140.0;
-        double diameter = sizeFactor * projection.applyToAngle(Angle.ofDeg(0.5));
-        
-        return diameter;
+        return (99 - 17 * clippedMagnitude) / 140.0;
+    }
+    
+    /**
+     * Retourne la magnitude au delà de laquelle une étoile aurait sur le canevas un diamètre inférieur à {@value #MIN_STAR_DIAMETER} pixel, 
+     * ou l'infini si même les étoiles les plus faibles restent assez grandes : plus le champ de vue est étroit, plus elle est grande.
+     */
+    private double limitingMagnitude(double projectedAngularSize, Transform planeToCanvas) {
+        return limitingMagnitude(Math.abs(planeToCanvas.deltaTransform(projectedAngularSize, 0).getX()));
+    }
+    
+    /**
+     * Retourne la magnitude limite lorsque {@link #STAR_ANGULAR_SIZE} mesure {@code canvasAngularSize} pixels sur le canevas.
+     */
+    static double limitingMagnitude(double canvasAngularSize) {
+        // Le diamètre (99 - 17 m) / 140 * taille décroît avec m jusqu'au bord de MAGNITUDE_INTERVAL
+        double magnitude = (99 - 140 * MIN_STAR_DIAMETER / canvasAngularSize) / 17;
+        return (magnitude >= MAGNITUDE_INTERVAL.high()) ? Double.POSITIVE_INFINITY : magnitude;
     }
     
     /**
@@ -132,94 +167,14 @@ public final class SkyCanvasPainter {
      *          la transformation du plan 
      */
     public void drawStars(ObservedSky sky, StereographicProjection projection, Transform planeToCanvas) {
-        
-        /// TRANSFORMATION D'ETOILES ///
-        
-        // Diamètres d'étoiles
-        List<Double> starDiameters = new ArrayList<Double>();
-        for(Star star : sky.stars()) {
-           starDiameters.add(
-                   diameterFromMagnitude(
-                           star.magnitude(), projection));
-        }
-        
-        // Couleurs d'étoiles
-        List<Color> starColors = new ArrayList<Color>();
-        for(Star star : sky.stars()) {
-            starColors.add(
-                    BlackBodyColor.colorForTemperature(
-                            star.colorTemperature()));  
-        }
-
-        // Transformer les positions des étoiles
-        double[] starPositions = sky.starPositions();
-        for(int i = 0, j = 1; j < starPositions.length; i += 2, j += 2)  {
-            Point2D starTransPoint = planeToCanvas.transform(
-                    starPositions[i],
-                    starPositions[j]);
-            starPositions[i] = starTransPoint.getX();
-            starPositions[j] = starTransPoint.getY();
-        }
-        
-        // Transformer les diamètres des étoiles
-        for (int i = 0; i < starDiameters.size(); i++) {
-            starDiameters.set(
-                    i, planeToCanvas.deltaTransform(
-                            starDiameters.get(i), 0).getX());
-        }
-        
-        /// DESSIN ASTERISMES ///
-        
-        context.setStroke(Color.BLUE);
-        context.setLineWidth(ASTERISM_LINE_WIDTH);
-        
-        // Pour chaque astérisme
-        for (Asterism asterism : sky.asterisms()) {
-            
-            // Recommencer le chemin et présupposer l'existence d'un point précédent dans le chemin
-            context.beginPath();
-            Point2D oldStarPosition = OFFSCREEN_POINT;
-            
-            for (Integer index : sky.asterismIndices(asterism)) {
-                
-                // La prochaine position est cherchée
-                Point2D newStarPosition = new Point2D(
-                        starPositions[index * 2], 
-                        starPositions[index * 2 + 1]);
-                
-                // Sauter au prochain point sans dessiner lorsqu'aucun des new/oldStarPosition ne sont visibles.
-                if (!canvas.contains(newStarPosition) 
-                        && !canvas.contains(oldStarPosition)) {
-                    context.moveTo(
-                            newStarPosition.getX(), 
-                            newStarPosition.getY());
-                } else {
-                    context.lineTo(
-                            newStarPosition.getX(), 
-                            newStarPosition.getY()); 
-                }
-                
-                oldStarPosition = newStarPosition;
-            }
-
-            context.stroke();
-        }
-        
-        /// DESSIN D'ETOILES ///
-        
-        for (int i = 0; i < sky.stars().size(); ++i) {
-            context.setFill(starColors.get(i));
-            context.fillOval(
-                    starPositions[2 * i]     - (starDiameters.get(i) / 2), 
-                    starPositions[2 * i + 1] - (starDiameters.get(i) / 2), 
-                    starDiameters.get(i), 
-                    starDiameters.get(i));
-        }
+        drawStarsConditional(sky, projection, planeToCanvas, true, true);
     }
     
     /**
      * Dessine les astérismes si {@code showAsterisms} et les étoiles du ciel observé {@code sky} si {@code showStars} sur le canevas étant donnés 
      * une projection stéréographique {@code projection} et une transformation du plan au canevas {@code planeToCanvas}.
+     * Seules les étoiles sur le canevas, et assez brillantes pour y mesurer au moins {@value #MIN_STAR_DIAMETER} pixel, sont dessinées : 
+     * elles sont parcourues par magnitude croissante, sans toucher aux autres.
      * @param sky
      *          le ciel observé contenant les astérismes et les étoiles
      * @param projection
@@ -230,40 +185,13 @@ public final class SkyCanvasPainter {
     public void drawStarsConditional(ObservedSky sky, StereographicProjection projection, Transform planeToCanvas,
             boolean showStars, boolean showAsterisms) {
         
-        /// TRANSFORMATION D'ETOILES ///
-        
-        // Diamètres d'étoiles
-        List<Double> starDiameters = new ArrayList<Double>();
-        for(Star star : sky.stars()) {
-           starDiameters.add(
-                   diameterFromMagnitude(
-                           star.magnitude(), projection));
-        }
-        
-        // Couleurs d'étoiles
-        List<Color> starColors = new ArrayList<Color>();
-        for(Star star : sky.stars()) {
-            starColors.add(
-                    BlackBodyColor.colorForTemperature(
-                            star.colorTemperature()));  
-        }
-
-        // Transformer les positions des étoiles
-        double[] starPositions = sky.starPositions();
-        for(int i = 0, j = 1; j < starPositions.length; i += 2, j += 2)  {
-            Point2D starTransPoint = planeToCanvas.transform(
-                    starPositions[i],
-                    starPositions[j]);
-            starPositions[i] = starTransPoint.getX();
-            starPositions[j] = starTransPoint.getY();
-        }
-        
-        // Transformer les diamètres des étoiles
-        for (int i = 0; i < starDiameters.size(); i++) {
-            starDiameters.set(
-                    i, planeToCanvas.deltaTransform(
-                            starDiameters.get(i), 0).getX());
-        }
+        // Les coefficients de la transformation (affine), lus une seule fois
+        double mxx = planeToCanvas.getMxx();
+        double mxy = planeToCanvas.getMxy();
+        double myx = planeToCanvas.getMyx();
+        double myy = planeToCanvas.getMyy();
+        double tx = planeToCanvas.getTx();
+        double ty = planeToCanvas.getTy();
         
         /// DESSIN ASTERISMES ///
         
@@ -271,53 +199,102 @@ public final class SkyCanvasPainter {
         context.setLineWidth(ASTERISM_LINE_WIDTH);
         
         if (showAsterisms) {
-            // Pour chaque astérisme
-            for (Asterism asterism : sky.asterisms()) {
+            // Tous les astérismes forment un seul chemin, tracé d'un coup
+            context.beginPath();
+            
+            for (int asterism = 0; asterism < sky.asterismCount(); asterism++) {
                 
-                // Recommencer le chemin et présupposer l'existence d'un point précédent dans le chemin
-                context.beginPath();
-                Point2D oldStarPosition = OFFSCREEN_POINT;
+                // Présupposer l'existence d'un point précédent invisible
+                boolean oldStarVisible = false;
                 
-                for (Integer index : sky.asterismIndices(asterism)) {
+                for (int position = 0; position < sky.asterismLength(asterism); position++) {
                     
-                    // La prochaine position est cherchée
-                    Point2D newStarPosition = new Point2D(
-                            starPositions[index * 2], 
-                            starPositions[index * 2 + 1]);
+                    // La prochaine position est transformée, seules celles des étoiles des astérismes le sont
+                    int index = sky.asterismStarIndex(asterism, position);
+                    double x = sky.starX(index);
+                    double y = sky.starY(index);
+                    double newStarX = mxx * x + mxy * y + tx;
+                    double newStarY = myx * x + myy * y + ty;
+                    boolean newStarVisible = canvas.contains(newStarX, newStarY);
                     
-                    // Sauter au prochain point sans dessiner lorsqu'aucun des new/oldStarPosition ne sont visibles.
-                    if (!canvas.contains(newStarPosition) 
-                            && !canvas.contains(oldStarPosition)) {
-                        context.moveTo(
-                                newStarPosition.getX(), 
-                                newStarPosition.getY());
+                    // Sauter au prochain point sans dessiner au début de l'astérisme, 
+                    // ou lorsqu'aucun des new/oldStar n'est visible.
+                    if (position == 0 || (!newStarVisible && !oldStarVisible)) {
+                        context.moveTo(newStarX, newStarY);
                     } else {
-                        context.lineTo(
-                                newStarPosition.getX(), 
-                                newStarPosition.getY()); 
+                        context.lineTo(newStarX, newStarY); 
                     }
                     
-                    oldStarPosition = newStarPosition;
+                    oldStarVisible = newStarVisible;
                 }
-    
-                context.stroke();
             }
+            
+            context.stroke();
         }
         
         /// DESSIN D'ETOILES ///
         
         if (showStars) {
-            for (int i = 0; i < sky.stars().size(); ++i) {
-                context.setFill(starColors.get(i));
+            // Le canevas dans le plan de la projection
+            Bounds visibleBounds;
+            try {
+                visibleBounds = planeToCanvas.inverseTransform(
+                        new BoundingBox(0, 0, canvas.getWidth(), canvas.getHeight()));
+            } catch (NonInvertibleTransformException e) {
+                return;     // Un canevas dégénéré, où aucune étoile n'est visible
+            }
+            
+            // Les couleurs et facteurs de taille ne changent qu'avec le catalogue
+            if (starAttributes == null || !starAttributes.isFor(sky)) {
+                starAttributes = new StarRenderAttributes(sky);
+            }
+            
+            // Seules les étoiles assez brillantes pour être vues, et dans la région du ciel qui contient le canevas, 
+            // sont parcourues, des plus faibles aux plus brillantes pour que ces dernières soient dessinées par dessus
+            double projectedAngularSize = projection.applyToAngle(STAR_ANGULAR_SIZE);
+            int visibleStarCount = sky.starCountBrighterThan(
+                    limitingMagnitude(projectedAngularSize, planeToCanvas));
+            int[] visibleRanks = sky.starRanksWithin(
+                    planeRadius(visibleBounds) + projectedAngularSize / 2, visibleStarCount);
+            
+            for (int i = visibleRanks.length - 1; i >= 0; i--) {
+                int index = sky.starIndexByMagnitude(visibleRanks[i]);
+                
+                double x = sky.starX(index);
+                double y = sky.starY(index);
+                double diameter = starAttributes.sizeFactor(index) * projectedAngularSize;
+                double radius = diameter / 2;
+                
+                // Écarter les étoiles hors du canevas, et celles dont la position n'est pas définie
+                if (!(x + radius >= visibleBounds.getMinX() && x - radius <= visibleBounds.getMaxX() 
+                        && y + radius >= visibleBounds.getMinY() && y - radius <= visibleBounds.getMaxY())) {
+                    continue;
+                }
+                
+                double starTransX = mxx * x + mxy * y + tx;
+                double starTransY = myx * x + myy * y + ty;
+                double starTransDiameter = mxx * diameter;
+                
+                context.setFill(starAttributes.color(index));
                 context.fillOval(
-                        starPositions[2 * i]     - (starDiameters.get(i) / 2), 
-                        starPositions[2 * i + 1] - (starDiameters.get(i) / 2), 
-                        starDiameters.get(i), 
-                        starDiameters.get(i));
+                        starTransX - (starTransDiameter / 2), 
+                        starTransY - (starTransDiameter / 2), 
+                        starTransDiameter, 
+                        starTransDiameter);
             }
         }
     }
 
+    /**
+     * Retourne la distance au centre du plan du coin le plus éloigné de {@code bounds}, 
+     * le rayon du plus petit disque centré qui la contient.
+     */
+    private static double planeRadius(Bounds bounds) {
+        double maxX = Math.max(Math.abs(bounds.getMinX()), Math.abs(bounds.getMaxX()));
+        double maxY = Math.max(Math.abs(bounds.getMinY()), Math.abs(bounds.getMaxY()));
+        return Math.hypot(maxX, maxY);
+    }
+    
     /**
      * Dessine les planètes du ciel observé {@code sky} sur le canevas étant donnés 
      * une projection stéréographique {@code projection} et une transformation du plan au canevas {@code planeToCanvas}.
@@ -463,6 +440,15 @@ public final class SkyCanvasPainter {
      *          la transformation du plan 
      */
     public void drawHorizon(StereographicProjection projection, Transform planeToCanvas) {
+        drawHorizon(context, projection, planeToCanvas);
+    }
+    
+    /**
+     * Comme {@link #drawHorizon(StereographicProjection, Transform)}, mais sur le contexte graphique {@code context}, 
+     * pour dessiner aussi sur un canevas hors écran
+     */
+    private static void drawHorizon(GraphicsContext context, StereographicProjection projection, Transform planeToCanvas) {
+        Canvas canvas = context.getCanvas();
         
         // Rayon de l'horizon
         double horizonCircleDiameter = Math.abs(2 * 
@@ -535,6 +521,15 @@ public final class SkyCanvasPainter {
      *          la transformation du plan 
      */
     public void drawEarth(StereographicProjection projection, Transform planeToCanvas) {
+        drawEarth(context, projection, planeToCanvas);
+    }
+    
+    /**
+     * Comme {@link #drawEarth(StereographicProjection, Transform)}, mais sur le contexte graphique {@code context}, 
+     * pour dessiner aussi sur un canevas hors écran
+     */
+    private static void drawEarth(GraphicsContext context, StereographicProjection projection, Transform planeToCanvas) {
+        Canvas canvas = context.getCanvas();
      
         // Diamètre de la Terre
         double earthCircleDiameter = Math.abs(2 * 
@@ -699,7 +694,7 @@ public final class SkyCanvasPainter {
         
         // Le symbole représentant l'objet
         context.setFill(Color.WHITE);
-        context.setFont(FONT_AWESOME);
+        context.setFont(FontAwesome.FONT);
         
         String celestialObjectSymbol = new String();
 
@@ -791,6 +786,76 @@ public final class SkyCanvasPainter {
         } 
     }
     
+    /**
+     * Dessine la Terre si {@code showEarth} et l'horizon si {@code showHorizon} sur le canevas, comme 
+     * {@link #drawEarth} puis {@link #drawHorizon}, mais depuis une image gardée tant que la projection, 
+     * la transformation, la taille du canevas et ce qui est montré ne changent pas.
+     * <p>
+     * Tant qu'ils changent à chaque image, comme pendant un déplacement ou un zoom, la couche est dessinée directement : 
+     * une capture ne servirait qu'une fois. Elle n'est capturée que lorsque deux images successives ont la même clé.
+     * @param projection
+     *          la projection stéréographique
+     * @param planeToCanvas
+     *          la transformation du plan 
+     * @param showEarth
+     *          si la Terre est dessinée
+     * @param showHorizon
+     *          si l'horizon et les points cardinaux sont dessinés
+     */
+    public void drawStaticLayer(StereographicProjection projection, Transform planeToCanvas, boolean showEarth, boolean showHorizon) {
+        int width = (int) Math.ceil(canvas.getWidth());
+        int height = (int) Math.ceil(canvas.getHeight());
+        if ((!showEarth && !showHorizon) || width <= 0 || height <= 0) {
+            return;
+        }
+        
+        double[] key = {
+                projection.getProjectionCenter().az(), projection.getProjectionCenter().alt(),
+                planeToCanvas.getMxx(), planeToCanvas.getMxy(), planeToCanvas.getTx(),
+                planeToCanvas.getMyx(), planeToCanvas.getMyy(), planeToCanvas.getTy(),
+                canvas.getWidth(), canvas.getHeight(),
+                showEarth ? 1 : 0, showHorizon ? 1 : 0 };
+        
+        if (Arrays.equals(key, staticLayerKey)) {
+            context.drawImage(staticLayerImage, 0, 0);
+            return;
+        }
+        
+        boolean stable = Arrays.equals(key, previousStaticLayerKey);
+        previousStaticLayerKey = key;
+        if (!stable) {
+            if (showEarth) drawEarth(projection, planeToCanvas);
+            
+            if (showHorizon) drawHorizon(projection, planeToCanvas);
+            return;
+        }
+        
+        // Deux images successives de même clé : la couche est capturée pour les suivantes
+        if (staticLayerCanvas == null) {
+            staticLayerCanvas = new Canvas();
+        }
+        staticLayerCanvas.setWidth(canvas.getWidth());
+        staticLayerCanvas.setHeight(canvas.getHeight());
+        GraphicsContext layerContext = staticLayerCanvas.getGraphicsContext2D();
+        layerContext.clearRect(0, 0, staticLayerCanvas.getWidth(), staticLayerCanvas.getHeight());
+        
+        if (showEarth) drawEarth(layerContext, projection, planeToCanvas);
+        
+        if (showHorizon) drawHorizon(layerContext, projection, planeToCanvas);
+        
+        // L'image est réutilisée tant que le canevas garde sa taille
+        if (staticLayerImage != null 
+                && (staticLayerImage.getWidth() != width || staticLayerImage.getHeight() != height)) {
+            staticLayerImage = null;
+        }
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        staticLayerImage = staticLayerCanvas.snapshot(parameters, staticLayerImage);
+        staticLayerKey = key;
+        
+        context.drawImage(staticLayerImage, 0, 0);
+    }
+    
     /**
      * Efface le canevas, puis dessine les astérismes, les étoiles, les planètes, le soleil, la lune, et l'horizon
      * @param sky
@@ -813,9 +878,7 @@ public final class SkyCanvasPainter {
         
         if (showMoon) this.drawMoon(sky, projection, planeToCanvas);
         
-        if (showEarth) this.drawEarth(projection, planeToCanvas);
-        
-        if (showHorizon) this.drawHorizon(projection, planeToCanvas);
+        this.drawStaticLayer(projection, planeToCanvas, showEarth, showHorizon);
         
         if (celestialObject != null) {
             this.drawTracker(sky, projection, planeToCanvas, celestialObject);
@@ -824,4 +887,21 @@ public final class SkyCanvasPainter {
         }
     }
     
+    /**
+     * La police des symboles, chargée une seule fois, à la première information affichée : 
+     * les constantes du peintre restent utilisables sans JavaFX, par HeadlessSkyRenderer
+     */
+    private static final class FontAwesome {
+        
+        private static final Font FONT = load();
+        
+        private static Font load() {
+            try (InputStream fontStream = SkyCanvasPainter.class.getResourceAsStream(FONT_AWESOME_NAME)) {
+                return Font.loadFont(fontStream, FONT_AWESOME_SIZE);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
 }
@@ -0,0 +1,221 @@
+package ch.epfl.rigel.gui;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import ch.epfl.rigel.astronomy.AsterismLoader;
+import ch.epfl.rigel.astronomy.BinaryCatalogueConverter;
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+
+/**
+ * Classe contenant un programme qui dessine, sans JavaFX, une série de cartes du ciel en images PNG.
+ * <p>
+ * Chaque ligne non vide du fichier donné en premier argument décrit une carte, par des champs séparés par des points-virgules :
+ * <pre>
+ * date et heure ISO-8601;longitude (deg);latitude (deg);azimut (deg);hauteur (deg);fichier PNG
+ * </pre>
+ * Les lignes commençant par {@code #} sont ignorées. Les arguments suivants, facultatifs, sont la largeur et la hauteur
+ * des images en pixels, et le champ de vue en degrés. Les cartes sont calculées et dessinées en parallèle,
+ * un fil par processeur, le catalogue et le peintre étant partagés.
+ * <p>
+ * Publique, finale, non instanciable.
+ *
+ * @author Orfeas Liossatos (310738)
+ * @author Henrique Da Silva Gameiro (315689)
+ */
+public final class SkyChartBatch {
+
+    private static final String HYG_CATALOGUE_NAME      = "/hygdata_v3.csv";
+    private static final String ASTERISM_CATALOGUE_NAME = "/asterisms.txt";
+
+    private static final int DEFAULT_WIDTH          = 800;
+    private static final int DEFAULT_HEIGHT         = 600;
+    private static final double DEFAULT_FOV         = 100d;
+
+    private static final String FIELD_SEPARATOR     = ";";
+    private static final String COMMENT_PREFIX      = "#";
+    private static final int FIELD_COUNT            = 6;
+
+    private SkyChartBatch() {}
+
+    /**
+     * Classe représentant une carte à dessiner : un instant, un lieu, une direction d'observation et le fichier de l'image.
+     * <p>
+     * Publique, finale, immuable.
+     */
+    public static final class Chart {
+
+        private final ZonedDateTime when;
+        private final GeographicCoordinates where;
+        private final HorizontalCoordinates center;
+        private final Path file;
+
+        /**
+         * Constructeur de Chart.
+         * @param when
+         *          l'instant d'observation
+         * @param where
+         *          la position de l'observateur
+         * @param center
+         *          le centre de la projection
+         * @param file
+         *          le fichier PNG à écrire
+         */
+        public Chart(ZonedDateTime when, GeographicCoordinates where, HorizontalCoordinates center, Path file) {
+            this.when = when;
+            this.where = where;
+            this.center = center;
+            this.file = file;
+        }
+
+        /**
+         * Construit une carte à partir d'une ligne du fichier de cartes
+         * @param line
+         *          la ligne
+         * @return
+         *          la carte décrite par la ligne
+         * @throws IllegalArgumentException
+         *          si la ligne n'a pas le bon nombre de champs ou qu'un champ est invalide
+         */
+        public static Chart parse(String line) {
+            String[] fields = line.split(FIELD_SEPARATOR);
+            if (fields.length != FIELD_COUNT) {
+                throw new IllegalArgumentException("Ligne de carte invalide : " + line);
+            }
+
+            try {
+                return new Chart(
+                        ZonedDateTime.parse(fields[0].trim()),
+                        GeographicCoordinates.ofDeg(Double.parseDouble(fields[1].trim()), Double.parseDouble(fields[2].trim())),
+                        HorizontalCoordinates.ofDeg(Double.parseDouble(fields[3].trim()), Double.parseDouble(fields[4].trim())),
+                        Paths.get(fields[5].trim()));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Ligne de carte invalide : " + line, e);
+            }
+        }
+
+        /**
+         * Retourne le fichier de l'image
+         * @return
+         *          le fichier de l'image
+         */
+        public Path file() {
+            return file;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // La largeur et la hauteur vont ensemble, et aucun argument ne suit le champ de vue
+        if (args.length < 1 || args.length == 2 || args.length > 4) {
+            System.err.println("Usage : SkyChartBatch <fichier de cartes> [largeur hauteur [champ de vue]]");
+            System.exit(1);
+        }
+
+        List<Chart> charts = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith(COMMENT_PREFIX)) {
+                    charts.add(Chart.parse(line));
+                }
+            }
+        }
+
+        int width = (args.length >= 3) ? Integer.parseInt(args[1]) : DEFAULT_WIDTH;
+        int height = (args.length >= 3) ? Integer.parseInt(args[2]) : DEFAULT_HEIGHT;
+        double fieldOfViewDeg = (args.length >= 4) ? Double.parseDouble(args[3]) : DEFAULT_FOV;
+
+        long startNanos = System.nanoTime();
+        renderAll(loadCatalogue(), charts, new HeadlessSkyRenderer(width, height, fieldOfViewDeg),
+                Runtime.getRuntime().availableProcessors());
+
+        System.out.printf("%d cartes dessinées en %.1f s%n", charts.size(), (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * Calcule et dessine les cartes {@code charts} du catalogue {@code catalogue} avec le peintre {@code renderer},
+     * sur {@code threads} fils, et écrit chacune dans son fichier PNG.
+     * @param catalogue
+     *          le catalogue d'étoiles et d'astérismes
+     * @param charts
+     *          les cartes à dessiner
+     * @param renderer
+     *          le peintre des images
+     * @param threads
+     *          le nombre de fils
+     * @throws IOException
+     *          si une image ne peut pas être écrite
+     * @throws InterruptedException
+     *          si le fil appelant est interrompu pendant l'attente
+     */
+    public static void renderAll(StarCatalogue catalogue, List<Chart> charts, HeadlessSkyRenderer renderer, int threads)
+            throws IOException, InterruptedException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Path>> tasks = new ArrayList<>(charts.size());
+            for (Chart chart : charts) {
+                tasks.add(() -> render(catalogue, chart, renderer));
+            }
+
+            for (Future<Path> written : executor.invokeAll(tasks)) {
+                try {
+                    written.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Le ciel de chaque carte est calculé séquentiellement, le parallélisme étant entre les cartes
+     */
+    private static Path render(StarCatalogue catalogue, Chart chart, HeadlessSkyRenderer renderer) throws IOException {
+        StereographicProjection projection = new StereographicProjection(chart.center);
+        ObservedSky sky = new ObservedSky(chart.when, chart.where, projection, catalogue, true);
+
+        File file = chart.file.toFile();
+        if (!ImageIO.write(renderer.render(sky), "png", file)) {
+            throw new IOException("Aucun encodeur PNG disponible");
+        }
+        return chart.file;
+    }
+
+    /**
+     * Charge le catalogue des ressources avec les astérismes, en projetant en mémoire le catalogue binaire 
+     * généré à côté du CSV s'il peut l'être
+     */
+    static StarCatalogue loadCatalogue() throws IOException {
+        try (InputStream astStream = SkyChartBatch.class.getResourceAsStream(ASTERISM_CATALOGUE_NAME)) {
+            return BinaryCatalogueConverter.loadStars(SkyChartBatch.class.getResource(HYG_CATALOGUE_NAME))
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+    }
+}
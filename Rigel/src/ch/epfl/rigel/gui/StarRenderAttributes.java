@@ -0,0 +1,78 @@
+package ch.epfl.rigel.gui;
+
+import java.util.List;
+
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.Star;
+import javafx.scene.paint.Color;
+
+/**
+ * Classe représentant les attributs de dessin des étoiles d'un catalogue, qui ne dépendent pas de l'instant d'observation :
+ * la couleur de chaque étoile, et son facteur de taille, que le peintre multiplie par la taille projetée d'un angle donné.
+ * Calculés une seule fois par catalogue, ils évitent une recherche de couleur et le calcul du diamètre par étoile et par image.
+ * <p>
+ * Package-privée, finale, immuable.
+ *
+ * @author Orfeas Liossatos (310738)
+ * @author Henrique Da Silva Gameiro (315689)
+ */
+final class StarRenderAttributes {
+
+    private final List<Star> stars;
+    private final Color[] colors;
+    private final float[] sizeFactors;
+
+    /**
+     * Constructeur de StarRenderAttributes. Calcule les attributs de dessin des étoiles du ciel observé {@code sky}.
+     * @param sky
+     *          un ciel observé du catalogue
+     */
+    StarRenderAttributes(ObservedSky sky) {
+        this.stars = sky.stars();
+
+        float[] magnitudes = sky.starMagnitudes();
+        int[] colorTemperatures = sky.starColorTemperatures();
+
+        this.colors = new Color[magnitudes.length];
+        this.sizeFactors = new float[magnitudes.length];
+        for (int i = 0; i < magnitudes.length; i++) {
+            colors[i] = BlackBodyColor.colorForTemperature(colorTemperatures[i]);
+            sizeFactors[i] = (float) SkyCanvasPainter.sizeFactor(magnitudes[i]);
+        }
+    }
+
+    /**
+     * Retourne vrai si et seulement si ces attributs sont ceux des étoiles du ciel observé {@code sky},
+     * c'est-à-dire s'il a été calculé à partir du même catalogue.
+     * @param sky
+     *          le ciel observé
+     * @return
+     *          vrai si ces attributs sont ceux des étoiles du ciel observé
+     */
+    boolean isFor(ObservedSky sky) {
+        return sky.stars() == stars;
+    }
+
+    /**
+     * Retourne la couleur de l'étoile d'index {@code index}
+     * @param index
+     *          l'index de l'étoile
+     * @return
+     *          la couleur de l'étoile
+     */
+    Color color(int index) {
+        return colors[index];
+    }
+
+    /**
+     * Retourne le facteur de taille de l'étoile d'index {@code index},
+     * son diamètre étant ce facteur multiplié par la taille projetée d'un demi degré
+     * @param index
+     *          l'index de l'étoile
+     * @return
+     *          le facteur de taille de l'étoile
+     */
+    double sizeFactor(int index) {
+        return sizeFactors[index];
+    }
+}
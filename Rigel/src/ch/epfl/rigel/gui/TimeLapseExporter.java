@@ -0,0 +1,310 @@
+package ch.epfl.rigel.gui;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+
+/**
+ * Classe représentant un exportateur d'accélérés : il calcule le ciel de chaque image d'une animation
+ * menée par un {@link TimeAccelerator}, comme le ferait {@link TimeAnimator} en temps réel, la dessine sans JavaFX
+ * et l'écrit dans une suite numérotée d'images PNG ({@code frame-00000.png}, {@code frame-00001.png}, ...).
+ * <p>
+ * Le travail est un pipeline producteurs/consommateurs : des fils de calcul produisent les images, des fils d'écriture
+ * les encodent, et une file bornée entre les deux limite le nombre d'images en mémoire, quelle que soit la durée de l'animation.
+ * <p>
+ * Publique, finale.
+ *
+ * @author Orfeas Liossatos (310738)
+ * @author Henrique Da Silva Gameiro (315689)
+ */
+public final class TimeLapseExporter {
+
+    private static final int FRAMES_PER_WRITER  = 2;       // Images en attente par fil d'écriture
+    private static final int MIN_INDEX_DIGITS   = 5;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /// Valeurs par défaut du programme
+    private static final int DEFAULT_WIDTH          = 800;
+    private static final int DEFAULT_HEIGHT         = 600;
+    private static final double DEFAULT_FOV         = 100d;
+    private static final HorizontalCoordinates DEFAULT_CENTER            = HorizontalCoordinates.ofDeg(180, 15);
+    private static final GeographicCoordinates DEFAULT_OBSERVER_POSITION = GeographicCoordinates.ofDeg(6.57d, 46.52d);
+
+    // Marque la fin des images pour un fil d'écriture
+    private static final Frame END_OF_FRAMES = new Frame(-1, null);
+
+    private final StarCatalogue catalogue;
+    private final GeographicCoordinates where;
+    private final StereographicProjection projection;
+    private final HeadlessSkyRenderer renderer;
+    private final int renderThreads;
+    private final int writerThreads;
+    private final FrameWriter frameWriter;
+
+    /**
+     * Constructeur de TimeLapseExporter. Construit un exportateur des ciels du catalogue {@code catalogue},
+     * vus depuis {@code where} à travers la projection {@code projection}, et dessinés par {@code renderer}.
+     * @param catalogue
+     *          le catalogue d'étoiles et d'astérismes
+     * @param where
+     *          la position de l'observateur
+     * @param projection
+     *          la projection stéréographique
+     * @param renderer
+     *          le peintre des images
+     * @param renderThreads
+     *          le nombre de fils calculant et dessinant les images
+     * @param writerThreads
+     *          le nombre de fils encodant et écrivant les images
+     * @throws IllegalArgumentException
+     *          si un des nombres de fils n'est pas strictement positif
+     */
+    public TimeLapseExporter(StarCatalogue catalogue, GeographicCoordinates where, StereographicProjection projection,
+            HeadlessSkyRenderer renderer, int renderThreads, int writerThreads) {
+        this(catalogue, where, projection, renderer, renderThreads, writerThreads, TimeLapseExporter::writePng);
+    }
+
+    /**
+     * Constructeur de TimeLapseExporter. Comme le constructeur précédent, mais les images sont écrites par {@code frameWriter}.
+     */
+    TimeLapseExporter(StarCatalogue catalogue, GeographicCoordinates where, StereographicProjection projection,
+            HeadlessSkyRenderer renderer, int renderThreads, int writerThreads, FrameWriter frameWriter) {
+        Preconditions.checkArgument(renderThreads > 0 && writerThreads > 0);
+
+        this.catalogue = catalogue;
+        this.where = where;
+        this.projection = projection;
+        this.renderer = renderer;
+        this.renderThreads = renderThreads;
+        this.writerThreads = writerThreads;
+        this.frameWriter = frameWriter;
+    }
+
+    /**
+     * Retourne le nombre d'images d'une animation de durée {@code duration} à {@code framesPerSecond} images par seconde
+     * @param framesPerSecond
+     *          le nombre d'images par seconde
+     * @param duration
+     *          la durée de l'animation
+     * @return
+     *          le nombre d'images de l'animation
+     */
+    public static int frameCount(int framesPerSecond, Duration duration) {
+        return Math.toIntExact(Math.round(duration.toNanos() * (double) framesPerSecond / NANOS_PER_SECOND));
+    }
+
+    /**
+     * Retourne l'instant simulé de l'image d'index {@code frame}, qui est montrée {@code frame / framesPerSecond}
+     * secondes après le début de l'animation
+     * @param start
+     *          l'instant simulé initial
+     * @param accelerator
+     *          l'accélérateur du temps
+     * @param framesPerSecond
+     *          le nombre d'images par seconde
+     * @param frame
+     *          l'index de l'image
+     * @return
+     *          l'instant simulé de l'image
+     */
+    public static ZonedDateTime frameTime(ZonedDateTime start, TimeAccelerator accelerator, int framesPerSecond, int frame) {
+        return accelerator.adjust(start, Math.round(frame * NANOS_PER_SECOND / framesPerSecond));
+    }
+
+    /**
+     * Exporte dans le répertoire {@code directory} l'animation de durée {@code duration} (en temps réel)
+     * à {@code framesPerSecond} images par seconde, débutant à l'instant simulé {@code start} et accélérée par {@code accelerator}.
+     * @param start
+     *          l'instant simulé initial
+     * @param accelerator
+     *          l'accélérateur du temps
+     * @param framesPerSecond
+     *          le nombre d'images par seconde
+     * @param duration
+     *          la durée de l'animation
+     * @param directory
+     *          le répertoire des images, créé s'il n'existe pas
+     * @return
+     *          le nombre d'images écrites
+     * @throws IllegalArgumentException
+     *          si le nombre d'images par seconde n'est pas strictement positif, ou la durée est négative
+     * @throws IOException
+     *          si le répertoire ne peut pas être créé ou une image ne peut pas être écrite
+     * @throws InterruptedException
+     *          si le fil appelant est interrompu pendant l'exportation
+     */
+    public int export(ZonedDateTime start, TimeAccelerator accelerator, int framesPerSecond, Duration duration, Path directory)
+            throws IOException, InterruptedException {
+        Preconditions.checkArgument(framesPerSecond > 0 && !duration.isNegative());
+
+        Files.createDirectories(directory);
+
+        int frameCount = frameCount(framesPerSecond, duration);
+        String fileFormat = "frame-%0" + Math.max(MIN_INDEX_DIGITS, String.valueOf(frameCount).length()) + "d.png";
+
+        BlockingQueue<Frame> frames = new ArrayBlockingQueue<>(FRAMES_PER_WRITER * writerThreads);
+        AtomicInteger nextFrame = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ExecutorService renderers = Executors.newFixedThreadPool(renderThreads);
+        ExecutorService writers = Executors.newFixedThreadPool(writerThreads);
+        try {
+            // Les consommateurs vident la file jusqu'à leur marque de fin, même après un échec, pour ne jamais bloquer les producteurs : 
+            // toute erreur est notée, y compris une Error comme un manque de mémoire de l'encodeur, sans arrêter le fil
+            List<Future<?>> writing = new ArrayList<>(writerThreads);
+            for (int i = 0; i < writerThreads; i++) {
+                writing.add(writers.submit(() -> {
+                    Frame frame;
+                    while ((frame = frames.take()) != END_OF_FRAMES) {
+                        if (failure.get() == null) {
+                            try {
+                                frameWriter.write(frame.image, directory.resolve(String.format(fileFormat, frame.index)));
+                            } catch (Throwable e) {
+                                failure.compareAndSet(null, e);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            // Les producteurs prennent les images dans l'ordre, chacun reprenant son ciel précédent avec advanceTo
+            List<Future<?>> rendering = new ArrayList<>(renderThreads);
+            for (int i = 0; i < renderThreads; i++) {
+                rendering.add(renderers.submit(() -> {
+                    ObservedSky sky = null;
+                    int frame;
+                    while (failure.get() == null && (frame = nextFrame.getAndIncrement()) < frameCount) {
+                        try {
+                            ZonedDateTime when = frameTime(start, accelerator, framesPerSecond, frame);
+                            sky = (sky == null)
+                                    ? new ObservedSky(when, where, projection, catalogue, true)
+                                    : sky.advanceTo(when);
+                            frames.put(new Frame(frame, renderer.render(sky)));
+                        } catch (InterruptedException e) {
+                            throw e;
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            awaitAll(rendering);
+            for (int i = 0; i < writerThreads; i++) {
+                frames.put(END_OF_FRAMES);
+            }
+            awaitAll(writing);
+        } finally {
+            renderers.shutdownNow();
+            writers.shutdownNow();
+        }
+
+        Throwable e = failure.get();
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e != null) {
+            throw (RuntimeException) e;
+        }
+        return frameCount;
+    }
+
+    private static void writePng(BufferedImage image, Path file) throws IOException {
+        if (!ImageIO.write(image, "png", file.toFile())) {
+            throw new IOException("Aucun encodeur PNG disponible");
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // Les tâches notent leurs erreurs dans failure, seule une interruption peut arriver ici
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * L'écriture d'une image dans un fichier
+     */
+    @FunctionalInterface
+    interface FrameWriter {
+        void write(BufferedImage image, Path file) throws IOException;
+    }
+
+    /**
+     * Une image de l'animation et son index
+     */
+    private static final class Frame {
+
+        private final int index;
+        private final BufferedImage image;
+
+        Frame(int index, BufferedImage image) {
+            this.index = index;
+            this.image = image;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 5) {
+            System.err.println("Usage : TimeLapseExporter <début ISO-8601> <accélération> <images par seconde> "
+                    + "<durée ISO-8601> <répertoire> [longitude latitude [azimut hauteur]]");
+            System.exit(1);
+        }
+
+        ZonedDateTime start = ZonedDateTime.parse(args[0]);
+        TimeAccelerator accelerator = TimeAccelerator.continuous(Integer.parseInt(args[1]));
+        int framesPerSecond = Integer.parseInt(args[2]);
+        Duration duration = Duration.parse(args[3]);
+        Path directory = Paths.get(args[4]);
+
+        GeographicCoordinates where = (args.length >= 7)
+                ? GeographicCoordinates.ofDeg(Double.parseDouble(args[5]), Double.parseDouble(args[6]))
+                : DEFAULT_OBSERVER_POSITION;
+        HorizontalCoordinates center = (args.length >= 9)
+                ? HorizontalCoordinates.ofDeg(Double.parseDouble(args[7]), Double.parseDouble(args[8]))
+                : DEFAULT_CENTER;
+
+        // L'encodage PNG coûte autant que le dessin : les processeurs sont partagés entre les deux étages
+        int processors = Runtime.getRuntime().availableProcessors();
+        int writerThreads = Math.max(1, processors / 2);
+        int renderThreads = Math.max(1, processors - writerThreads);
+
+        TimeLapseExporter exporter = new TimeLapseExporter(SkyChartBatch.loadCatalogue(), where,
+                new StereographicProjection(center), new HeadlessSkyRenderer(DEFAULT_WIDTH, DEFAULT_HEIGHT, DEFAULT_FOV),
+                renderThreads, writerThreads);
+
+        long startNanos = System.nanoTime();
+        int frameCount = exporter.export(start, accelerator, framesPerSecond, duration, directory);
+        System.out.printf("%d images écrites en %.1f s%n", frameCount, (System.nanoTime() - startNanos) / 1e9);
+    }
+}
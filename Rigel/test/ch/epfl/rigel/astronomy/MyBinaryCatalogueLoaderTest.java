@@ -0,0 +1,274 @@
+package ch.epfl.rigel.astronomy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
+class MyBinaryCatalogueLoaderTest {
+
+    private static final String HYG_CATALOGUE_NAME ="/hygdata_v3.csv";
+    private static final String ASTERISM_CATALOGUE_NAME ="/asterisms.txt";
+
+    private List<Star> csvStars() throws IOException {
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build().stars();
+        }
+    }
+
+    private static void assertSameStars(List<Star> expected, List<Star> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Star e = expected.get(i);
+            Star a = actual.get(i);
+            assertEquals(e.hipparcosId(), a.hipparcosId());
+            assertEquals(e.name(), a.name());
+            assertEquals(e.equatorialPos().ra(), a.equatorialPos().ra());
+            assertEquals(e.equatorialPos().dec(), a.equatorialPos().dec());
+            assertEquals(e.magnitude(), a.magnitude());
+            assertEquals(e.colorIndex(), a.colorIndex());
+            assertEquals(e.colorTemperature(), a.colorTemperature());
+            assertEquals(e.distance(), a.distance());
+            assertEquals(e.spectralType(), a.spectralType());
+        }
+    }
+
+    @Test
+    void binaryCatalogueLoadsTheSameStarsFromAMappedFile() throws IOException {
+        List<Star> expected = csvStars();
+
+        Path binary = Files.createTempFile("hygdata", ".bin");
+        try {
+            try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+                    OutputStream binaryStream = Files.newOutputStream(binary)) {
+                BinaryCatalogueConverter.convert(hygStream, binaryStream);
+            }
+
+            try (InputStream binaryStream = new FileInputStream(binary.toFile())) {
+                List<Star> actual = new StarCatalogue.Builder()
+                        .loadFrom(binaryStream, BinaryCatalogueLoader.INSTANCE).build().stars();
+                assertSameStars(expected, actual);
+            }
+        } finally {
+            Files.delete(binary);
+        }
+    }
+
+    @Test
+    void binaryCatalogueLoadsTheSameStarsFromAnyStream() throws IOException {
+        List<Star> expected = csvStars();
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryCatalogueConverter.write(expected, binary);
+
+        List<Star> actual = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(binary.toByteArray()), BinaryCatalogueLoader.INSTANCE).build().stars();
+        assertSameStars(expected, actual);
+    }
+
+    @Test
+    void binaryCatalogueWorksWithAsterismLoader() throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryCatalogueConverter.write(csvStars(), binary);
+
+        try (InputStream astStream = getClass().getResourceAsStream(ASTERISM_CATALOGUE_NAME)) {
+            StarCatalogue catalogue = new StarCatalogue.Builder()
+                    .loadFrom(new ByteArrayInputStream(binary.toByteArray()), BinaryCatalogueLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+
+            boolean rigelFound = false;
+            for (Asterism asterism : catalogue.asterisms()) {
+                for (Star star : asterism.stars()) {
+                    rigelFound |= star.name().equals("Rigel");
+                }
+            }
+            assertTrue(rigelFound);
+        }
+    }
+
+    @Test
+    void binaryCatalogueFailsOnOtherFormats() throws IOException {
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            assertThrows(IOException.class, () -> {
+                new StarCatalogue.Builder().loadFrom(hygStream, BinaryCatalogueLoader.INSTANCE);
+            });
+        }
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryCatalogueConverter.write(csvStars(), binary);
+        byte[] truncated = new byte[binary.size() - 1];
+        System.arraycopy(binary.toByteArray(), 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> {
+            new StarCatalogue.Builder().loadFrom(new ByteArrayInputStream(truncated), BinaryCatalogueLoader.INSTANCE);
+        });
+    }
+
+    private byte[] binaryCatalogue(List<Star> stars) throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryCatalogueConverter.write(stars, binary);
+        return binary.toByteArray();
+    }
+
+    private static void assertCorrupt(byte[] bytes) {
+        assertThrows(IOException.class, () -> {
+            new StarCatalogue.Builder().loadFrom(new ByteArrayInputStream(bytes), BinaryCatalogueLoader.INSTANCE);
+        });
+    }
+
+    @Test
+    void binaryCatalogueFailsWithIOExceptionOnCorruptFiles() throws IOException {
+        List<Star> stars = List.of(
+                new Star(1, "a", EquatorialCoordinates.of(0, 0), 1, 0, 0, "A"),
+                new Star(2, "b", EquatorialCoordinates.of(1, 0.5), 2, 0, 0, "B"));
+        int n = stars.size();
+        int nameStart = BinaryCatalogueLoader.HEADER_BYTES + n * (BinaryCatalogueLoader.STAR_BYTES - 2 * Integer.BYTES);
+        int offsetsStart = BinaryCatalogueLoader.HEADER_BYTES + n * BinaryCatalogueLoader.STAR_BYTES;
+
+        // Un index de nom hors du réservoir
+        byte[] badName = binaryCatalogue(stars);
+        ByteBuffer.wrap(badName).putInt(nameStart, 1000);
+        assertCorrupt(badName);
+        ByteBuffer.wrap(badName).putInt(nameStart, -1);
+        assertCorrupt(badName);
+
+        // Des débuts de chaînes décroissants ou hors du réservoir
+        byte[] badOffset = binaryCatalogue(stars);
+        ByteBuffer.wrap(badOffset).putInt(offsetsStart + Integer.BYTES, -5);
+        assertCorrupt(badOffset);
+        ByteBuffer.wrap(badOffset).putInt(offsetsStart + Integer.BYTES, 1 << 20);
+        assertCorrupt(badOffset);
+
+        // Des nombres d'étoiles ou de chaînes négatifs ou énormes
+        byte[] badCount = binaryCatalogue(stars);
+        ByteBuffer.wrap(badCount).putInt(2 * Integer.BYTES, -1);
+        assertCorrupt(badCount);
+        ByteBuffer.wrap(badCount).putInt(2 * Integer.BYTES, Integer.MAX_VALUE);
+        assertCorrupt(badCount);
+        byte[] badStrings = binaryCatalogue(stars);
+        ByteBuffer.wrap(badStrings).putInt(3 * Integer.BYTES, Integer.MAX_VALUE);
+        assertCorrupt(badStrings);
+
+        // Une position hors des bornes
+        byte[] badPosition = binaryCatalogue(stars);
+        ByteBuffer.wrap(badPosition).putDouble(BinaryCatalogueLoader.HEADER_BYTES, 100);
+        assertCorrupt(badPosition);
+    }
+
+    @Test
+    void convertedNextToGeneratesTheBinaryCatalogueOnce() throws IOException {
+        Path directory = Files.createTempDirectory("rigel");
+        Path hyg = directory.resolve("hygdata_v3.csv");
+        Path binary = directory.resolve("hygdata_v3.bin");
+        try {
+            try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+                Files.copy(hygStream, hyg);
+            }
+
+            Optional<Path> converted = BinaryCatalogueConverter.convertedNextTo(hyg.toUri().toURL());
+            assertEquals(Optional.of(binary), converted);
+
+            FileTime generated = FileTime.fromMillis(Files.getLastModifiedTime(hyg).toMillis() + 1000);
+            Files.setLastModifiedTime(binary, generated);
+            assertEquals(Optional.of(binary), BinaryCatalogueConverter.convertedNextTo(hyg.toUri().toURL()));
+            assertEquals(generated, Files.getLastModifiedTime(binary));
+
+            try (InputStream binaryStream = new FileInputStream(binary.toFile())) {
+                assertSameStars(csvStars(), new StarCatalogue.Builder()
+                        .loadFrom(binaryStream, BinaryCatalogueLoader.INSTANCE).build().stars());
+            }
+
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(2, files.count());
+            }
+        } finally {
+            Files.deleteIfExists(binary);
+            Files.deleteIfExists(hyg);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void convertedNextToRegeneratesABinaryCatalogueOfAnotherFormat() throws IOException {
+        Path directory = Files.createTempDirectory("rigel");
+        Path hyg = directory.resolve("hygdata_v3.csv");
+        Path binary = directory.resolve("hygdata_v3.bin");
+        try {
+            try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+                Files.copy(hygStream, hyg);
+            }
+
+            // Un fichier plus récent que le CSV, mais d'une version antérieure du format, puis vide
+            FileTime newer = FileTime.fromMillis(Files.getLastModifiedTime(hyg).toMillis() + 1000);
+            for (byte[] outdated : new byte[][] { 
+                    ByteBuffer.allocate(2 * Integer.BYTES).putInt(BinaryCatalogueLoader.MAGIC).putInt(0).array(), 
+                    new byte[0] }) {
+                Files.write(binary, outdated);
+                Files.setLastModifiedTime(binary, newer);
+
+                assertEquals(Optional.of(binary), BinaryCatalogueConverter.convertedNextTo(hyg.toUri().toURL()));
+                try (InputStream binaryStream = new FileInputStream(binary.toFile())) {
+                    assertSameStars(csvStars(), new StarCatalogue.Builder()
+                            .loadFrom(binaryStream, BinaryCatalogueLoader.INSTANCE).build().stars());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(binary);
+            Files.deleteIfExists(hyg);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void loadStarsFallsBackToTheCsvOnACorruptBinaryCatalogue() throws IOException {
+        Path directory = Files.createTempDirectory("rigel");
+        Path hyg = directory.resolve("hygdata_v3.csv");
+        Path binary = directory.resolve("hygdata_v3.bin");
+        try {
+            try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+                Files.copy(hygStream, hyg);
+            }
+            BinaryCatalogueConverter.convertedNextTo(hyg.toUri().toURL());
+
+            // Un en-tête valide, mais des étoiles hors des bornes
+            byte[] corrupt = Files.readAllBytes(binary);
+            ByteBuffer.wrap(corrupt).putDouble(BinaryCatalogueLoader.HEADER_BYTES, 100);
+            Files.write(binary, corrupt);
+            Files.setLastModifiedTime(binary, FileTime.fromMillis(Files.getLastModifiedTime(hyg).toMillis() + 1000));
+
+            assertSameStars(csvStars(), BinaryCatalogueConverter.loadStars(hyg.toUri().toURL()).build().stars());
+            assertFalse(Files.exists(binary));
+
+            // Le lancement suivant le regénère
+            assertSameStars(csvStars(), BinaryCatalogueConverter.loadStars(hyg.toUri().toURL()).build().stars());
+            assertTrue(Files.exists(binary));
+        } finally {
+            Files.deleteIfExists(binary);
+            Files.deleteIfExists(hyg);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void convertedNextToIgnoresResourcesOutsideTheFileSystem() throws IOException {
+        assertEquals(Optional.empty(), BinaryCatalogueConverter.convertedNextTo(null));
+        assertEquals(Optional.empty(), BinaryCatalogueConverter.convertedNextTo(
+                new URL("jar:file:/rigel.jar!/hygdata_v3.csv")));
+    }
+}
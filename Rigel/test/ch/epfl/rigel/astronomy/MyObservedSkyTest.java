@@ -9,7 +9,9 @@ import java.time.LocalTime;
 import java.time.Month;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.Test;
 
@@ -140,6 +142,164 @@ class MyObservedSkyTest {
         }
         assertEquals(catalogue.stars().size(), sky.stars().size());
     }
-    
 
+    @Test
+    void MyGetPositionAndGetCurrentUseTheCatalogueIndex() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+        
+        ZonedDateTime time = ZonedDateTime.of(LocalDate.of(2020, Month.APRIL, 4),LocalTime.of(0, 0), ZoneOffset.UTC);
+        GeographicCoordinates geoCoords = GeographicCoordinates.ofDeg(30, 45);
+        StereographicProjection stereo = new StereographicProjection(HorizontalCoordinates.ofDeg(20, 22));
+        ObservedSky sky = new ObservedSky(time, geoCoords, stereo, catalogue);
+        ObservedSky later = new ObservedSky(time.plusHours(1), geoCoords, stereo, catalogue);
+        
+        double[] starPositions = sky.starPositions();
+        for (int i = 0; i < sky.stars().size(); i++) {
+            Star star = sky.stars().get(i);
+            assertEquals(starPositions[2 * i], sky.getPosition(star).x());
+            assertEquals(starPositions[2 * i + 1], sky.getPosition(star).y());
+            assertSame(star, later.getCurrent(star));
+        }
+        
+        assertSame(sky.sunPosition(), sky.getPosition(later.sun()));
+        assertSame(sky.moonPosition(), sky.getPosition(later.moon()));
+        assertSame(later.sun(), later.getCurrent(sky.sun()));
+        assertSame(later.moon(), later.getCurrent(sky.moon()));
+        
+        double[] planetPositions = sky.planetPositions();
+        for (int i = 0; i < sky.planets().size(); i++) {
+            assertEquals(planetPositions[2 * i], sky.getPosition(later.planets().get(i)).x());
+            assertEquals(planetPositions[2 * i + 1], sky.getPosition(later.planets().get(i)).y());
+            assertSame(later.planets().get(i), later.getCurrent(sky.planets().get(i)));
+        }
+        
+        Star unknown = new Star(0, "Inconnue", EquatorialCoordinates.of(0, 0), 0, 0, 0, "");
+        assertNull(sky.getPosition(unknown));
+        assertNull(sky.getCurrent(unknown));
+    }
+
+    @Test
+    void MyParallelObservedSkyEqualsSequentialObservedSky() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+        
+        ZonedDateTime time = ZonedDateTime.of(LocalDate.of(2020, Month.APRIL, 4),LocalTime.of(0, 0), ZoneOffset.UTC);
+        GeographicCoordinates geoCoords = GeographicCoordinates.ofDeg(30, 45);
+        StereographicProjection stereo = new StereographicProjection(HorizontalCoordinates.ofDeg(20, 22));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        
+        try {
+            for (boolean rotateUnitVectors : new boolean[] { false, true }) {
+                ObservedSky sequential = new ObservedSky(time, geoCoords, stereo, catalogue, rotateUnitVectors);
+                ObservedSky parallel = new ObservedSky(time, geoCoords, stereo, catalogue, rotateUnitVectors, pool);
+                
+                assertArrayEquals(sequential.starPositions(), parallel.starPositions());
+                assertArrayEquals(sequential.planetPositions(), parallel.planetPositions());
+                assertEquals(sequential.sunPosition().x(), parallel.sunPosition().x());
+                assertEquals(sequential.sunPosition().y(), parallel.sunPosition().y());
+                assertEquals(sequential.moonPosition().x(), parallel.moonPosition().x());
+                assertEquals(sequential.moonPosition().y(), parallel.moonPosition().y());
+                assertEquals(sequential.moon().info(), parallel.moon().info());
+                for (int i = 0; i < sequential.planets().size(); i++) {
+                    assertEquals(sequential.planets().get(i).info(), parallel.planets().get(i).info());
+                }
+                assertSame(stereo, parallel.projection());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void MyAdvanceToEqualsANewObservedSky() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+        
+        ZonedDateTime time = ZonedDateTime.of(LocalDate.of(2020, Month.APRIL, 4),LocalTime.of(0, 0), ZoneOffset.UTC);
+        GeographicCoordinates geoCoords = GeographicCoordinates.ofDeg(30, 45);
+        StereographicProjection stereo = new StereographicProjection(HorizontalCoordinates.ofDeg(20, 22));
+        
+        for (boolean rotateUnitVectors : new boolean[] { false, true }) {
+            ObservedSky sky = new ObservedSky(time, geoCoords, stereo, catalogue, rotateUnitVectors);
+            assertSame(sky, sky.advanceTo(time));
+            assertSame(sky, sky.advanceTo(time.withZoneSameInstant(ZoneOffset.ofHours(2))));
+            
+            // Un nouvel instant : tout est recalculé
+            ZonedDateTime later = time.plusMinutes(5);
+            ObservedSky advanced = sky.advanceTo(later);
+            ObservedSky expected = new ObservedSky(later, geoCoords, stereo, catalogue, rotateUnitVectors);
+            assertArrayEquals(expected.starPositions(), advanced.starPositions());
+            assertArrayEquals(expected.planetPositions(), advanced.planetPositions());
+            assertEquals(expected.sunPosition().x(), advanced.sunPosition().x());
+            assertEquals(expected.moonPosition().y(), advanced.moonPosition().y());
+            
+            // Une nouvelle position et une nouvelle projection : le système solaire est repris
+            GeographicCoordinates otherCoords = GeographicCoordinates.ofDeg(-70, -30);
+            StereographicProjection otherStereo = new StereographicProjection(HorizontalCoordinates.ofDeg(200, 40));
+            ObservedSky moved = advanced.advanceTo(later, otherCoords, otherStereo);
+            expected = new ObservedSky(later, otherCoords, otherStereo, catalogue, rotateUnitVectors);
+            assertSame(advanced.sun(), moved.sun());
+            assertSame(advanced.moon(), moved.moon());
+            assertSame(advanced.planets(), moved.planets());
+            assertThrows(UnsupportedOperationException.class, () -> moved.planets().clear());
+            assertSame(otherStereo, moved.projection());
+            assertArrayEquals(expected.starPositions(), moved.starPositions());
+            assertArrayEquals(expected.planetPositions(), moved.planetPositions());
+            assertEquals(expected.sunPosition().x(), moved.sunPosition().x());
+            assertEquals(expected.moonPosition().y(), moved.moonPosition().y());
+        }
+    }
+
+    @Test
+    void MyStarRanksWithinFindsExactlyTheStarsOfTheDisc() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+        
+        ZonedDateTime time = ZonedDateTime.of(LocalDate.of(2020, Month.APRIL, 4),LocalTime.of(0, 0), ZoneOffset.UTC);
+        
+        // Des centres quelconques, puis au pôle céleste nord et près du pôle sud, où tous les fuseaux sont touchés
+        GeographicCoordinates[] observers = { 
+                GeographicCoordinates.ofDeg(30, 45), GeographicCoordinates.ofDeg(-70, -30), 
+                GeographicCoordinates.ofDeg(6, 89.9), GeographicCoordinates.ofDeg(6, -89) };
+        HorizontalCoordinates[] centers = { 
+                HorizontalCoordinates.ofDeg(20, 22), HorizontalCoordinates.ofDeg(200, 40),
+                HorizontalCoordinates.ofDeg(0, 89.9), HorizontalCoordinates.ofDeg(180, 88) };
+        
+        for (int i = 0; i < observers.length; i++) {
+            ObservedSky sky = new ObservedSky(time, observers[i], new StereographicProjection(centers[i]), catalogue, true);
+            
+            for (double planeRadius : new double[] { 0, 0.005, 0.05, 0.4, 1, 3, 1e9 }) {
+                for (int rankCount : new int[] { 0, 300, catalogue.starCount() }) {
+                    int[] ranks = sky.starRanksWithin(planeRadius, rankCount);
+                    
+                    int expectedCount = 0;
+                    for (int rank = 0; rank < rankCount; rank++) {
+                        int index = sky.starIndexByMagnitude(rank);
+                        if (Math.hypot(sky.starX(index), sky.starY(index)) <= planeRadius) {
+                            expectedCount++;
+                            assertTrue(Arrays.binarySearch(ranks, rank) >= 0);
+                        }
+                    }
+                    
+                    // Les étoiles en trop ne peuvent être qu'au bord du disque, à un arrondi près
+                    assertTrue(ranks.length <= expectedCount + 1);
+                    for (int j = 0; j < ranks.length; j++) {
+                        assertTrue(ranks[j] < rankCount);
+                        assertTrue(j == 0 || ranks[j - 1] < ranks[j]);
+                        int index = sky.starIndexByMagnitude(ranks[j]);
+                        assertTrue(Math.hypot(sky.starX(index), sky.starY(index)) <= planeRadius * (1 + 1e-6) + 1e-9);
+                    }
+                }
+            }
+        }
+    }
 }
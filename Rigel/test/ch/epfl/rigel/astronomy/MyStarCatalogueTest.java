@@ -0,0 +1,207 @@
+package ch.epfl.rigel.astronomy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+
+class MyStarCatalogueTest {
+
+    @Test
+    void columnsAreIndexedLikeStars() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+        List<Star> stars = catalogue.stars();
+
+        double[] ra = catalogue.ra();
+        double[] dec = catalogue.dec();
+        float[] magnitudes = catalogue.magnitudes();
+        int[] colorTemperatures = catalogue.colorTemperatures();
+        int[] hipparcosIds = catalogue.hipparcosIds();
+
+        assertEquals(stars.size(), catalogue.starCount());
+        assertEquals(stars.size(), ra.length);
+        for (int i = 0; i < stars.size(); i++) {
+            Star star = stars.get(i);
+            assertEquals(star.equatorialPos().ra(), ra[i]);
+            assertEquals(star.equatorialPos().dec(), dec[i]);
+            assertEquals(star.magnitude(), magnitudes[i]);
+            assertEquals(star.colorTemperature(), colorTemperatures[i]);
+            assertEquals(star.hipparcosId(), hipparcosIds[i]);
+        }
+    }
+
+    @Test
+    void columnsAreCopies() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+
+        double ra0 = catalogue.ra()[0];
+        catalogue.ra()[0] = -1;
+        assertEquals(ra0, catalogue.ra()[0]);
+
+        int hip0 = catalogue.hipparcosIds()[0];
+        catalogue.hipparcosIds()[0] = -1;
+        assertEquals(hip0, catalogue.hipparcosIds()[0]);
+    }
+
+    @Test
+    void hipparcosIndexFindsTheFirstStarWithEachId() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+        List<Star> stars = catalogue.stars();
+
+        for (int i = 0; i < stars.size(); i++) {
+            int hip = stars.get(i).hipparcosId();
+            int expected = -1;
+            if (hip != 0) {
+                for (int j = 0; j < stars.size() && expected < 0; j++) {
+                    if (stars.get(j).hipparcosId() == hip) {
+                        expected = j;
+                    }
+                }
+            }
+            assertEquals(expected, catalogue.indexOfHipparcosId(hip));
+        }
+
+        assertEquals(-1, catalogue.indexOfHipparcosId(0));
+        assertEquals(-1, catalogue.indexOfHipparcosId(-1));
+        assertEquals(-1, catalogue.indexOfHipparcosId(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void indexOfFindsEveryStarByIdentity() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+        List<Star> stars = catalogue.stars();
+
+        for (int i = 0; i < stars.size(); i++) {
+            assertEquals(i, catalogue.indexOf(stars.get(i)));
+        }
+
+        Star rigel = stars.get(catalogue.indexOfHipparcosId(24436));
+        assertEquals("Rigel", rigel.name());
+        Star copy = new Star(rigel.hipparcosId(), rigel.name(), rigel.equatorialPos(),
+                (float) rigel.magnitude(), (float) rigel.colorIndex(), (float) rigel.distance(), rigel.spectralType());
+        assertEquals(-1, catalogue.indexOf(copy));
+    }
+
+    @Test
+    void indexWorksWithDuplicateAndMissingIds() {
+        EquatorialCoordinates pos = EquatorialCoordinates.of(0, 0);
+        Star a = new Star(0, "a", pos, 0, 0, 0, "");
+        Star b = new Star(7, "b", pos, 0, 0, 0, "");
+        Star c = new Star(0, "c", pos, 0, 0, 0, "");
+        Star d = new Star(7, "d", pos, 0, 0, 0, "");
+        StarCatalogue catalogue = new StarCatalogue(List.of(a, b, c, d), List.of());
+
+        assertEquals(1, catalogue.indexOfHipparcosId(7));
+        assertEquals(0, catalogue.indexOf(a));
+        assertEquals(1, catalogue.indexOf(b));
+        assertEquals(2, catalogue.indexOf(c));
+        assertEquals(3, catalogue.indexOf(d));
+
+        StarCatalogue empty = new StarCatalogue(List.of(), List.of());
+        assertEquals(-1, empty.indexOfHipparcosId(7));
+        assertEquals(-1, empty.indexOf(a));
+    }
+
+    @Test
+    void magnitudeOrderListsStarsFromBrightestToFaintest() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+        List<Star> stars = catalogue.stars();
+
+        boolean[] seen = new boolean[stars.size()];
+        for (int rank = 0; rank < stars.size(); rank++) {
+            int index = catalogue.starIndexByMagnitude(rank);
+            assertFalse(seen[index]);
+            seen[index] = true;
+            if (rank > 0) {
+                int previous = catalogue.starIndexByMagnitude(rank - 1);
+                double previousMagnitude = stars.get(previous).magnitude();
+                assertTrue(previousMagnitude < stars.get(index).magnitude()
+                        || (previousMagnitude == stars.get(index).magnitude() && previous < index));
+            }
+        }
+
+        for (double limit : new double[] { -10, -1.46, 0, 2.5, 4, 6, 100 }) {
+            int expected = 0;
+            for (Star star : stars) {
+                if (star.magnitude() <= limit) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, catalogue.starCountBrighterThan(limit));
+        }
+        assertEquals(stars.size(), catalogue.starCountBrighterThan(Double.POSITIVE_INFINITY));
+        assertEquals("Sirius", stars.get(catalogue.starIndexByMagnitude(0)).name());
+    }
+
+    @Test
+    void asterismTableMatchesAsterismIndices() throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = getClass().getResourceAsStream("/hygdata_v3.csv");
+                InputStream astStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+
+        Set<List<Integer>> fromTable = new HashSet<>();
+        for (int asterism = 0; asterism < catalogue.asterismCount(); asterism++) {
+            List<Integer> indices = new ArrayList<>();
+            for (int position = 0; position < catalogue.asterismLength(asterism); position++) {
+                indices.add(catalogue.asterismStarIndex(asterism, position));
+            }
+            fromTable.add(indices);
+        }
+
+        Set<List<Integer>> fromAsterisms = new HashSet<>();
+        for (Asterism asterism : catalogue.asterisms()) {
+            List<Integer> indices = catalogue.asterismIndices(asterism);
+            for (int i = 0; i < indices.size(); i++) {
+                assertSame(asterism.stars().get(i), catalogue.stars().get(indices.get(i)));
+            }
+            fromAsterisms.add(indices);
+        }
+
+        assertEquals(catalogue.asterisms().size(), catalogue.asterismCount());
+        assertEquals(fromAsterisms, fromTable);
+    }
+
+    @Test
+    void constructorFailsOnAsterismWithUnknownStar() {
+        EquatorialCoordinates pos = EquatorialCoordinates.of(0, 0);
+        Star a = new Star(1, "a", pos, 0, 0, 0, "");
+        Star b = new Star(2, "b", pos, 0, 0, 0, "");
+        Asterism asterism = new Asterism(List.of(a, b));
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            new StarCatalogue(List.of(a), List.of(asterism));
+        });
+        StarCatalogue catalogue = new StarCatalogue(List.of(b, a), List.of(asterism, asterism));
+        assertEquals(1, catalogue.asterismCount());
+        assertEquals(1, catalogue.asterismStarIndex(0, 0));
+        assertEquals(0, catalogue.asterismStarIndex(0, 1));
+    }
+}
@@ -0,0 +1,63 @@
+package ch.epfl.rigel.astronomy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.test.TestRandomizer;
+
+class MyStarIndexTest {
+
+    private static int linearClosestTo(double[] positions, double x, double y, double maxDistanceSquared) {
+        int closest = -1;
+        double best = maxDistanceSquared;
+        for (int i = 0; i < positions.length / 2; i++) {
+            double dx = x - positions[2 * i];
+            double dy = y - positions[2 * i + 1];
+            if (dx * dx + dy * dy < best) {
+                best = dx * dx + dy * dy;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    @Test
+    void closestToMatchesLinearScan() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+
+        for (int size : new int[] {0, 1, 2, 3, 17, 1000}) {
+            double[] positions = new double[2 * size];
+            for (int i = 0; i < positions.length; i++) {
+                // Des positions sur une grille grossière, pour avoir des égalités
+                positions[i] = rng.nextInt(-20, 20) / 10.0;
+            }
+            StarIndex index = new StarIndex(positions.clone());
+
+            for (int q = 0; q < TestRandomizer.RANDOM_ITERATIONS; q++) {
+                double x = rng.nextDouble(-2.5, 2.5);
+                double y = (q % 2 == 0) ? rng.nextDouble(-2.5, 2.5) : rng.nextInt(-20, 20) / 10.0;
+                double range = rng.nextDouble(0, 1);
+                assertEquals(linearClosestTo(positions, x, y, range * range),
+                        index.closestTo(x, y, range * range));
+            }
+        }
+    }
+
+    @Test
+    void closestToIgnoresUndefinedAndHandlesInfinitePositions() {
+        double[] positions = {
+                Double.NaN, 0,
+                0.5, 0.5,
+                Double.POSITIVE_INFINITY, 0,
+                0, Double.NEGATIVE_INFINITY,
+                0.1, 0 };
+        StarIndex index = new StarIndex(positions);
+
+        assertEquals(4, index.closestTo(0, 0, 1));
+        assertEquals(1, index.closestTo(0.45, 0.45, 1));
+        assertEquals(-1, index.closestTo(10, 10, 1));
+    }
+}
@@ -0,0 +1,132 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+
+/**
+ * Mesure la projection des étoiles du catalogue, image par image, comme lorsque l'animateur de temps tourne :
+ * l'ancien chemin (une fonction composée, une conversion et trois coordonnées par étoile, plus une table associative),
+ * le noyau {@link StereographicProjection#applyToAll}, la rotation des vecteurs unités 
+ * {@link StereographicProjection#applyToAllUnitVectors}, et la construction complète d'un {@link ObservedSky} dans les deux modes, séquentielle ou parallèle, ou mise à jour par {@link ObservedSky#advanceTo}.
+ */
+public final class ObservedSkyBenchmark {
+
+    private static final String HYG_CATALOGUE_NAME = "/hygdata_v3.csv";
+    private static final String AST_CATALOGUE_NAME = "/asterisms.txt";
+
+    private static final int WARMUP_FRAMES = 200;
+    private static final int MEASURED_FRAMES = 1_000;
+    private static final long SECONDS_PER_FRAME = 300;   // Accélérateur x300 à ~1 image par seconde simulée
+
+    public static void main(String[] args) throws IOException {
+        StarCatalogue catalogue;
+        try (InputStream hygStream = ObservedSkyBenchmark.class.getResourceAsStream(HYG_CATALOGUE_NAME);
+                InputStream astStream = ObservedSkyBenchmark.class.getResourceAsStream(AST_CATALOGUE_NAME)) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+
+        ZonedDateTime start = ZonedDateTime.parse("2020-02-17T20:15:00+01:00");
+        GeographicCoordinates where = GeographicCoordinates.ofDeg(6.57, 46.52);
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+
+        System.out.printf("%d étoiles, %d images mesurées%n", catalogue.starCount(), MEASURED_FRAMES);
+
+        report("ancien chemin", catalogue, measure(frame -> legacyFrame(catalogue, start.plusSeconds(frame * SECONDS_PER_FRAME), where, projection)));
+        report("noyau applyToAll", catalogue, measure(frame -> kernelFrame(catalogue, start.plusSeconds(frame * SECONDS_PER_FRAME), where, projection)));
+        report("rotation", catalogue, measure(frame -> rotationFrame(catalogue, start.plusSeconds(frame * SECONDS_PER_FRAME), where, projection)));
+        report("ObservedSky", catalogue, measure(frame -> new ObservedSky(start.plusSeconds(frame * SECONDS_PER_FRAME), where, projection, catalogue).starPositions()[0]));
+        report("ObservedSky rotation", catalogue, measure(frame -> new ObservedSky(start.plusSeconds(frame * SECONDS_PER_FRAME), where, projection, catalogue, true).starPositions()[0]));
+        report("ObservedSky parallèle", catalogue, measure(frame -> new ObservedSky(start.plusSeconds(frame * SECONDS_PER_FRAME), where, projection, catalogue, false, ForkJoinPool.commonPool()).starPositions()[0]));
+        report("rotation parallèle", catalogue, measure(frame -> new ObservedSky(start.plusSeconds(frame * SECONDS_PER_FRAME), where, projection, catalogue, true, ForkJoinPool.commonPool()).starPositions()[0]));
+
+        // Mise à jour du ciel précédent, puis changement de projection seul (le système solaire est repris)
+        ObservedSky[] sky = { new ObservedSky(start, where, projection, catalogue, true) };
+        report("advanceTo rotation", catalogue, measure(frame -> (sky[0] = sky[0].advanceTo(start.plusSeconds(frame * SECONDS_PER_FRAME))).starPositions()[0]));
+        ObservedSky fixed = new ObservedSky(start, where, projection, catalogue, true);
+        report("nouvelle projection", catalogue, measure(frame -> fixed.advanceTo(start, where, 
+                new StereographicProjection(HorizontalCoordinates.ofDeg(frame % 360, 15))).starPositions()[0]));
+    }
+
+    private interface Frame {
+        double render(int frame);
+    }
+
+    /**
+     * @return la durée moyenne d'une image, en nanosecondes
+     */
+    private static double measure(Frame frame) {
+        double checksum = 0;
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            checksum += frame.render(i);
+        }
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            checksum += frame.render(WARMUP_FRAMES + i);
+        }
+        long elapsed = System.nanoTime() - startNanos;
+
+        // Empêche le JIT d'éliminer le travail
+        if (checksum == Double.MIN_VALUE) {
+            System.out.println(checksum);
+        }
+
+        return (double) elapsed / MEASURED_FRAMES;
+    }
+
+    private static void report(String name, StarCatalogue catalogue, double nanosPerFrame) {
+        System.out.printf("%-22s %10.3f ms/image %10.1f ns/étoile%n",
+                name, nanosPerFrame / 1e6, nanosPerFrame / catalogue.starCount());
+    }
+
+    /**
+     * Projection étoile par étoile, telle que la faisait ObservedSky avant le noyau
+     */
+    private static double legacyFrame(StarCatalogue catalogue, ZonedDateTime when, GeographicCoordinates where,
+            StereographicProjection projection) {
+        List<Star> stars = catalogue.stars();
+        double[] positions = new double[2 * stars.size()];
+        Map<CelestialObject, CartesianCoordinates> positionMap = new HashMap<>();
+
+        int i = 0;
+        for (Star star : stars) {
+            CartesianCoordinates position = projection.compose(
+                    new EquatorialToHorizontalConversion(when, where))
+                    .apply(star.equatorialPos());
+            positions[i++] = position.x();
+            positions[i++] = position.y();
+            positionMap.put(star, position);
+        }
+        return positions[0] + positionMap.size();
+    }
+
+    private static double kernelFrame(StarCatalogue catalogue, ZonedDateTime when, GeographicCoordinates where,
+            StereographicProjection projection) {
+        double[] positions = new double[2 * catalogue.starCount()];
+        projection.applyToAll(new EquatorialToHorizontalConversion(when, where),
+                catalogue.ra(), catalogue.dec(), positions);
+        return positions[0];
+    }
+
+    private static double rotationFrame(StarCatalogue catalogue, ZonedDateTime when, GeographicCoordinates where,
+            StereographicProjection projection) {
+        double[] positions = new double[2 * catalogue.starCount()];
+        projection.applyToAllUnitVectors(new EquatorialToHorizontalConversion(when, where),
+                catalogue.unitVectors(), positions);
+        return positions[0];
+    }
+}
@@ -3,6 +3,10 @@ package ch.epfl.rigel.coordinates;
 import static java.lang.Math.PI;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.SplittableRandom;
+
 import org.junit.jupiter.api.Test;
 
 import ch.epfl.rigel.math.Angle;
@@ -112,5 +116,140 @@ class MyStereographicProjectionTest {
             assertEquals(1.0 / 0.0, s.circleRadiusForParallel(h));
         }
     }
+    
+    @Test
+    void sterApplyToAllMatchesComposedConversion() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        
+        for (int t = 0; t < 20; t++) {
+            ZonedDateTime when = ZonedDateTime.of(1980 + rng.nextInt(80), 1 + rng.nextInt(12), 1 + rng.nextInt(28),
+                    rng.nextInt(24), rng.nextInt(60), 0, 0, ZoneOffset.UTC);
+            GeographicCoordinates where = GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-89, 89));
+            HorizontalCoordinates center = HorizontalCoordinates.ofDeg(rng.nextDouble(0, 360), rng.nextDouble(-90, 90));
+            
+            StereographicProjection s = new StereographicProjection(center);
+            EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(when, where);
+            
+            double[] ra = new double[TestRandomizer.RANDOM_ITERATIONS];
+            double[] dec = new double[TestRandomizer.RANDOM_ITERATIONS];
+            for (int i = 0; i < ra.length; i++) {
+                ra[i] = rng.nextDouble(0, Angle.TAU);
+                dec[i] = rng.nextDouble(-PI / 2, PI / 2);
+            }
+            
+            double[] positions = new double[2 * ra.length];
+            s.applyToAll(conversion, ra, dec, positions);
+            
+            for (int i = 0; i < ra.length; i++) {
+                CartesianCoordinates c = s.compose(conversion).apply(EquatorialCoordinates.of(ra[i], dec[i]));
+                assertEquals(c.x(), positions[2 * i]);
+                assertEquals(c.y(), positions[2 * i + 1]);
+            }
+        }
+    }
+    
+    @Test
+    void sterApplyToAllUnitVectorsMatchesComposedConversion() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        
+        for (int t = 0; t < 20; t++) {
+            ZonedDateTime when = ZonedDateTime.of(1980 + rng.nextInt(80), 1 + rng.nextInt(12), 1 + rng.nextInt(28),
+                    rng.nextInt(24), rng.nextInt(60), 0, 0, ZoneOffset.UTC);
+            GeographicCoordinates where = GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-89, 89));
+            HorizontalCoordinates center = HorizontalCoordinates.ofDeg(rng.nextDouble(0, 360), rng.nextDouble(-90, 90));
+            
+            StereographicProjection s = new StereographicProjection(center);
+            EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(when, where);
+            
+            double[] ra = new double[TestRandomizer.RANDOM_ITERATIONS];
+            double[] dec = new double[TestRandomizer.RANDOM_ITERATIONS];
+            double[] unitVectors = new double[3 * ra.length];
+            for (int i = 0; i < ra.length; i++) {
+                ra[i] = rng.nextDouble(0, Angle.TAU);
+                dec[i] = rng.nextDouble(-PI / 2, PI / 2);
+                unitVectors[3 * i] = Math.cos(dec[i]) * Math.cos(ra[i]);
+                unitVectors[3 * i + 1] = Math.cos(dec[i]) * Math.sin(ra[i]);
+                unitVectors[3 * i + 2] = Math.sin(dec[i]);
+            }
+            
+            double[] positions = new double[2 * ra.length];
+            s.applyToAllUnitVectors(conversion, unitVectors, positions);
+            
+            for (int i = 0; i < ra.length; i++) {
+                CartesianCoordinates c = s.compose(conversion).apply(EquatorialCoordinates.of(ra[i], dec[i]));
+                // Près de l'antipode du centre, les positions tendent vers l'infini et l'erreur relative croît
+                double r = Math.hypot(c.x(), c.y());
+                double delta = 1e-9 * Math.max(1, r * r);
+                assertEquals(c.x(), positions[2 * i], delta);
+                assertEquals(c.y(), positions[2 * i + 1], delta);
+            }
+        }
+    }
+    
+    @Test
+    void sterApplyToAllFailsOnMismatchedArrays() {
+        StereographicProjection s = new StereographicProjection(HorizontalCoordinates.ofDeg(0, 0));
+        EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(
+                ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC), GeographicCoordinates.ofDeg(0, 0));
+        
+        assertThrows(IllegalArgumentException.class, () -> {
+            s.applyToAll(conversion, new double[3], new double[2], new double[6]);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            s.applyToAll(conversion, new double[3], new double[3], new double[5]);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            s.applyToAllUnitVectors(conversion, new double[9], new double[4]);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            s.applyToAllUnitVectors(conversion, new double[8], new double[4]);
+        });
+    }
+    
+    @Test
+    void sterApplyToAllRangesOnlyWriteTheirPoints() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        StereographicProjection s = new StereographicProjection(HorizontalCoordinates.ofDeg(120, 30));
+        EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(
+                ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC), GeographicCoordinates.ofDeg(6.57, 46.52));
+        
+        double[] ra = new double[TestRandomizer.RANDOM_ITERATIONS];
+        double[] dec = new double[TestRandomizer.RANDOM_ITERATIONS];
+        double[] unitVectors = new double[3 * ra.length];
+        for (int i = 0; i < ra.length; i++) {
+            ra[i] = rng.nextDouble(0, Angle.TAU);
+            dec[i] = rng.nextDouble(-PI / 2, PI / 2);
+            unitVectors[3 * i] = Math.cos(dec[i]) * Math.cos(ra[i]);
+            unitVectors[3 * i + 1] = Math.cos(dec[i]) * Math.sin(ra[i]);
+            unitVectors[3 * i + 2] = Math.sin(dec[i]);
+        }
+        
+        double[] expected = new double[2 * ra.length];
+        double[] expectedRotated = new double[2 * ra.length];
+        s.applyToAll(conversion, ra, dec, expected);
+        s.applyToAllUnitVectors(conversion, unitVectors, expectedRotated);
+        
+        // Par morceaux, les positions sont exactement les mêmes
+        int middle = ra.length / 3;
+        double[] positions = new double[2 * ra.length];
+        double[] rotated = new double[2 * ra.length];
+        s.applyToAll(conversion, ra, dec, positions, middle, ra.length);
+        s.applyToAllUnitVectors(conversion, unitVectors, rotated, middle, ra.length);
+        for (int i = 0; i < 2 * middle; i++) {
+            assertEquals(0, positions[i]);
+            assertEquals(0, rotated[i]);
+        }
+        s.applyToAll(conversion, ra, dec, positions, 0, middle);
+        s.applyToAllUnitVectors(conversion, unitVectors, rotated, 0, middle);
+        assertArrayEquals(expected, positions);
+        assertArrayEquals(expectedRotated, rotated);
+        
+        assertThrows(IllegalArgumentException.class, () -> {
+            s.applyToAll(conversion, ra, dec, positions, 2, 1);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            s.applyToAllUnitVectors(conversion, unitVectors, rotated, 0, ra.length + 1);
+        });
+    }
 
 }
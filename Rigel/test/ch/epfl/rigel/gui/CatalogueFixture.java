@@ -0,0 +1,32 @@
+package ch.epfl.rigel.gui;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import ch.epfl.rigel.astronomy.AsterismLoader;
+import ch.epfl.rigel.astronomy.HygDatabaseLoader;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+
+/**
+ * Le catalogue des ressources, étoiles et astérismes, partagé par les tests des peintres
+ */
+final class CatalogueFixture {
+
+    private static final String HYG_CATALOGUE_NAME      = "/hygdata_v3.csv";
+    private static final String ASTERISM_CATALOGUE_NAME = "/asterisms.txt";
+
+    private CatalogueFixture() {}
+
+    /**
+     * Retourne un nouveau catalogue, lu du CSV des ressources
+     */
+    static StarCatalogue catalogue() throws IOException {
+        try (InputStream hygStream = CatalogueFixture.class.getResourceAsStream(HYG_CATALOGUE_NAME);
+                InputStream astStream = CatalogueFixture.class.getResourceAsStream(ASTERISM_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(astStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+    }
+}
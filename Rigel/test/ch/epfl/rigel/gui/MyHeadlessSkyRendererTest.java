@@ -0,0 +1,91 @@
+package ch.epfl.rigel.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+
+class MyHeadlessSkyRendererTest {
+
+    private static final ZonedDateTime WHEN = ZonedDateTime.parse("2020-02-17T14:15:00+01:00");
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+
+    @Test
+    void renderDrawsTheSunAtTheCenterOfTheImage() throws IOException {
+        StarCatalogue catalogue = CatalogueFixture.catalogue();
+        ObservedSky sky = new ObservedSky(WHEN, WHERE,
+                new StereographicProjection(HorizontalCoordinates.ofDeg(180, 20)), catalogue, true);
+
+        // Une projection centrée sur le Soleil
+        HorizontalCoordinates sunPos = new EquatorialToHorizontalConversion(WHEN, WHERE)
+                .apply(sky.sun().equatorialPos());
+        StereographicProjection projection = new StereographicProjection(sunPos);
+        sky = sky.advanceTo(WHEN, WHERE, projection);
+
+        HeadlessSkyRenderer renderer = new HeadlessSkyRenderer(200, 100, 20);
+        BufferedImage image = renderer.render(sky);
+
+        assertEquals(200, image.getWidth());
+        assertEquals(100, image.getHeight());
+        assertEquals(0xFFFFFFFF, image.getRGB(100, 50));
+        assertEquals(0xFF050514, image.getRGB(0, 0));
+    }
+
+    @Test
+    void renderDarkensTheEarth() throws IOException {
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(0, 0));
+        ObservedSky sky = new ObservedSky(WHEN.plusHours(8), WHERE, projection, CatalogueFixture.catalogue(), true);
+
+        BufferedImage image = new HeadlessSkyRenderer(100, 100, 60).render(sky);
+
+        int earth = image.getRGB(0, 99);
+        assertEquals(0xFF, earth >>> 24);
+        assertTrue((earth & 0xFF) < 0x14);
+    }
+
+    @Test
+    void constructorFailsOnEmptyImages() {
+        assertThrows(IllegalArgumentException.class, () -> new HeadlessSkyRenderer(0, 100, 100));
+        assertThrows(IllegalArgumentException.class, () -> new HeadlessSkyRenderer(100, 100, 0));
+    }
+
+    @Test
+    void renderAllWritesEveryChart() throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("rigel");
+        List<SkyChartBatch.Chart> charts = List.of(
+                SkyChartBatch.Chart.parse("2020-02-17T20:15:00+01:00;6.57;46.52;180;15;" + directory.resolve("a.png")),
+                SkyChartBatch.Chart.parse("2020-02-17T22:15:00+01:00;-71.06;42.36;0;45;" + directory.resolve("b.png")),
+                SkyChartBatch.Chart.parse("2020-06-21T23:00:00Z;151.21;-33.87;90;30;" + directory.resolve("c.png")));
+
+        SkyChartBatch.renderAll(CatalogueFixture.catalogue(), charts, new HeadlessSkyRenderer(160, 120, 100), 2);
+
+        for (SkyChartBatch.Chart chart : charts) {
+            BufferedImage image = ImageIO.read(chart.file().toFile());
+            assertEquals(160, image.getWidth());
+            assertEquals(120, image.getHeight());
+            Files.delete(chart.file());
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void chartParseFailsOnInvalidLines() {
+        assertThrows(IllegalArgumentException.class, () -> SkyChartBatch.Chart.parse("2020-02-17T20:15:00+01:00;6.57;46.52"));
+        assertThrows(IllegalArgumentException.class, () -> SkyChartBatch.Chart.parse("demain;6.57;46.52;180;15;a.png"));
+    }
+}
@@ -0,0 +1,49 @@
+package ch.epfl.rigel.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.Star;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+
+class MyStarRenderAttributesTest {
+
+    private ObservedSky sky(StarCatalogue catalogue, ZonedDateTime when) {
+        return new ObservedSky(when, GeographicCoordinates.ofDeg(6.57, 46.52),
+                new StereographicProjection(HorizontalCoordinates.ofDeg(180, 42)), catalogue, true);
+    }
+
+    @Test
+    void attributesMatchTheStars() throws IOException {
+        ObservedSky sky = sky(CatalogueFixture.catalogue(), ZonedDateTime.parse("2020-02-17T20:15:00+01:00"));
+        StarRenderAttributes attributes = new StarRenderAttributes(sky);
+
+        List<Star> stars = sky.stars();
+        for (int i = 0; i < stars.size(); i++) {
+            Star star = stars.get(i);
+            assertEquals(BlackBodyColor.colorForTemperature(star.colorTemperature()), attributes.color(i));
+            assertEquals(SkyCanvasPainter.sizeFactor(star.magnitude()), attributes.sizeFactor(i), 1e-6);
+        }
+    }
+
+    @Test
+    void attributesAreSharedByTheSkiesOfACatalogue() throws IOException {
+        StarCatalogue catalogue = CatalogueFixture.catalogue();
+        ZonedDateTime when = ZonedDateTime.parse("2020-02-17T20:15:00+01:00");
+        ObservedSky sky = sky(catalogue, when);
+        StarRenderAttributes attributes = new StarRenderAttributes(sky);
+
+        assertTrue(attributes.isFor(sky));
+        assertTrue(attributes.isFor(sky.advanceTo(when.plusHours(3))));
+        assertFalse(attributes.isFor(sky(CatalogueFixture.catalogue(), when)));
+    }
+}
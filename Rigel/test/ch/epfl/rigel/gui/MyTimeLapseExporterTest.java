@@ -0,0 +1,108 @@
+package ch.epfl.rigel.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+
+class MyTimeLapseExporterTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.parse("2020-02-17T20:15:00+01:00");
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+
+    @Test
+    void frameTimesFollowTheAccelerator() {
+        TimeAccelerator accelerator = TimeAccelerator.continuous(300);
+
+        assertEquals(START, TimeLapseExporter.frameTime(START, accelerator, 25, 0));
+        assertEquals(START.plusSeconds(300), TimeLapseExporter.frameTime(START, accelerator, 25, 25));
+        assertEquals(accelerator.adjust(START, 40_000_000L), TimeLapseExporter.frameTime(START, accelerator, 25, 1));
+        assertEquals(90_000, TimeLapseExporter.frameCount(25, Duration.ofHours(1)));
+        assertEquals(0, TimeLapseExporter.frameCount(25, Duration.ZERO));
+    }
+
+    @Test
+    void exportWritesANumberedSequenceOfFrames() throws IOException, InterruptedException {
+        StarCatalogue catalogue = CatalogueFixture.catalogue();
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+        HeadlessSkyRenderer renderer = new HeadlessSkyRenderer(80, 60, 100);
+        TimeAccelerator accelerator = TimeAccelerator.discrete(10, Duration.ofMinutes(1));
+        Path directory = Files.createTempDirectory("rigel").resolve("frames");
+
+        int frameCount = new TimeLapseExporter(catalogue, WHERE, projection, renderer, 2, 1)
+                .export(START, accelerator, 4, Duration.ofMillis(1500), directory);
+
+        assertEquals(6, frameCount);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(6, files.count());
+        }
+
+        // Chaque image est celle du ciel de son instant
+        for (int frame = 0; frame < frameCount; frame++) {
+            Path file = directory.resolve(String.format("frame-%05d.png", frame));
+            BufferedImage written = ImageIO.read(file.toFile());
+            BufferedImage expected = renderer.render(new ObservedSky(
+                    TimeLapseExporter.frameTime(START, accelerator, 4, frame), WHERE, projection, catalogue, true));
+
+            for (int y = 0; y < expected.getHeight(); y++) {
+                for (int x = 0; x < expected.getWidth(); x++) {
+                    assertEquals(expected.getRGB(x, y), written.getRGB(x, y));
+                }
+            }
+            Files.delete(file);
+        }
+        Files.delete(directory);
+        Files.delete(directory.getParent());
+    }
+
+    @Test
+    void exportFailsWithoutBlockingWhenAWriterThrowsAnError() throws IOException {
+        StarCatalogue catalogue = CatalogueFixture.catalogue();
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+        HeadlessSkyRenderer renderer = new HeadlessSkyRenderer(40, 30, 100);
+        Path directory = Files.createTempDirectory("rigel");
+
+        // Bien plus d'images que la file n'en contient : les producteurs resteraient bloqués si personne ne la vidait
+        TimeLapseExporter exporter = new TimeLapseExporter(catalogue, WHERE, projection, renderer, 2, 1, (image, file) -> {
+            throw new OutOfMemoryError("Image trop grande");
+        });
+        OutOfMemoryError error = assertTimeoutPreemptively(Duration.ofSeconds(60), () -> assertThrows(OutOfMemoryError.class, () -> {
+            exporter.export(START, TimeAccelerator.continuous(300), 10, Duration.ofSeconds(4), directory);
+        }));
+        assertEquals("Image trop grande", error.getMessage());
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void exportFailsOnInvalidParameters() throws IOException {
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+        HeadlessSkyRenderer renderer = new HeadlessSkyRenderer(80, 60, 100);
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            new TimeLapseExporter(CatalogueFixture.catalogue(), WHERE, projection, renderer, 0, 1);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new TimeLapseExporter(CatalogueFixture.catalogue(), WHERE, projection, renderer, 1, 1)
+                    .export(START, TimeAccelerator.continuous(300), 0, Duration.ofSeconds(1), Path.of("."));
+        });
+    }
+}